@@ -1,25 +1,54 @@
 package com.example.ola.newsapp1;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Created by Ola on 30.04.2018.
  */
 
 public class Article {
+    /** Maximum number of different section and author names kept in the pool */
+    private static final int MAX_POOLED_NAMES = 1024;
+
+    /**
+     * Section and author names repeat in almost every response, so all articles share one
+     * String for each of them instead of a copy per article.
+     */
+    private static final Map<String, String> sNamePool = new HashMap<>();
+
+    private static final String[] NO_CONTRIBUTORS = new String[0];
+
     // Title of the news/article
     private String mNewsTitle;
 
     // News category
     private String mNewsSection;
 
-    // Author of the news/article
+    // Authors of the news/article, as shown in the list
     private String mNewsAuthor;
 
-    // Date of the news/article
-    private String mNewsDate;
+    // Names of the contributors of the news/article, in the order of the response
+    private String[] mContributors;
+
+    // When the news/article was published, in milliseconds since the epoch
+    private long mPublishedAt;
+
+    // Date of the news/article as shown in the list, formatted the first time it is needed
+    private String mDisplayDate;
 
     /** Website URL of the news/article */
     private String mNewsUrl;
 
+    /** URL of the thumbnail image of the news/article, or null if it has none */
+    private String mThumbnailUrl;
+
+    // 64 bit hash of the website URL, computed the first time it is needed, 0 until then
+    private long mUrlKey;
+
     /// Constructor of news/article object
     /**
      * Constructs a new {@link Article} object.
@@ -27,15 +56,64 @@ public class Article {
      * @param title is the title of news/article
      * @param section is the news category
      * @param author is the author's name
-     * @param date is when the news was published
+     * @param date is when the news was published, as an ISO 8601 timestamp
      * @param url is the website URL to find more details about the news
      */
     public Article(String title, String section, String author, String date, String url){
+        this(title, section, author, ArticleDates.parseIso8601(date), url);
+    }
+
+    /**
+     * Constructs a new {@link Article} object.
+     *
+     * @param title is the title of news/article
+     * @param section is the news category
+     * @param author is the author's name
+     * @param publishedAt is when the news was published, in milliseconds since the epoch
+     * @param url is the website URL to find more details about the news
+     */
+    public Article(String title, String section, String author, long publishedAt, String url){
+        this(title, section, author, publishedAt, url, null);
+    }
+
+    /**
+     * Constructs a new {@link Article} object.
+     *
+     * @param title is the title of news/article
+     * @param section is the news category
+     * @param author is the author's name
+     * @param publishedAt is when the news was published, in milliseconds since the epoch
+     * @param url is the website URL to find more details about the news
+     * @param thumbnailUrl is the URL of the thumbnail image, or null if there is none
+     */
+    public Article(String title, String section, String author, long publishedAt, String url,
+                   String thumbnailUrl){
+        this(title, section, author == null || author.isEmpty() ? NO_CONTRIBUTORS : new String[]{author},
+                publishedAt, url, thumbnailUrl);
+    }
+
+    /**
+     * Constructs a new {@link Article} object.
+     *
+     * @param title is the title of news/article
+     * @param section is the news category
+     * @param contributors are the names of the authors, none if the article has no byline
+     * @param publishedAt is when the news was published, in milliseconds since the epoch
+     * @param url is the website URL to find more details about the news
+     * @param thumbnailUrl is the URL of the thumbnail image, or null if there is none
+     */
+    public Article(String title, String section, String[] contributors, long publishedAt, String url,
+                   String thumbnailUrl){
         mNewsTitle = title;
-        mNewsSection = section;
-        mNewsAuthor = author;
-        mNewsDate = date;
+        mNewsSection = pooled(section);
+        mContributors = new String[contributors.length];
+        for (int i = 0; i < contributors.length; i++) {
+            mContributors[i] = pooled(contributors[i]);
+        }
+        mNewsAuthor = mContributors.length == 1 ? mContributors[0] : pooled(join(mContributors));
+        mPublishedAt = publishedAt;
         mNewsUrl = url;
+        mThumbnailUrl = thumbnailUrl;
     }
 
     // Public getter methods so that each data type is returned
@@ -50,18 +128,117 @@ public class Article {
         return mNewsSection;
     }
 
-    /** Returns the category of the news. */
+    /** Returns the names of all the authors, separated by commas, or "" if there are none. */
     public String getAuthorsName(){
         return mNewsAuthor;
     }
 
-    /** Returns the date when the news was published.*/
+    /** Returns the names of the authors, in the order of the byline. */
+    public List<String> getContributors(){
+        return Collections.unmodifiableList(Arrays.asList(mContributors));
+    }
+
+    /** Returns the number of contributors, like {@link #getContributors()} but without a list */
+    int getContributorCount(){
+        return mContributors.length;
+    }
+
+    /** Returns the name of the contributor at the index, from 0 to {@link #getContributorCount()} - 1 */
+    String getContributor(int index){
+        return mContributors[index];
+    }
+
+    /** Returns the date when the news was published, formatted to be shown to the user.*/
     public String getNewsDate(){
-        return mNewsDate;
+        // Formatted only for the articles which are actually shown, and only once
+        String displayDate = mDisplayDate;
+        if (displayDate == null) {
+            displayDate = ArticleDates.formatForDisplay(mPublishedAt);
+            mDisplayDate = displayDate;
+        }
+        return displayDate;
+    }
+
+    /** Returns when the news was published, in milliseconds since the epoch. */
+    public long getPublishedAt(){
+        return mPublishedAt;
     }
 
     /** Returns the website URL to find more information about the news. */
     public String getNewsUrl(){
         return mNewsUrl;
     }
+
+    /** Returns the URL of the thumbnail image, or null if the news/article has none. */
+    public String getThumbnailUrl(){
+        return mThumbnailUrl;
+    }
+
+    /**
+     * Returns a 64 bit hash of the website URL, never 0, which identifies the news/article in
+     * tables of primitive keys. Computed only once, so rows can look it up while they are bound.
+     */
+    public long getUrlKey(){
+        long key = mUrlKey;
+        if (key == 0) {
+            key = urlKey(mNewsUrl);
+            mUrlKey = key;
+        }
+        return key;
+    }
+
+    /** Returns the key {@link #getUrlKey()} returns for an article with the given URL. */
+    static long urlKey(String url){
+        // FNV-1a over the characters of the URL
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    /** Returns true if the other article has the same title, section, author, date, URL and thumbnail. */
+    public boolean sameContentAs(Article other){
+        return other != null
+                && mPublishedAt == other.mPublishedAt
+                && mNewsTitle.equals(other.mNewsTitle)
+                && mNewsSection.equals(other.mNewsSection)
+                && Arrays.equals(mContributors, other.mContributors)
+                && mNewsUrl.equals(other.mNewsUrl)
+                && (mThumbnailUrl == null ? other.mThumbnailUrl == null : mThumbnailUrl.equals(other.mThumbnailUrl));
+    }
+
+    private static String join(String[] names) {
+        StringBuilder joined = new StringBuilder();
+        for (String name : names) {
+            if (joined.length() > 0) {
+                joined.append(", ");
+            }
+            joined.append(name);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Returns the String from the pool which is equal to the given name, adding the name
+     * to the pool if it isn't there yet.
+     */
+    private static String pooled(String name) {
+        if (name == null) {
+            return null;
+        }
+        synchronized (sNamePool) {
+            String pooled = sNamePool.get(name);
+            if (pooled != null) {
+                return pooled;
+            }
+            // Names of old articles are dropped all at once, the pool fills up again quickly
+            if (sNamePool.size() >= MAX_POOLED_NAMES) {
+                sNamePool.clear();
+            }
+            sNamePool.put(name, name);
+            return name;
+        }
+    }
 }
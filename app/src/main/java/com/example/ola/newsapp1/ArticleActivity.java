@@ -14,50 +14,59 @@
  * limitations under the License.
  */
 package com.example.ola.newsapp1;
-import android.app.LoaderManager;
-import android.app.LoaderManager.LoaderCallbacks;
 import android.content.Context;
-import android.content.Loader;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.AsyncTask;
+import android.os.Build;
 import android.os.Bundle;
-import android.preference.PreferenceManager;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.SearchView;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ListView;
 import android.widget.TextView;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.net.ConnectException;
 import java.net.NetworkInterface;
 
-// ArticleActivity implements the LoaderCallbacks interface, along with a generic parameter specifying what the loader will return (in this case article)
-public class ArticleActivity extends AppCompatActivity implements LoaderCallbacks<List<Article>> {
+// ArticleActivity implements the Listener interface of the engine which loads the pages of articles
+public class ArticleActivity extends AppCompatActivity implements ArticleLoadEngine.Listener {
 
     /** Adapter for the list of news/articles */
     private ArticleAdapter mAdapter;
 
+    /** Text of the articles stored for reading offline */
+    private ArticleBodyStore mBodyStore;
+
+    /** Loads the pages, kept over configuration changes so loads are not restarted */
+    private ArticleLoadEngine mEngine;
+
     /**
-     * Constant value for the news loader ID. We can choose any integer.
-     * This really only comes into play if we're using multiple loaders. We need to specify an ID for our loader
+     * The next page is requested when the user scrolls this close to the end of the list,
+     * and the thumbnails of this many rows below the screen are loaded ahead
      */
-    private static final int ARTICLE_LOADER_ID = 1;
+    private static final int PREFETCH_DISTANCE = 5;
 
-    public static final String LOG_TAG = ArticleActivity.class.getName();
+    /** Maximum number of articles shown for a search */
+    private static final int MAX_SEARCH_RESULTS = 200;
 
-    private static final String GUARDIAN_REQUEST_URL =
-           //"http://content.guardianapis.com/search?order-by=newest&show-tags=contributor&page-size=20&q=politics&api-key=6f2b2fc3-131e-4731-8fbb-dd514a95c728";
-            "https://content.guardianapis.com/search?";
+    public static final String LOG_TAG = ArticleActivity.class.getName();
 
     /** TextView that is displayed when the list is empty */
     private TextView mEmptyStateTextView;
@@ -65,13 +74,71 @@ public class ArticleActivity extends AppCompatActivity implements LoaderCallback
     /** Message for the user */
     private String mMessageForTheUser;
 
+    /** The list of news/articles */
+    private ListView mNewsListView;
+
+    /** The query built from the settings, it decides which URLs are loaded for each page */
+    private ArticleQuery mQuery;
+
+    /** True when there are no more results after the last page shown */
+    private boolean mNoMorePages;
+
+    /**
+     * Pages next to the ones shown which failed or came back empty. They are not asked for
+     * again until the user scrolls away from that end of the list and back.
+     */
+    private final Set<Integer> mUnavailablePages = new HashSet<>();
+
+    /** Contributor whose articles are shown instead of the pages, or null */
+    private String mContributor;
+
+    /** Rows shown from the startup snapshot until the settings are known, or null */
+    private StartupSnapshot.Rows mSnapshotRows;
+
+    /** When this class was loaded, the closest known time to the start of the process before API 24 */
+    private static final long sClassLoadedAt = SystemClock.elapsedRealtime();
+
+    /** True once the list screen has been created in this process, so the next start is warm */
+    private static boolean sStartedBefore;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // Timings are only recorded in debug builds
+        Metrics.setEnabled(BuildConfig.DEBUG);
+        final long createdNanos = System.nanoTime();
+
         super.onCreate(savedInstanceState);
         setContentView(R.layout.news_list_item);
 
         // Find a reference to the {@link ListView} in the layout
         ListView newsListView = (ListView) findViewById(R.id.list);
+        mNewsListView = newsListView;
+
+        // A start in a new process is cold, the others are warm. Recreating the screen after
+        // a rotation is not a start at all.
+        final String startMetric = !sStartedBefore ? Metrics.STARTUP_COLD
+                : (savedInstanceState == null ? Metrics.STARTUP_WARM : null);
+        sStartedBefore = true;
+
+        if (Metrics.isEnabled()) {
+            // Record how long it takes until the first frame, and the first row of articles, is drawn
+            newsListView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+                private boolean mFirstFrame = true;
+
+                @Override
+                public boolean onPreDraw() {
+                    if (mFirstFrame) {
+                        mFirstFrame = false;
+                        recordStart(startMetric, createdNanos);
+                    }
+                    if (mNewsListView.getChildCount() > 0) {
+                        Metrics.recordSince(Metrics.STARTUP_FIRST_ROW, createdNanos);
+                        mNewsListView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    }
+                    return true;
+                }
+            });
+        }
 
         // No articles have been found. Display this information on the screen
         mEmptyStateTextView = findViewById(R.id.empty_view);
@@ -79,6 +146,7 @@ public class ArticleActivity extends AppCompatActivity implements LoaderCallback
 
         // Create a new adapter that takes an empty list of news as input
         mAdapter = new ArticleAdapter(this, new ArrayList<Article>());
+        mBodyStore = ArticleBodyStore.getInstance(this);
 
         // Set the adapter on the {@link ListView}
         // so the list can be populated in the user interface
@@ -92,8 +160,23 @@ public class ArticleActivity extends AppCompatActivity implements LoaderCallback
                 // Find the current article that was clicked on
                 Article currentArticle = mAdapter.getItem(position);
 
-                // Convert the String URL into a URI object (to pass into the Intent constructor)
+                // What the user opens decides the order of the "For you" list
                 assert currentArticle != null;
+                ArticleRanker.getInstance(ArticleActivity.this).recordClick(currentArticle,
+                        System.currentTimeMillis());
+
+                // The row shows the article as read from now on, the state is written later
+                ArticleStateStore.getInstance(ArticleActivity.this).markOpened(currentArticle,
+                        System.currentTimeMillis());
+                mAdapter.notifyDataSetChanged();
+
+                // Articles whose text is stored open straight away in the app, also offline
+                if (mBodyStore.contains(currentArticle.getNewsUrl())) {
+                    startActivity(ReaderActivity.newIntent(ArticleActivity.this, currentArticle));
+                    return;
+                }
+
+                // Convert the String URL into a URI object (to pass into the Intent constructor)
                 Uri newsUri = Uri.parse(currentArticle.getNewsUrl());
 
                 // Create a new intent to view the news URI
@@ -120,107 +203,362 @@ public class ArticleActivity extends AppCompatActivity implements LoaderCallback
 
             });
 
-        // Get a reference to the ConnectivityManager to check state of network connectivity
-        ConnectivityManager connMgr = (ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE);
-
-        // Get details on the currently active default data network
-        assert connMgr != null;
-        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        // A long press on a row shows the other stored articles of its first author
+        newsListView.setOnItemLongClickListener(new AdapterView.OnItemLongClickListener() {
+            @Override
+            public boolean onItemLongClick(AdapterView<?> adapterView, View view, int position, long id) {
+                Article article = mAdapter.getItem(position);
+                if (article == null || article.getContributors().isEmpty()) {
+                    return false;
+                }
+                showContributor(article.getContributors().get(0));
+                return true;
+            }
+        });
 
-        // If there is a network connection, fetch data
-        if(networkInfo != null && networkInfo.isConnected()){
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
+        // Load the next page when the user gets close to the end of the list, and the previous
+        // one when the user scrolls back up to pages which have been dropped
+        newsListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
 
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
-            // because this activity implements the LoaderCallbacks interface).
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                // Start on the thumbnails of the rows just below the screen, so they are
+                // there when the rows scroll into view
+                mAdapter.prefetchThumbnails(firstVisibleItem + visibleItemCount, PREFETCH_DISTANCE);
+
+                // Search results are not paged
+                if (totalItemCount == 0 || mAdapter.isSearching()) {
+                    return;
+                }
+                // Nothing more can be loaded until the settings have been read
+                if (mQuery == null) {
+                    return;
+                }
+                int lastPage = mAdapter.getLastPage();
+                int firstPage = mAdapter.getFirstPage();
+                boolean nearEnd = firstVisibleItem + visibleItemCount >= totalItemCount - PREFETCH_DISTANCE;
+                boolean nearTop = firstVisibleItem <= PREFETCH_DISTANCE;
+                // A page which wasn't there is tried again once the user has scrolled away
+                // from it, not on every scroll event next to it
+                if (!nearEnd) {
+                    mUnavailablePages.remove(lastPage + 1);
+                }
+                if (!nearTop) {
+                    mUnavailablePages.remove(firstPage - 1);
+                }
+                if (nearEnd && !mNoMorePages && lastPage < mQuery.getMaxPage()
+                        && !mUnavailablePages.contains(lastPage + 1)) {
+                    loadPage(lastPage + 1);
+                } else if (nearTop && firstPage > 1 && !mUnavailablePages.contains(firstPage - 1)) {
+                    loadPage(firstPage - 1);
+                }
+            }
+        });
+
+        // After a rotation the engine of the previous activity is still there, with the pages
+        // it has loaded and the loads which are still running
+        mEngine = (ArticleLoadEngine) getLastCustomNonConfigurationInstance();
+        if (mEngine == null) {
+            // Show the rows of the last start in the first frame, the first page replaces
+            // them once it has loaded
+            long snapshotStart = System.nanoTime();
+            mSnapshotRows = StartupSnapshot.getInstance(this).read();
+            Metrics.recordSince(Metrics.STARTUP_SNAPSHOT, snapshotStart);
+            if (mSnapshotRows != null) {
+                findViewById(R.id.progress_bar).setVisibility(View.GONE);
+                mAdapter.putPage(1, mSnapshotRows.getArticles());
+            }
+            mEngine = ArticleLoadEngine.create(this);
+        }
 
-            loaderManager.initLoader(ARTICLE_LOADER_ID, null, this);
+        // The number of articles the user wants to see is loaded page by page. Reading the
+        // settings the first time is a disk read, so it is done on a worker thread.
+        ArticleQuery query = ArticleQuery.getCurrent();
+        if (query != null) {
+            onQueryLoaded(query);
         } else {
-            // Otherwise, display error
-            // First, hide loading indicator so error message will be visible
-            View progressBar = findViewById(R.id.progress_bar);
-            progressBar.setVisibility(View.GONE);
-            // Update an empty state with no internet connection error message
-            mMessageForTheUser = (String) getText(R.string.no_internet);
-            mEmptyStateTextView.setText(mMessageForTheUser);
+            new LoadQueryTask(this).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
         }
 
+        // Keep the stored articles up to date in the background, so the next launch can
+        // show them without waiting for the network. Scheduling asks the system for its
+        // jobs, which can wait until the first frame is drawn and the main thread is idle.
+        final Context appContext = getApplicationContext();
+        Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+            @Override
+            public boolean queueIdle() {
+                ArticleSyncService.schedule(appContext);
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Starts loading the pages once the settings are known.
+     */
+    private void onQueryLoaded(ArticleQuery query) {
+        mQuery = query;
+
+        // The snapshot may be of other settings, which shouldn't be shown any longer
+        if (mSnapshotRows != null && !mSnapshotRows.isFor(query.getUrls(1))) {
+            mAdapter.clearPages();
+            findViewById(R.id.progress_bar).setVisibility(View.VISIBLE);
+        }
+        mSnapshotRows = null;
+
+        mEngine.attach(this);
+
+        // The first page is loaded even without a network connection, because the
+        // articles stored on the device are shown first.
+        // After a rotation the engine may only have pages further down, which the user was
+        // looking at.
+        if (!mEngine.hasLoads()) {
+            loadPage(1);
+        }
+    }
+
+    /**
+     * Records how long the start took until the first frame, from the start of the process
+     * for a cold start and from the creation of the screen for a warm one.
+     *
+     * @param startMetric the histogram of the kind of start, or null if it was no start
+     */
+    private static void recordStart(String startMetric, long createdNanos) {
+        if (Metrics.STARTUP_COLD.equals(startMetric)) {
+            long processStart = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                    ? Process.getStartElapsedRealtime() : sClassLoadedAt;
+            Metrics.record(startMetric, (SystemClock.elapsedRealtime() - processStart) * 1000);
+        } else if (startMetric != null) {
+            Metrics.recordSince(startMetric, createdNanos);
+        }
+    }
+
+    /**
+     * Reads the settings in the background. It only keeps a weak reference to the activity,
+     * so a closed screen is not kept in memory until it finishes.
+     */
+    private static class LoadQueryTask extends AsyncTask<Void, Void, ArticleQuery> {
+        private final WeakReference<ArticleActivity> mActivity;
+        private final Context mContext;
+
+        LoadQueryTask(ArticleActivity activity) {
+            mActivity = new WeakReference<>(activity);
+            mContext = activity.getApplicationContext();
+        }
+
+        @Override
+        protected ArticleQuery doInBackground(Void... params) {
+            return ArticleQuery.loadCurrent(mContext);
+        }
+
+        @Override
+        protected void onPostExecute(ArticleQuery query) {
+            ArticleActivity activity = mActivity.get();
+            // After a rotation the new activity reads the settings itself
+            if (activity != null && !activity.isFinishing() && !activity.isDestroyed()) {
+                activity.onQueryLoaded(query);
+            }
+        }
     }
 
-    // We need to override the three methods specified in the LoaderCallbacks interface.
-    // We need onCreateLoader(), for when the LoaderManager has determined that the loader with our specified ID isn't running, so we should create a new one
     @Override
-    public Loader<List<Article>> onCreateLoader(int i, Bundle bundle) {
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        // getString retrieves a String value from the preferences. The second parameter is the default value for this preference.
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default));
-
-        String minArticles = sharedPrefs.getString(
-                getString(R.string.settings_number_of_articles_key),
-                getString(R.string.settings_number_of_articles_default));
-
-        // parse breaks apart the URI string that's passed into its parameter
-        Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
-
-        // buildUpon prepares the baseUri that we just parsed so we can add query parameters to it
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-
-        // "http://content.guardianapis.com/search?order-by=newest&show-tags=contributor&page-size=20&q=politics&api-key=6f2b2fc3-131e-4731-8fbb-dd514a95c728";
-
-        // Append query parameter and its value
-        uriBuilder.appendQueryParameter(getString(R.string.order_by), orderBy);
-        uriBuilder.appendQueryParameter(getString(R.string.section), getString(R.string.technology));
-        uriBuilder.appendQueryParameter(getString(R.string.show_tags), getString(R.string.contributor));
-        uriBuilder.appendQueryParameter(getString(R.string.page_size), minArticles);
-        uriBuilder.appendQueryParameter(getString(R.string.q), "");
-        uriBuilder.appendQueryParameter(getString(R.string.api_key), getString(R.string.api_key_value));
-
-        // Create a new loader for the given URL
-        return new ArticleLoader(this, uriBuilder.toString());
+    public Object onRetainCustomNonConfigurationInstance() {
+        return mEngine;
     }
 
-    // We need onLoadFinished()
-    // and use the news/article data to update our UI - by updating the dataset in the adapter
     @Override
-    public void onLoadFinished(Loader<List<Article>> loader, List<Article> articles) {
-        // Hide loading indicator because the data has been loaded
-        View progressBar = findViewById(R.id.progress_bar);
-        progressBar.setVisibility(View.GONE);
+    protected void onStop() {
+        super.onStop();
+        // The app may be stopped in the background, write the state of the articles now
+        ArticleStateStore.getInstance(this).flushSoon();
+    }
 
-        // Clear the adapter of previous news data
-        mAdapter.clear();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Nobody will show the pages once the screen is closed for good, so stop loading them
+        mEngine.detach(!isChangingConfigurations());
+    }
 
-        // If there is a valid list of {@link Article}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update
+    // Called by the engine with every result of a page: the stored articles, then the
+    // sections as they arrive, then the final list. Update the dataset in the adapter.
+    @Override
+    public void onPageLoaded(int page, List<Article> articles, ArticleLoadEngine.Stage stage) {
+        // Sections which arrived before the others are shown straight away, but the page
+        // only counts as loaded when all of them are there
+        boolean partial = stage != ArticleLoadEngine.Stage.COMPLETE;
+
+        if (page > 1) {
+            if (articles == null || articles.isEmpty()) {
+                if (!partial) {
+                    mUnavailablePages.add(page);
+                    // Past the end of the list, stop asking for more pages until the list
+                    // is loaded again. A previous page may just not be stored any more.
+                    if (page > mAdapter.getLastPage()) {
+                        mNoMorePages = true;
+                    }
+                }
+                return;
+            }
+            // Only pages next to the ones shown are added, a page loaded before a rotation
+            // may not fit any more. After a rotation the list may start further down.
+            if (page > mAdapter.getLastPage()) {
+                if (mAdapter.getLastPage() == 0 || page == mAdapter.getLastPage() + 1) {
+                    findViewById(R.id.progress_bar).setVisibility(View.GONE);
+                    mNoMorePages = !partial && articles.size() < mQuery.getPageSize();
+                    showPage(page, articles);
+                }
+            } else if (page >= mAdapter.getFirstPage() - 1) {
+                showPage(page, articles);
+            }
+            return;
+        }
+
+        // If there is a valid list of {@link Article}s, then show them as the first page.
+        // This will trigger the ListView to update
         if(articles != null && !articles.isEmpty()){
-            Log.e(LOG_TAG, "Loader load finished");
-            mAdapter.addAll(articles);
+            // Hide loading indicator because the data has been loaded
+            findViewById(R.id.progress_bar).setVisibility(View.GONE);
+            Log.v(LOG_TAG, "Page load finished");
+            if (!partial && mAdapter.getLastPage() <= 1) {
+                mNoMorePages = articles.size() < mQuery.getPageSize();
+                mUnavailablePages.clear();
+            }
+            showPage(page, articles);
+        } else if (partial) {
+            // More is coming
+            return;
+        } else if (mAdapter.isEmpty() && ArticleLoadEngine.isConnected(this)) {
+            findViewById(R.id.progress_bar).setVisibility(View.GONE);
+            // Set empty state text to display "No news found."
+            mMessageForTheUser = (String) getText(R.string.no_news);
+            mEmptyStateTextView.setText(mMessageForTheUser);
+        } else if (mAdapter.isEmpty()) {
+            findViewById(R.id.progress_bar).setVisibility(View.GONE);
+            // Nothing is stored on the device and there is no connection to download the news
+            mMessageForTheUser = (String) getText(R.string.no_internet);
+            mEmptyStateTextView.setText(mMessageForTheUser);
+        }
+    }
+
+    /**
+     * Starts loading the given page of results, unless it is already loading. Pages load
+     * in parallel, so the next and the previous page don't wait for each other.
+     */
+    private void loadPage(int page) {
+        mEngine.load(page, mQuery.getUrls(page), mQuery.isNewestFirst(), mQuery.isPersonalized());
+    }
+
+    /**
+     * Puts the page of articles into the list, and keeps the list scrolled to the article
+     * which was at the top of the screen before.
+     */
+    private void showPage(int page, List<Article> articles) {
+        int firstVisible = mNewsListView.getFirstVisiblePosition();
+        View firstView = mNewsListView.getChildAt(0);
+        Article anchor = firstView != null && firstVisible < mAdapter.getCount()
+                ? mAdapter.getItem(firstVisible) : null;
+
+        // Pages the list has dropped are not kept by the engine either
+        for (int dropped : mAdapter.putPage(page, articles)) {
+            mEngine.forget(dropped);
+        }
 
-            if (articles.isEmpty()) {
-                // Set empty state text to display "No news found."
-                mMessageForTheUser = (String) getText(R.string.no_news);
-                mEmptyStateTextView.setText(mMessageForTheUser);
+        if (anchor != null) {
+            int position = mAdapter.getPosition(anchor);
+            if (position >= 0 && position != firstVisible) {
+                mNewsListView.setSelectionFromTop(position, firstView.getTop());
             }
         }
     }
 
-    // We need onLoaderReset(), we're being informed that the data from our loader is no longer valid
-    // The correct thing to do is to remove all the news data from our UI by clearing out the adapter’s data set
+    /**
+     * Shows the stored articles which match what the user has typed so far, or all the
+     * pages again if the query is empty. The search doesn't need a network connection.
+     */
+    private void showSearchResults(String query) {
+        if (mContributor != null) {
+            showContributor(null);
+        }
+        if (query == null || query.trim().isEmpty()) {
+            mAdapter.setSearchResults(null);
+            return;
+        }
+        List<Article> results = ArticleFetcher.getInstance(this).getSearchIndex()
+                .search(query, MAX_SEARCH_RESULTS);
+        mAdapter.setSearchResults(results);
+        if (results.isEmpty()) {
+            mMessageForTheUser = (String) getText(R.string.no_search_results);
+            mEmptyStateTextView.setText(mMessageForTheUser);
+        }
+    }
+
+    /**
+     * Shows the stored articles of the contributor, found in the index of the fetcher, or all
+     * the pages again if the contributor is null.
+     */
+    private void showContributor(String contributor) {
+        mContributor = contributor;
+        if (contributor == null) {
+            setTitle(R.string.app_name);
+            mAdapter.setSearchResults(null);
+            return;
+        }
+        setTitle(getString(R.string.more_by, contributor));
+        mAdapter.setSearchResults(ArticleFetcher.getInstance(this).getContributorIndex().get(contributor));
+    }
+
     @Override
-    public void onLoaderReset(Loader<List<Article>> loader) {
-        Log.e(LOG_TAG, "Loader reset");
-        // Loader reset, so we can clear out our existing data
-        mAdapter.clear();
+    public void onBackPressed() {
+        // Back from the articles of a contributor goes to the pages
+        if (mContributor != null) {
+            showContributor(null);
+            return;
+        }
+        super.onBackPressed();
     }
 
     // This method initialize the contents of the Activity's options menu
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        // The metrics screen is only for debugging
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+
+        // Search the stored articles while the user types
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                showSearchResults(query);
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String query) {
+                showSearchResults(query);
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                // Back to the list of pages
+                showSearchResults(null);
+                return true;
+            }
+        });
         return true;
     }
 
@@ -232,6 +570,9 @@ public class ArticleActivity extends AppCompatActivity implements LoaderCallback
             Intent settingsIntent = new Intent(this, SettingsActivity.class);
             startActivity(settingsIntent);
             return true;
+        } else if (id == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
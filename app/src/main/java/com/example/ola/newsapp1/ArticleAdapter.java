@@ -9,9 +9,14 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 import android.util.Log;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Created by Ola on 30.04.2018.
@@ -32,6 +37,24 @@ public class ArticleAdapter extends ArrayAdapter<Article> {
      */
     private static final String LOG_TAG = ArticleAdapter.class.getName();
 
+    /** Maximum number of pages held at once, older pages are dropped when new ones arrive */
+    static final int MAX_PAGES_IN_MEMORY = 10;
+
+    /** Pages of articles currently shown, by page number */
+    private final TreeMap<Integer, List<Article>> mPages = new TreeMap<>();
+
+    /** Articles found by the search shown instead of the pages, or null when not searching */
+    private List<Article> mSearchResults;
+
+    /** Loads the thumbnails shown in the rows */
+    private final ThumbnailLoader mThumbnailLoader;
+
+    /** Whether the articles have been read or bookmarked, shown in the rows */
+    private final ArticleStateStore mStateStore;
+
+    /** Colors of the titles of read and unread articles */
+    private final int mReadColor;
+    private final int mUnreadColor;
 
     public ArticleAdapter(Context context, ArrayList<Article> articles){
         // Here, we initialize the ArrayAdapter's internal storage for the context and the list.
@@ -39,6 +62,141 @@ public class ArticleAdapter extends ArrayAdapter<Article> {
         // Because this is a custom adapter for some TextViews, the adapter is not
         // going to use this second argument, so it can be any value. Here, we used 0.
         super(context,0,articles);
+        mThumbnailLoader = ThumbnailLoader.getInstance(context);
+        mStateStore = ArticleStateStore.getInstance(context);
+        mReadColor = ContextCompat.getColor(context, R.color.textColorRead);
+        mUnreadColor = ContextCompat.getColor(context, R.color.textColor2);
+
+        // Rows bound before the stored state was read show it once it is there
+        mStateStore.whenLoaded(new Runnable() {
+            @Override
+            public void run() {
+                notifyDataSetChanged();
+            }
+        });
+    }
+
+    /**
+     * Starts loading the thumbnails of the given rows, which are not on the screen yet.
+     *
+     * @param from is the position of the first row
+     * @param count is the number of rows
+     */
+    public void prefetchThumbnails(int from, int count) {
+        int end = Math.min(from + count, getCount());
+        for (int i = from; i < end; i++) {
+            mThumbnailLoader.prefetch(getItem(i).getThumbnailUrl());
+        }
+    }
+
+    /** Returns the number of the first page shown, or 0 if there are none */
+    public int getFirstPage() {
+        return mPages.isEmpty() ? 0 : mPages.firstKey();
+    }
+
+    /** Returns the number of the last page shown, or 0 if there are none */
+    public int getLastPage() {
+        return mPages.isEmpty() ? 0 : mPages.lastKey();
+    }
+
+    /**
+     * Shows the given page of articles. A page after the last one is appended to the list
+     * and a page before the first one is put in front of it, a page which is already shown
+     * is replaced. If this makes the adapter hold more than {@link #MAX_PAGES_IN_MEMORY}
+     * pages, the pages furthest from the new one are dropped.
+     *
+     * @return the numbers of the pages which were dropped
+     */
+    public List<Integer> putPage(int page, List<Article> articles) {
+        mPages.put(page, articles);
+
+        // Drop the pages furthest away from the one which has just arrived
+        List<Integer> dropped = new ArrayList<>(1);
+        while (mPages.size() > MAX_PAGES_IN_MEMORY) {
+            int furthest = page - mPages.firstKey() >= mPages.lastKey() - page
+                    ? mPages.firstKey() : mPages.lastKey();
+            mPages.remove(furthest);
+            dropped.add(furthest);
+        }
+
+        // The pages are shown again when the search is closed
+        if (mSearchResults == null) {
+            showRows(pageRows());
+        }
+        return dropped;
+    }
+
+    /**
+     * Shows the articles found by a search instead of the pages, or the pages again if the
+     * results are null. Pages which arrive in the meantime are kept for later.
+     */
+    public void setSearchResults(List<Article> results) {
+        mSearchResults = results;
+        showRows(results != null ? results : pageRows());
+    }
+
+    /** Returns true while the results of a search are shown */
+    public boolean isSearching() {
+        return mSearchResults != null;
+    }
+
+    /** Returns the articles of all the pages, in order */
+    private List<Article> pageRows() {
+        // New articles push older ones to the next page, so the same article can be on two
+        // pages. Show it only once.
+        List<Article> rows = new ArrayList<>();
+        Set<String> urls = new HashSet<>();
+        for (List<Article> pageArticles : mPages.values()) {
+            for (Article article : pageArticles) {
+                if (urls.add(article.getNewsUrl())) {
+                    rows.add(article);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Updates the rows to show the given articles. Only the articles which were inserted,
+     * removed or changed are touched, and nothing is redrawn if nothing changed.
+     */
+    private void showRows(List<Article> rows) {
+        List<Article> current = new ArrayList<>(getCount());
+        for (int i = 0; i < getCount(); i++) {
+            current.add(getItem(i));
+        }
+
+        // Apply all the steps first and tell the ListView about them once at the end
+        setNotifyOnChange(false);
+        int steps = ArticleDiff.apply(current, rows, new ArticleDiff.Callback() {
+            @Override
+            public void onInserted(int position, Article article) {
+                insert(article, position);
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                remove(getItem(position));
+            }
+
+            @Override
+            public void onChanged(int position, Article article) {
+                remove(getItem(position));
+                insert(article, position);
+            }
+        });
+        if (steps > 0) {
+            notifyDataSetChanged();
+        } else {
+            setNotifyOnChange(true);
+        }
+    }
+
+    /** Removes all pages of articles */
+    public void clearPages() {
+        mPages.clear();
+        mSearchResults = null;
+        clear();
     }
 
 
@@ -47,37 +205,102 @@ public class ArticleAdapter extends ArrayAdapter<Article> {
     public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
         // Check if the existing view is being reused, otherwise inflate the view
         View listItemView = convertView;
+        ViewHolder holder;
         if(listItemView == null){
             listItemView = LayoutInflater.from(getContext()).inflate(
                     R.layout.news_activity,parent,false);
+
+            // Find the TextViews in the news_activity.xml layout only once, when the row is
+            // created, and keep them with the row for the next time it is reused
+            holder = new ViewHolder(listItemView);
+            listItemView.setTag(holder);
+
+            // The star bookmarks the article the row shows at the time it is tapped
+            final ViewHolder rowHolder = holder;
+            holder.mBookmarkView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    boolean bookmarked = (rowHolder.mState & ArticleStateStore.BOOKMARKED) == 0;
+                    mStateStore.setBookmarked(rowHolder.mArticle, bookmarked);
+                    bindState(rowHolder, mStateStore.getState(rowHolder.mArticle));
+                }
+            });
+        } else {
+            holder = (ViewHolder) listItemView.getTag();
         }
 
         // Get the {@link ArticleClass} object located at this position in the list
         Article currentArticleClass = getItem(position);
+        assert currentArticleClass != null;
+
+        // The state is a lookup in a table of primitives, cheap enough for every bind
+        int state = mStateStore.getState(currentArticleClass);
+
+        // The row may already show this article, for example when the ListView redraws all
+        // rows after a few of them changed. Setting the same texts again would only cost time.
+        if (currentArticleClass.sameContentAs(holder.mArticle) && state == holder.mState) {
+            return listItemView;
+        }
+        holder.mArticle = currentArticleClass;
+        bindState(holder, state);
 
-        // Find the TextView with article title in the news_activity.xml layout with the ID
-        TextView articleTitleTextView = listItemView.findViewById(R.id.news_title);
         // Get the title from the current object and set this text on that TextView
-        assert currentArticleClass != null;
-        articleTitleTextView.setText(currentArticleClass.getNewsTitle());
+        holder.mTitleTextView.setText(currentArticleClass.getNewsTitle());
 
-        // Find the TextView with article section in the news_activity.xml layout with the ID
-        TextView articleSectionTextView = listItemView.findViewById(R.id.section);
         // Get the section from the current object and set this text on that TextView
-        articleSectionTextView.setText(currentArticleClass.getNewsSection());
+        holder.mSectionTextView.setText(currentArticleClass.getNewsSection());
 
-        // Find the TextView with author of the article in the news_activity.xml layout with the ID
-        TextView authorArticleTextView = listItemView.findViewById(R.id.author);
         // Get the author of the article from the current object and set this text on that TextView
-        authorArticleTextView.setText(currentArticleClass.getAuthorsName());
+        holder.mAuthorTextView.setText(currentArticleClass.getAuthorsName());
 
-        // Find the TextView with date of article in the news_activity.xml layout with the ID
-        TextView dateArticleTextView = listItemView.findViewById(R.id.date);
         // Get the date of the article from the current object and set this text on that TextView
-        dateArticleTextView.setText(currentArticleClass.getNewsDate());
+        holder.mDateTextView.setText(currentArticleClass.getNewsDate());
+
+        // The thumbnail is loaded in the background, a request for the article the row showed
+        // before is cancelled
+        mThumbnailLoader.load(holder.mThumbnailView, currentArticleClass.getThumbnailUrl());
 
         // Return the whole list item layout
         // so that it can be shown in the ListView
         return listItemView;
     }
+
+    /** Shows whether the article of the row has been read and whether it is bookmarked */
+    private void bindState(ViewHolder holder, int state) {
+        holder.mState = state;
+        holder.mTitleTextView.setTextColor((state & ArticleStateStore.READ) != 0 ? mReadColor : mUnreadColor);
+        holder.mBookmarkView.setImageResource((state & ArticleStateStore.BOOKMARKED) != 0
+                ? android.R.drawable.btn_star_big_on : android.R.drawable.btn_star_big_off);
+    }
+
+    /**
+     * Keeps the views of one row, so they don't have to be looked up every time the row is reused.
+     */
+    private static class ViewHolder {
+        // TextView with article title
+        final TextView mTitleTextView;
+        // TextView with article section
+        final TextView mSectionTextView;
+        // TextView with author of the article
+        final TextView mAuthorTextView;
+        // TextView with date of article
+        final TextView mDateTextView;
+        // ImageView with thumbnail of the article
+        final ImageView mThumbnailView;
+        // ImageView with the bookmark star of the article
+        final ImageView mBookmarkView;
+
+        // The article the row shows at the moment, and its state
+        Article mArticle;
+        int mState;
+
+        ViewHolder(View listItemView) {
+            mTitleTextView = listItemView.findViewById(R.id.news_title);
+            mSectionTextView = listItemView.findViewById(R.id.section);
+            mAuthorTextView = listItemView.findViewById(R.id.author);
+            mDateTextView = listItemView.findViewById(R.id.date);
+            mThumbnailView = listItemView.findViewById(R.id.thumbnail);
+            mBookmarkView = listItemView.findViewById(R.id.bookmark);
+        }
+    }
 }
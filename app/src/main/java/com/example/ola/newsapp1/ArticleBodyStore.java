@@ -0,0 +1,482 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The text of the articles downloaded for reading offline.
+ *
+ * All the texts are compressed and appended to one file. A text stored again for the same
+ * article replaces the old one, which stays in the file as garbage until the file is
+ * compacted. The file never grows over its size limit: before a text would not fit, the file
+ * is rewritten with only the newest texts, dropping the oldest ones and the garbage.
+ *
+ * Texts are read through a memory-mapped view of the file, so opening an article doesn't
+ * read the file with system calls or copy it through a stream buffer.
+ */
+final class ArticleBodyStore {
+
+    private static final String LOG_TAG = ArticleBodyStore.class.getName();
+
+    /** Name of the file (inside the app's files directory) with the texts */
+    private static final String FILE_NAME = "article_bodies";
+
+    /** Upper limit of the size of the file */
+    static final long DEFAULT_MAX_SIZE_BYTES = 16 * 1024 * 1024L;
+
+    /** First bytes of the file, "NBDY" */
+    private static final int MAGIC = 0x4e424459;
+
+    /** Version of the file layout, a file with another version is dropped */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 8;
+
+    /** Bytes of each record besides the URL and the text: URL length, text length, compressed length */
+    private static final int RECORD_HEADER_SIZE = 12;
+
+    /** When the file is compacted it is left with this share of the limit free for new texts */
+    private static final int COMPACT_FREE_PERCENT = 25;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static ArticleBodyStore sInstance;
+
+    private final File mFile;
+    private final long mMaxSizeBytes;
+
+    // URL -> where its text is in the file, from the oldest to the newest text. Loaded on first use.
+    private LinkedHashMap<String, Record> mIndex;
+    private long mFileSize;
+
+    // View of the whole file, mapped on the first read after the file changed
+    private MappedByteBuffer mMapped;
+
+    // Copy of the URLs of mIndex, replaced whenever the index changes, so contains() doesn't
+    // wait for a write or a compaction holding the lock. Null until the index is loaded.
+    private volatile Set<String> mUrls;
+
+    ArticleBodyStore(File file, long maxSizeBytes) {
+        mFile = file;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /** Returns the store shared by the whole app */
+    static synchronized ArticleBodyStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleBodyStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    DEFAULT_MAX_SIZE_BYTES);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Reads the list of stored texts, if it hasn't been read yet. Everything else does this
+     * when it is needed, calling it on a background thread first keeps the main thread
+     * from waiting for it.
+     */
+    synchronized void load() {
+        if (mIndex != null) {
+            return;
+        }
+        mIndex = new LinkedHashMap<>();
+        mFileSize = 0;
+        if (mFile.length() < HEADER_SIZE) {
+            // Nothing stored yet, or the first write did not finish
+            mFile.delete();
+            publishUrls();
+            return;
+        }
+
+        long position = HEADER_SIZE;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    throw new IOException("Unknown article text file");
+                }
+                while (true) {
+                    int urlLength;
+                    try {
+                        urlLength = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    byte[] url = new byte[urlLength];
+                    in.readFully(url);
+                    int bodyLength = in.readInt();
+                    int compressedLength = in.readInt();
+                    skipFully(in, compressedLength);
+
+                    Record record = new Record(position, RECORD_HEADER_SIZE + urlLength + compressedLength,
+                            bodyLength, compressedLength);
+                    String key = new String(url, UTF_8);
+                    // A newer text of the same article replaces the older one
+                    mIndex.remove(key);
+                    mIndex.put(key, record);
+                    position += record.mSize;
+                }
+            } finally {
+                in.close();
+            }
+        } catch (EOFException e) {
+            // The app was stopped while a text was being written, drop the incomplete one
+            Log.w(LOG_TAG, "Dropping an incomplete article text");
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem reading the article texts, dropping them", e);
+            mIndex.clear();
+            mFile.delete();
+            publishUrls();
+            return;
+        }
+
+        if (position < mFile.length()) {
+            truncate(position);
+        }
+        mFileSize = position;
+        publishUrls();
+    }
+
+    /**
+     * Returns true if the text of the article at the URL is stored. Once the texts are
+     * loaded this doesn't wait for texts being stored, so it can be called on the main thread.
+     */
+    boolean contains(String url) {
+        Set<String> urls = mUrls;
+        if (urls == null) {
+            synchronized (this) {
+                load();
+                urls = mUrls;
+            }
+        }
+        return urls.contains(url);
+    }
+
+    /** Returns the number of stored texts */
+    synchronized int size() {
+        load();
+        return mIndex.size();
+    }
+
+    /** Returns the size of the file, in bytes */
+    synchronized long sizeInBytes() {
+        load();
+        return mFileSize;
+    }
+
+    /** Returns the text of the article at the URL, or null if it isn't stored */
+    synchronized String get(String url) {
+        load();
+        Record record = mIndex.get(url);
+        if (record == null) {
+            return null;
+        }
+        try {
+            if (mMapped == null) {
+                FileChannel channel = new RandomAccessFile(mFile, "r").getChannel();
+                try {
+                    mMapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, mFileSize);
+                } finally {
+                    // The mapping stays valid after the channel is closed
+                    channel.close();
+                }
+            }
+            ByteBuffer view = mMapped.duplicate();
+            view.position((int) (record.mOffset + record.mSize - record.mCompressedLength));
+            byte[] compressed = new byte[record.mCompressedLength];
+            view.get(compressed);
+            return new String(inflate(compressed, record.mBodyLength), UTF_8);
+        } catch (IOException | DataFormatException e) {
+            Log.w(LOG_TAG, "Problem reading an article text", e);
+            return null;
+        }
+    }
+
+    /** Stores the text of the article at the URL */
+    void put(String url, String body) {
+        putAll(Collections.singletonMap(url, body));
+    }
+
+    /**
+     * Stores the texts of the articles, by URL, with one write to the file. They are
+     * compressed before the lock is taken, so readers only wait for the write.
+     */
+    void putAll(Map<String, String> bodies) {
+        List<Encoded> records = new ArrayList<>(bodies.size());
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            for (Map.Entry<String, String> body : bodies.entrySet()) {
+                Encoded record = encode(body.getKey(), body.getValue(), deflater);
+                if (record.mBytes.length > mMaxSizeBytes / 4) {
+                    // A text this big would push out too many others
+                    continue;
+                }
+                records.add(record);
+            }
+        } finally {
+            deflater.end();
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        write(records);
+    }
+
+    /** Appends the encoded texts to the file, making room for them first if needed */
+    private synchronized void write(List<Encoded> records) {
+        load();
+        long newBytes = 0;
+        for (Encoded record : records) {
+            newBytes += record.mBytes.length;
+        }
+        if (mFileSize + newBytes > mMaxSizeBytes) {
+            // Make room for the new texts and a few more after them
+            long free = mMaxSizeBytes * COMPACT_FREE_PERCENT / 100;
+            compact(Math.max(0, mMaxSizeBytes - Math.max(newBytes, free) - HEADER_SIZE));
+        }
+
+        try {
+            RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+            try {
+                if (mFileSize == 0) {
+                    file.setLength(0);
+                    file.writeInt(MAGIC);
+                    file.writeInt(FORMAT_VERSION);
+                    mFileSize = HEADER_SIZE;
+                }
+                file.seek(mFileSize);
+                for (Encoded record : records) {
+                    if (mFileSize + record.mBytes.length > mMaxSizeBytes) {
+                        break;
+                    }
+                    file.write(record.mBytes);
+                    mIndex.remove(record.mUrl);
+                    mIndex.put(record.mUrl, new Record(mFileSize, record.mBytes.length, record.mBodyLength,
+                            record.mCompressedLength));
+                    mFileSize += record.mBytes.length;
+                }
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem storing article texts", e);
+            // Whatever was written last may be incomplete, read the file again next time
+            mIndex = null;
+            mUrls = null;
+            mMapped = null;
+            return;
+        }
+        mMapped = null;
+        publishUrls();
+    }
+
+    /**
+     * Rewrites the file with only the newest texts which fit in the given number of bytes,
+     * leaving out the older ones and the replaced texts.
+     */
+    private void compact(long keepBytes) {
+        // Newest texts first, until the limit
+        List<Map.Entry<String, Record>> kept = new ArrayList<>();
+        List<Map.Entry<String, Record>> all = new ArrayList<>(mIndex.entrySet());
+        long size = 0;
+        for (int i = all.size() - 1; i >= 0; i--) {
+            Record record = all.get(i).getValue();
+            if (size + record.mSize > keepBytes) {
+                break;
+            }
+            size += record.mSize;
+            kept.add(all.get(i));
+        }
+        Collections.reverse(kept);
+
+        File temp = new File(mFile.getPath() + ".tmp");
+        LinkedHashMap<String, Record> index = new LinkedHashMap<>();
+        long position = HEADER_SIZE;
+        try {
+            RandomAccessFile source = new RandomAccessFile(mFile, "r");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                byte[] buffer = new byte[0];
+                for (Map.Entry<String, Record> entry : kept) {
+                    Record record = entry.getValue();
+                    if (buffer.length < record.mSize) {
+                        buffer = new byte[record.mSize];
+                    }
+                    source.seek(record.mOffset);
+                    source.readFully(buffer, 0, record.mSize);
+                    out.write(buffer, 0, record.mSize);
+                    index.put(entry.getKey(), new Record(position, record.mSize, record.mBodyLength,
+                            record.mCompressedLength));
+                    position += record.mSize;
+                }
+            } finally {
+                out.close();
+                source.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem compacting the article texts, dropping them", e);
+            temp.delete();
+            mFile.delete();
+            mIndex.clear();
+            mFileSize = 0;
+            mMapped = null;
+            publishUrls();
+            return;
+        }
+
+        if (!temp.renameTo(mFile)) {
+            temp.delete();
+            mFile.delete();
+            index.clear();
+            position = 0;
+        }
+        mIndex = index;
+        mFileSize = position;
+        mMapped = null;
+        publishUrls();
+    }
+
+    /** Replaces the copy of the URLs read by contains() with the URLs of the index */
+    private void publishUrls() {
+        mUrls = Collections.unmodifiableSet(new HashSet<>(mIndex.keySet()));
+    }
+
+    /** Cuts off the end of the file after the given length */
+    private void truncate(long length) {
+        try {
+            RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+            try {
+                file.setLength(length);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem truncating the article texts", e);
+        }
+    }
+
+    /** Returns the record of one text as it is written to the file */
+    private static Encoded encode(String url, String body, Deflater deflater) {
+        byte[] urlBytes = url.getBytes(UTF_8);
+        byte[] bodyBytes = body.getBytes(UTF_8);
+
+        deflater.reset();
+        deflater.setInput(bodyBytes);
+        deflater.finish();
+        // Text usually shrinks to a third, the buffer grows if it doesn't
+        byte[] compressed = new byte[Math.max(64, bodyBytes.length / 2)];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                byte[] bigger = new byte[compressed.length * 2];
+                System.arraycopy(compressed, 0, bigger, 0, compressedLength);
+                compressed = bigger;
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        // URL length, URL, text length, compressed length, compressed text
+        byte[] record = new byte[RECORD_HEADER_SIZE + urlBytes.length + compressedLength];
+        writeInt(record, 0, urlBytes.length);
+        System.arraycopy(urlBytes, 0, record, 4, urlBytes.length);
+        writeInt(record, 4 + urlBytes.length, bodyBytes.length);
+        writeInt(record, 8 + urlBytes.length, compressedLength);
+        System.arraycopy(compressed, 0, record, RECORD_HEADER_SIZE + urlBytes.length, compressedLength);
+        return new Encoded(url, record, bodyBytes.length, compressedLength);
+    }
+
+    private static byte[] inflate(byte[] compressed, int length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] body = new byte[length];
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(body, inflated, length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Article text is shorter than expected");
+                }
+                inflated += count;
+            }
+            return body;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static void skipFully(DataInputStream in, int count) throws IOException {
+        while (count > 0) {
+            int skipped = in.skipBytes(count);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            count -= skipped;
+        }
+    }
+
+    /** One text ready to be appended to the file */
+    private static class Encoded {
+        final String mUrl;
+        final byte[] mBytes;
+        final int mBodyLength;
+        final int mCompressedLength;
+
+        Encoded(String url, byte[] bytes, int bodyLength, int compressedLength) {
+            mUrl = url;
+            mBytes = bytes;
+            mBodyLength = bodyLength;
+            mCompressedLength = compressedLength;
+        }
+    }
+
+    /** Where one text is in the file */
+    private static class Record {
+        // Start of the record and its size, with the URL and lengths before the text
+        final long mOffset;
+        final int mSize;
+        // Length of the text in UTF-8, and of the compressed text at the end of the record
+        final int mBodyLength;
+        final int mCompressedLength;
+
+        Record(long offset, int size, int bodyLength, int compressedLength) {
+            mOffset = offset;
+            mSize = size;
+            mBodyLength = bodyLength;
+            mCompressedLength = compressedLength;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent store of the last list of {@link Article}s downloaded for each request URL.
+ *
+ * Every URL is kept in its own file. Entries younger than {@link #TTL_MILLIS} are fresh and
+ * can be shown without asking the server again, older ones are still shown but should be
+ * refreshed. The store never grows above its size limit: the least recently used
+ * entries are removed first.
+ */
+public class ArticleCache {
+
+    private static final String LOG_TAG = ArticleCache.class.getName();
+
+    /** Name of the directory (inside the app's files directory) with the stored entries */
+    private static final String CACHE_DIR = "articles";
+
+    /** Version of the file format, entries in any other version are ignored */
+    private static final int FORMAT_VERSION = 7;
+
+    /** Number of entries kept parsed in memory, so they are not read from disk again */
+    private static final int MEMORY_ENTRIES = 4;
+
+    /** How long the stored articles are treated as up to date */
+    static final long TTL_MILLIS = 15 * 60 * 1000L;
+
+    /** Entries which were not refreshed for this long are removed */
+    static final long MAX_AGE_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+
+    /** Upper limit of the size of all stored entries */
+    static final long MAX_SIZE_BYTES = 2 * 1024 * 1024L;
+
+    /**
+     * How out of date the last modified time of a file may be before a read updates it. The
+     * order in memory is always exact, the time only orders the files after a restart.
+     */
+    static final long TOUCH_STEP_MILLIS = 60 * 1000L;
+
+    private static ArticleCache sInstance;
+
+    private final File mDirectory;
+    private final long mMaxSizeBytes;
+
+    // File name -> file size, in least recently used order. Loaded on first use.
+    private LinkedHashMap<String, Long> mIndex;
+    private long mTotalSize;
+
+    // File name -> the last modified time of the file, as last read or set
+    private final Map<String, Long> mTouchedAt = new HashMap<>();
+
+    // URL -> the most recently used entries, already parsed
+    private final LinkedHashMap<String, Entry> mMemory = new LinkedHashMap<String, Entry>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+
+    /**
+     * Articles stored for one request URL, together with the time they were downloaded and
+     * the validators the server sent with them.
+     */
+    public static class Entry {
+        private final List<Article> mArticles;
+        private final long mSavedAt;
+        private final String mETag;
+        private final String mLastModified;
+        // True once the articles are in the indexes, shared by the entries with the same articles
+        private final AtomicBoolean mIndexed;
+
+        Entry(List<Article> articles, long savedAt, String eTag, String lastModified) {
+            this(articles, savedAt, eTag, lastModified, new AtomicBoolean());
+        }
+
+        private Entry(List<Article> articles, long savedAt, String eTag, String lastModified,
+                      AtomicBoolean indexed) {
+            mArticles = articles;
+            mSavedAt = savedAt;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mIndexed = indexed;
+        }
+
+        /** Returns the stored articles */
+        public List<Article> getArticles() {
+            return mArticles;
+        }
+
+        /** Returns the time (in milliseconds) when the articles were downloaded */
+        public long getSavedAt() {
+            return mSavedAt;
+        }
+
+        /** Returns the ETag header of the response, or null if there was none */
+        public String getETag() {
+            return mETag;
+        }
+
+        /** Returns the Last-Modified header of the response, or null if there was none */
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        /** Returns true if the articles are recent enough to be shown without a refresh */
+        public boolean isFresh() {
+            return System.currentTimeMillis() - mSavedAt < TTL_MILLIS;
+        }
+
+        /**
+         * Returns an entry with the same articles, for when the server said they have not changed.
+         * Validators missing from the "Not Modified" response are kept from this entry.
+         */
+        Entry revalidated(long savedAt, String eTag, String lastModified) {
+            return new Entry(mArticles, savedAt,
+                    eTag != null ? eTag : mETag,
+                    lastModified != null ? lastModified : mLastModified, mIndexed);
+        }
+
+        /**
+         * Returns true the first time it is called for these articles, so they are added to
+         * the indexes once after they were downloaded or read from the disk, not on every read.
+         */
+        boolean markIndexed() {
+            return mIndexed.compareAndSet(false, true);
+        }
+    }
+
+    /** Returns the store shared by the whole app */
+    public static synchronized ArticleCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleCache(
+                    new File(context.getApplicationContext().getFilesDir(), CACHE_DIR), MAX_SIZE_BYTES);
+        }
+        return sInstance;
+    }
+
+    ArticleCache(File directory, long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Returns the articles stored for the given URL, or null if there are none.
+     */
+    public synchronized Entry get(String url) {
+        loadIndex();
+        String fileName = fileNameFor(url);
+        if (!mIndex.containsKey(fileName)) {
+            return null;
+        }
+        File file = new File(mDirectory, fileName);
+
+        Entry entry = mMemory.get(url);
+        if (entry == null) {
+            try {
+                entry = readEntry(file, url);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Problem reading the stored articles", e);
+            }
+        }
+
+        if (entry == null || System.currentTimeMillis() - entry.getSavedAt() > MAX_AGE_MILLIS) {
+            // Unreadable or too old, so don't keep it any more
+            mMemory.remove(url);
+            remove(fileName);
+            return null;
+        }
+
+        // Mark the entry as the most recently used one. Setting the time of the file is a
+        // write to the disk, so it is only done when the time is out of date by a step.
+        mMemory.put(url, entry);
+        mIndex.get(fileName);
+        long now = System.currentTimeMillis();
+        Long touchedAt = mTouchedAt.get(fileName);
+        if (touchedAt == null || Math.abs(now - touchedAt) >= TOUCH_STEP_MILLIS) {
+            file.setLastModified(now);
+            mTouchedAt.put(fileName, now);
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the articles downloaded for the given URL, replacing the ones stored before.
+     */
+    public synchronized void put(String url, Entry entry) {
+        loadIndex();
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(LOG_TAG, "Cannot create " + mDirectory);
+            return;
+        }
+        String fileName = fileNameFor(url);
+        File file = new File(mDirectory, fileName);
+        File temp = new File(mDirectory, fileName + ".tmp");
+
+        try {
+            writeEntry(temp, url, entry);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem storing the articles", e);
+            temp.delete();
+            return;
+        }
+
+        // Replace the old entry only when the new one is complete
+        remove(fileName);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        mMemory.put(url, entry);
+        mIndex.put(fileName, file.length());
+        mTouchedAt.put(fileName, file.lastModified());
+        mTotalSize += file.length();
+        trimToSize();
+    }
+
+    /**
+     * Returns the articles of all the stored entries. Reads every file, so it should only be
+     * used once, e.g. to build the search index.
+     */
+    public synchronized List<List<Article>> getAllArticles() {
+        loadIndex();
+        List<List<Article>> all = new ArrayList<>(mIndex.size());
+        for (String fileName : mIndex.keySet()) {
+            try {
+                Entry entry = readEntry(new File(mDirectory, fileName), null);
+                if (entry != null) {
+                    all.add(entry.getArticles());
+                }
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Problem reading the stored articles", e);
+            }
+        }
+        return all;
+    }
+
+    /** Removes all stored articles */
+    public synchronized void clear() {
+        loadIndex();
+        mMemory.clear();
+        for (String fileName : new ArrayList<>(mIndex.keySet())) {
+            remove(fileName);
+        }
+    }
+
+    /**
+     * Builds the index of stored entries from the files on disk. The last modified time of
+     * each file is the time when it was last used, to within {@link #TOUCH_STEP_MILLIS}.
+     */
+    private void loadIndex() {
+        if (mIndex != null) {
+            return;
+        }
+        mIndex = new LinkedHashMap<>(16, 0.75f, true);
+        mTotalSize = 0;
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            mTouchedAt.put(file.getName(), file.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = mTouchedAt.get(a.getName()) - mTouchedAt.get(b.getName());
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                // Left over from a write which did not finish
+                mTouchedAt.remove(file.getName());
+                file.delete();
+                continue;
+            }
+            mIndex.put(file.getName(), file.length());
+            mTotalSize += file.length();
+        }
+    }
+
+    /** Removes the least recently used entries until the store fits in the size limit. */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mIndex.entrySet().iterator();
+        while (mTotalSize > mMaxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(mDirectory, eldest.getKey()).delete();
+            mTouchedAt.remove(eldest.getKey());
+            mTotalSize -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void remove(String fileName) {
+        Long size = mIndex.remove(fileName);
+        if (size != null) {
+            mTotalSize -= size;
+        }
+        mTouchedAt.remove(fileName);
+        new File(mDirectory, fileName).delete();
+    }
+
+    private static void writeEntry(File file, String url, Entry entry) throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(url);
+            out.writeLong(entry.getSavedAt());
+            // Validators are optional, an empty string means there was none
+            out.writeUTF(entry.getETag() != null ? entry.getETag() : "");
+            out.writeUTF(entry.getLastModified() != null ? entry.getLastModified() : "");
+            // The articles in the compact format, after its length
+            byte[] articles = ArticleCodec.encode(entry.getArticles());
+            out.writeInt(articles.length);
+            out.write(articles);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads an entry from the given file. Returns null if the file was written in another
+     * format version or for another URL. Any URL is accepted if the given one is null.
+     */
+    private static Entry readEntry(File file, String url) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            String storedUrl = in.readUTF();
+            if (url != null && !url.equals(storedUrl)) {
+                return null;
+            }
+            long savedAt = in.readLong();
+            String eTag = in.readUTF();
+            String lastModified = in.readUTF();
+            int length = in.readInt();
+            if (length < 0 || length > file.length()) {
+                throw new IOException("Damaged entry in " + file);
+            }
+            byte[] encoded = new byte[length];
+            in.readFully(encoded);
+            List<Article> articles = ArticleCodec.decode(encoded);
+            return new Entry(articles, savedAt,
+                    eTag.isEmpty() ? null : eTag,
+                    lastModified.isEmpty() ? null : lastModified);
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Returns the name of the file for the given URL, which is the SHA-1 hash of the URL. */
+    static String fileNameFor(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(url.getBytes(Charset.forName("UTF-8")));
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android device has SHA-1, but fall back to the hash code just in case
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+}
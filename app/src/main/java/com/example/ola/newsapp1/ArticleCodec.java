@@ -0,0 +1,380 @@
+package com.example.ola.newsapp1;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format of a list of {@link Article}s, used to store them on the device.
+ *
+ * The format is laid out for small files and quick reading:
+ * <ul>
+ * <li>a version number, so lists written by another version are not misread</li>
+ * <li>a table of all the different section and contributor names, which every article refers
+ * to by position instead of repeating them</li>
+ * <li>the articles, one column after the other (all the titles, then all the sections, ...),
+ * so a column which is not needed is skipped in one step</li>
+ * </ul>
+ * All numbers are varints, so small numbers take one byte. Publication dates are written as
+ * the difference to the date of the article before, which is small because the lists are
+ * sorted by date. Article and thumbnail URLs are written as the length of the prefix they
+ * share with the URL before and the rest, since they all start the same way.
+ */
+final class ArticleCodec {
+
+    /** Version of the format, lists in any other version cannot be read */
+    static final int FORMAT_VERSION = 2;
+
+    /** Columns which can be read, combined with | */
+    static final int FIELD_TITLE = 1;
+    static final int FIELD_SECTION = 1 << 1;
+    static final int FIELD_AUTHOR = 1 << 2;
+    static final int FIELD_DATE = 1 << 3;
+    static final int FIELD_URL = 1 << 4;
+    static final int FIELD_THUMBNAIL = 1 << 5;
+    static final int ALL_FIELDS = FIELD_TITLE | FIELD_SECTION | FIELD_AUTHOR | FIELD_DATE
+            | FIELD_URL | FIELD_THUMBNAIL;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] NO_NAMES = new String[0];
+
+    private ArticleCodec() {
+    }
+
+    /** Returns the articles in the binary format */
+    static byte[] encode(List<Article> articles) {
+        Writer out = new Writer(64 + articles.size() * 96);
+        out.writeVarint(FORMAT_VERSION);
+        int count = articles.size();
+        out.writeVarint(count);
+
+        // Names which repeat are written once, in the order they first appear
+        Map<String, Integer> names = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        int[] sections = new int[count];
+        for (int i = 0; i < count; i++) {
+            sections[i] = nameIndex(names, table, articles.get(i).getNewsSection());
+        }
+        // The number of contributors of every article, followed by their names
+        Writer authors = new Writer(count * 2);
+        for (Article article : articles) {
+            List<String> contributors = article.getContributors();
+            authors.writeVarint(contributors.size());
+            for (String contributor : contributors) {
+                authors.writeVarint(nameIndex(names, table, contributor));
+            }
+        }
+        out.writeVarint(table.size());
+        for (String name : table) {
+            out.writeString(name);
+        }
+
+        // One column after the other, each one starting with its length so it can be skipped
+        Writer column = new Writer(count * 64);
+        for (Article article : articles) {
+            column.writeString(article.getNewsTitle());
+        }
+        out.writeColumn(column);
+        for (int section : sections) {
+            column.writeVarint(section);
+        }
+        out.writeColumn(column);
+        out.writeColumn(authors);
+        long previousDate = 0;
+        for (Article article : articles) {
+            // Wraps around for unknown dates, which the reader undoes the same way
+            column.writeVarint(zigZag(article.getPublishedAt() - previousDate));
+            previousDate = article.getPublishedAt();
+        }
+        out.writeColumn(column);
+        String previousUrl = "";
+        for (Article article : articles) {
+            column.writeSharedPrefix(previousUrl, article.getNewsUrl());
+            previousUrl = article.getNewsUrl();
+        }
+        out.writeColumn(column);
+        String previousThumbnail = "";
+        for (Article article : articles) {
+            String thumbnail = article.getThumbnailUrl();
+            // 0 means no thumbnail, 1 a thumbnail which follows
+            column.writeVarint(thumbnail == null ? 0 : 1);
+            if (thumbnail != null) {
+                column.writeSharedPrefix(previousThumbnail, thumbnail);
+                previousThumbnail = thumbnail;
+            }
+        }
+        out.writeColumn(column);
+        return out.toByteArray();
+    }
+
+    /** Returns the articles read from the binary format */
+    static List<Article> decode(byte[] data) throws IOException {
+        return decode(data, 0, data.length, ALL_FIELDS);
+    }
+
+    /**
+     * Returns the articles read from the binary format, with only the given fields. Titles,
+     * names and URLs which are not read are empty, dates are {@link ArticleDates#UNKNOWN} and
+     * thumbnails null.
+     *
+     * @param fields the fields to read, a combination of the FIELD_ constants
+     * @throws IOException if the data is in another version or not complete
+     */
+    static List<Article> decode(byte[] data, int offset, int length, int fields) throws IOException {
+        Reader in = new Reader(data, offset, offset + length);
+        int version = in.readVarint();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown format version " + version);
+        }
+        int count = in.readCount();
+        String[] table = new String[in.readCount()];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = in.readString();
+        }
+
+        String[] titles = new String[count];
+        String[] sections = new String[count];
+        String[][] authors = new String[count][];
+        long[] dates = new long[count];
+        String[] urls = new String[count];
+        String[] thumbnails = new String[count];
+        Arrays.fill(titles, "");
+        Arrays.fill(sections, "");
+        Arrays.fill(authors, NO_NAMES);
+        Arrays.fill(dates, ArticleDates.UNKNOWN);
+        Arrays.fill(urls, "");
+
+        int end = in.startColumn();
+        if ((fields & FIELD_TITLE) != 0) {
+            for (int i = 0; i < count; i++) {
+                titles[i] = in.readString();
+            }
+        }
+        in.endColumn(end, (fields & FIELD_TITLE) != 0);
+        end = in.startColumn();
+        if ((fields & FIELD_SECTION) != 0) {
+            for (int i = 0; i < count; i++) {
+                sections[i] = in.readName(table);
+            }
+        }
+        in.endColumn(end, (fields & FIELD_SECTION) != 0);
+        end = in.startColumn();
+        if ((fields & FIELD_AUTHOR) != 0) {
+            for (int i = 0; i < count; i++) {
+                String[] contributors = new String[in.readCount()];
+                for (int j = 0; j < contributors.length; j++) {
+                    contributors[j] = in.readName(table);
+                }
+                authors[i] = contributors;
+            }
+        }
+        in.endColumn(end, (fields & FIELD_AUTHOR) != 0);
+        end = in.startColumn();
+        if ((fields & FIELD_DATE) != 0) {
+            long date = 0;
+            for (int i = 0; i < count; i++) {
+                date += unZigZag(in.readVarLong());
+                dates[i] = date;
+            }
+        }
+        in.endColumn(end, (fields & FIELD_DATE) != 0);
+        end = in.startColumn();
+        if ((fields & FIELD_URL) != 0) {
+            String url = "";
+            for (int i = 0; i < count; i++) {
+                url = in.readSharedPrefix(url);
+                urls[i] = url;
+            }
+        }
+        in.endColumn(end, (fields & FIELD_URL) != 0);
+        end = in.startColumn();
+        if ((fields & FIELD_THUMBNAIL) != 0) {
+            String thumbnail = "";
+            for (int i = 0; i < count; i++) {
+                if (in.readVarint() != 0) {
+                    thumbnail = in.readSharedPrefix(thumbnail);
+                    thumbnails[i] = thumbnail;
+                }
+            }
+        }
+        in.endColumn(end, (fields & FIELD_THUMBNAIL) != 0);
+
+        List<Article> articles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article(titles[i], sections[i], authors[i], dates[i], urls[i], thumbnails[i]));
+        }
+        return articles;
+    }
+
+    private static int nameIndex(Map<String, Integer> names, List<String> table, String name) {
+        Integer index = names.get(name);
+        if (index == null) {
+            index = table.size();
+            names.put(name, index);
+            table.add(name);
+        }
+        return index;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /** Growing byte array the lists are written to */
+    private static class Writer {
+        private byte[] mBuffer;
+        private int mLength;
+
+        Writer(int capacity) {
+            mBuffer = new byte[Math.max(capacity, 16)];
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7fL) != 0) {
+                mBuffer[mLength++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            mBuffer[mLength++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, mBuffer, mLength, length);
+            mLength += length;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        /** Writes the number of characters the value shares with the previous one, then the rest */
+        void writeSharedPrefix(String previous, String value) {
+            int shared = 0;
+            int max = Math.min(previous.length(), value.length());
+            while (shared < max && previous.charAt(shared) == value.charAt(shared)) {
+                shared++;
+            }
+            // Don't split a surrogate pair, its halves cannot be encoded on their own
+            if (shared > 0 && Character.isHighSurrogate(value.charAt(shared - 1))) {
+                shared--;
+            }
+            writeVarint(shared);
+            writeString(value.substring(shared));
+        }
+
+        /** Appends the column with its length in front of it, and empties it */
+        void writeColumn(Writer column) {
+            writeVarint(column.mLength);
+            writeBytes(column.mBuffer, 0, column.mLength);
+            column.mLength = 0;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(mBuffer, mLength);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mLength + extra > mBuffer.length) {
+                mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mLength + extra));
+            }
+        }
+    }
+
+    /** Reads the lists from a byte array, failing with an IOException on incomplete data */
+    private static class Reader {
+        private final byte[] mData;
+        private final int mEnd;
+        private int mPosition;
+
+        Reader(byte[] data, int start, int end) {
+            mData = data;
+            mPosition = start;
+            mEnd = end;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (mPosition >= mEnd) {
+                    throw new IOException("Articles are not complete");
+                }
+                byte b = mData[mPosition++];
+                value |= (long) (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed number");
+        }
+
+        int readVarint() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Number out of range: " + value);
+            }
+            return (int) value;
+        }
+
+        /** Reads a number of items, which cannot be more than the bytes left */
+        int readCount() throws IOException {
+            int count = readVarint();
+            if (count > mEnd - mPosition) {
+                throw new IOException("Articles are not complete");
+            }
+            return count;
+        }
+
+        String readString() throws IOException {
+            int length = readCount();
+            String value = new String(mData, mPosition, length, UTF_8);
+            mPosition += length;
+            return value;
+        }
+
+        String readName(String[] table) throws IOException {
+            int index = readVarint();
+            if (index >= table.length) {
+                throw new IOException("Unknown name " + index);
+            }
+            return table[index];
+        }
+
+        String readSharedPrefix(String previous) throws IOException {
+            int shared = readVarint();
+            if (shared > previous.length()) {
+                throw new IOException("Malformed URL");
+            }
+            String rest = readString();
+            return shared == 0 ? rest : previous.substring(0, shared).concat(rest);
+        }
+
+        /** Reads the length of a column and returns where it ends */
+        int startColumn() throws IOException {
+            return readCount() + mPosition;
+        }
+
+        /**
+         * Moves to the end of the column
+         *
+         * @param read true if the column was read, so it must have ended there
+         */
+        void endColumn(int end, boolean read) throws IOException {
+            if (read && mPosition != end) {
+                throw new IOException("Malformed column");
+            }
+            mPosition = end;
+        }
+    }
+}
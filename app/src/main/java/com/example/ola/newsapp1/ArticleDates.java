@@ -0,0 +1,177 @@
+package com.example.ola.newsapp1;
+
+import java.text.DateFormat;
+import java.util.Date;
+
+/**
+ * Reads the publication dates of the Guardian API and formats them for the list.
+ *
+ * The dates come as ISO 8601 timestamps, e.g. "2018-04-30T10:00:00Z". They are parsed by hand
+ * once, while the response is read, because SimpleDateFormat is slow, not thread-safe and
+ * would create several objects for every article.
+ */
+final class ArticleDates {
+
+    /** Returned for a date which cannot be read */
+    static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+
+    /** Shared by all articles, DateFormat is not thread-safe so it is used under its own lock */
+    private static final DateFormat sDisplayFormat =
+            DateFormat.getDateTimeInstance(DateFormat.MEDIUM, DateFormat.SHORT);
+
+    private ArticleDates() {
+    }
+
+    /**
+     * Returns the time in milliseconds since the epoch of the given ISO 8601 timestamp, or
+     * {@link #UNKNOWN} if it is not one. Accepts "yyyy-MM-ddTHH:mm:ss" followed by optional
+     * fractions of a second and either "Z" or an offset like "+01:00".
+     */
+    static long parseIso8601(String date) {
+        if (date == null || date.length() < 19
+                || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T'
+                || date.charAt(13) != ':' || date.charAt(16) != ':') {
+            return UNKNOWN;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 2);
+        int day = digits(date, 8, 2);
+        int hour = digits(date, 11, 2);
+        int minute = digits(date, 14, 2);
+        int second = digits(date, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return UNKNOWN;
+        }
+
+        int position = 19;
+        int millis = 0;
+        if (position < date.length() && date.charAt(position) == '.') {
+            // Only the first three digits of the fraction matter for milliseconds
+            position++;
+            int scale = 100;
+            int start = position;
+            while (position < date.length() && isDigit(date.charAt(position))) {
+                millis += (date.charAt(position) - '0') * scale;
+                scale /= 10;
+                position++;
+            }
+            if (position == start) {
+                return UNKNOWN;
+            }
+        }
+
+        long offsetMillis;
+        if (position == date.length()) {
+            // No zone, the API always sends UTC
+            offsetMillis = 0;
+        } else if (date.charAt(position) == 'Z' && position + 1 == date.length()) {
+            offsetMillis = 0;
+        } else if ((date.charAt(position) == '+' || date.charAt(position) == '-')
+                && position + 6 == date.length() && date.charAt(position + 3) == ':') {
+            int offsetHours = digits(date, position + 1, 2);
+            int offsetMinutes = digits(date, position + 4, 2);
+            if (offsetHours < 0 || offsetMinutes < 0) {
+                return UNKNOWN;
+            }
+            offsetMillis = (offsetHours * 60 + offsetMinutes) * MILLIS_PER_MINUTE;
+            if (date.charAt(position) == '-') {
+                offsetMillis = -offsetMillis;
+            }
+        } else {
+            return UNKNOWN;
+        }
+
+        long days = daysFromEpoch(year, month, day);
+        return days * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * 1000L + millis
+                - offsetMillis;
+    }
+
+    /**
+     * Returns the date and time in the format of the user's locale and time zone, or an
+     * empty text if the date is {@link #UNKNOWN}.
+     */
+    static String formatForDisplay(long publishedAt) {
+        if (publishedAt == UNKNOWN) {
+            return "";
+        }
+        synchronized (sDisplayFormat) {
+            return sDisplayFormat.format(new Date(publishedAt));
+        }
+    }
+
+    /**
+     * Returns the time as an ISO 8601 timestamp in UTC, e.g. "2018-04-30T10:00:00Z", the
+     * format the API reads in its date parameters. Milliseconds are left out.
+     */
+    static String formatIso8601(long time) {
+        long days = time / MILLIS_PER_DAY;
+        if (time % MILLIS_PER_DAY < 0) {
+            // Times before 1970 belong to the day before
+            days--;
+        }
+        long secondOfDay = (time - days * MILLIS_PER_DAY) / 1000;
+
+        // The inverse of daysFromEpoch()
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+        int month = (int) (monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        StringBuilder text = new StringBuilder(20);
+        text.append(year).append('-');
+        appendTwoDigits(text, month).append('-');
+        appendTwoDigits(text, day).append('T');
+        appendTwoDigits(text, (int) (secondOfDay / 3600)).append(':');
+        appendTwoDigits(text, (int) (secondOfDay / 60 % 60)).append(':');
+        appendTwoDigits(text, (int) (secondOfDay % 60)).append('Z');
+        return text.toString();
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder text, int value) {
+        if (value < 10) {
+            text.append('0');
+        }
+        return text.append(value);
+    }
+
+    /**
+     * Returns the number of days between 1970-01-01 and the given date of the proleptic
+     * Gregorian calendar.
+     */
+    private static long daysFromEpoch(int year, int month, int day) {
+        // Count the years from March, so the leap day is the last day of the year
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /** Returns the number written with the given digits, or -1 if one of them is not a digit */
+    private static int digits(String text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
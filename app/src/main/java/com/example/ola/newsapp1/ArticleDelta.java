@@ -0,0 +1,115 @@
+package com.example.ola.newsapp1;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Refreshes the first page of a section by asking only for the articles published since the
+ * newest stored one, instead of downloading the whole page again.
+ *
+ * This works for the first page of the newest articles: the new articles go on top of it
+ * and push the oldest ones off. The newest stored publication date is the watermark, sent as
+ * the "from-date" of the request, so the response only has the few new articles (and the
+ * article at the watermark itself, which is dropped as a duplicate).
+ */
+final class ArticleDelta {
+
+    /**
+     * Stored articles older than this are refreshed with a full request, the page has
+     * probably moved on completely and a full request also picks up changed articles
+     */
+    static final long MAX_AGE_MILLIS = 6 * 60 * 60 * 1000L;
+
+    private static final String ORDER_BY_NEWEST = "order-by=newest";
+    private static final String FIRST_PAGE = "page=1";
+    private static final String PAGE_SIZE = "page-size=";
+    private static final String FROM_DATE = "from-date";
+
+    private ArticleDelta() {
+    }
+
+    /**
+     * Returns the URL which asks for the articles published since the newest of the stored
+     * ones, or null if the URL is not the first page of the newest articles or there is no
+     * stored date to start from.
+     */
+    static String deltaUrl(String url, List<Article> stored) {
+        if (stored == null || stored.isEmpty() || !hasParameter(url, ORDER_BY_NEWEST)
+                || !hasParameter(url, FIRST_PAGE) || pageSize(url) <= 0) {
+            return null;
+        }
+        long watermark = ArticleDates.UNKNOWN;
+        for (Article article : stored) {
+            watermark = Math.max(watermark, article.getPublishedAt());
+        }
+        if (watermark == ArticleDates.UNKNOWN) {
+            return null;
+        }
+        try {
+            return url + (url.indexOf('?') >= 0 ? "&" : "?") + FROM_DATE + "="
+                    + URLEncoder.encode(ArticleDates.formatIso8601(watermark), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every Java platform has UTF-8
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Returns the page after the new articles arrived: the new ones first, then the stored
+     * ones, without duplicates and cut to the page size. If there are as many new articles
+     * as fit on the page, they are the whole page.
+     */
+    static List<Article> merge(List<Article> stored, List<Article> newer, int pageSize) {
+        List<Article> merged = new ArrayList<>(pageSize);
+        Set<String> urls = new HashSet<>();
+        for (Article article : newer) {
+            if (merged.size() < pageSize && urls.add(article.getNewsUrl())) {
+                merged.add(article);
+            }
+        }
+        for (Article article : stored) {
+            if (merged.size() < pageSize && urls.add(article.getNewsUrl())) {
+                merged.add(article);
+            }
+        }
+        return merged;
+    }
+
+    /** Returns the page size asked for in the URL, or -1 if there is none */
+    static int pageSize(String url) {
+        int start = parameterStart(url, PAGE_SIZE);
+        if (start < 0) {
+            return -1;
+        }
+        start += PAGE_SIZE.length();
+        int end = start;
+        while (end < url.length() && Character.isDigit(url.charAt(end))) {
+            end++;
+        }
+        return end > start ? Integer.parseInt(url.substring(start, end)) : -1;
+    }
+
+    /** Returns true if the query of the URL has the given "name=value" parameter */
+    private static boolean hasParameter(String url, String parameter) {
+        int start = parameterStart(url, parameter);
+        int end = start + parameter.length();
+        return start >= 0 && (end == url.length() || url.charAt(end) == '&' || url.charAt(end) == '#');
+    }
+
+    /** Returns where the parameter starting with the given text is in the URL, or -1 */
+    private static int parameterStart(String url, String parameter) {
+        int start = url.indexOf('?');
+        while (start >= 0) {
+            start++;
+            if (url.startsWith(parameter, start)) {
+                return start;
+            }
+            start = url.indexOf('&', start);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.ola.newsapp1;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out how to turn one list of {@link Article}s into another, matching the articles
+ * by their URL. Articles which are in both lists and have not changed are left alone, so
+ * only the rows which really changed have to be updated on the screen.
+ */
+final class ArticleDiff {
+
+    /**
+     * Receives the steps which turn the old list into the new one. Positions are in the
+     * list as it is after all the previous steps.
+     */
+    interface Callback {
+        /** The article has to be inserted at the given position */
+        void onInserted(int position, Article article);
+
+        /** The article at the given position has to be removed */
+        void onRemoved(int position);
+
+        /** The article at the given position has to be replaced, because its content changed */
+        void onChanged(int position, Article article);
+    }
+
+    private ArticleDiff() {
+    }
+
+    /**
+     * Calls the callback with the steps which turn the old list into the new one.
+     * Both lists must not contain two articles with the same URL.
+     *
+     * @return the number of steps, 0 if the lists have the same articles
+     */
+    static int apply(List<Article> oldList, List<Article> newList, Callback callback) {
+        int steps = 0;
+
+        // URLs of the new list, to find out quickly which old articles are gone
+        Map<String, Article> newByUrl = new HashMap<>(newList.size() * 2);
+        for (Article article : newList) {
+            newByUrl.put(article.getNewsUrl(), article);
+        }
+
+        // First remove the articles which are not in the new list, from the end so the
+        // positions of the ones before stay the same
+        List<Article> current = new ArrayList<>(oldList);
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (!newByUrl.containsKey(current.get(i).getNewsUrl())) {
+                current.remove(i);
+                callback.onRemoved(i);
+                steps++;
+            }
+        }
+
+        // URL -> position of the articles which are left
+        Map<String, Integer> currentPositions = new HashMap<>(current.size() * 2);
+        for (int i = 0; i < current.size(); i++) {
+            currentPositions.put(current.get(i).getNewsUrl(), i);
+        }
+
+        // Then walk through the new list and insert, move or update what is different
+        boolean positionsValid = true;
+        for (int i = 0; i < newList.size(); i++) {
+            Article article = newList.get(i);
+            Article existing = i < current.size() ? current.get(i) : null;
+
+            if (existing != null && existing.getNewsUrl().equals(article.getNewsUrl())) {
+                if (!existing.sameContentAs(article)) {
+                    current.set(i, article);
+                    callback.onChanged(i, article);
+                    steps++;
+                }
+                continue;
+            }
+
+            if (!positionsValid) {
+                currentPositions.clear();
+                for (int j = i; j < current.size(); j++) {
+                    currentPositions.put(current.get(j).getNewsUrl(), j);
+                }
+                positionsValid = true;
+            }
+
+            Integer from = currentPositions.get(article.getNewsUrl());
+            if (from != null && from > i) {
+                // The article moved up, take it out of its old place first
+                current.remove((int) from);
+                callback.onRemoved(from);
+                steps++;
+            }
+            current.add(i, article);
+            callback.onInserted(i, article);
+            steps++;
+
+            // Everything after the insert has moved, so the positions have to be found again
+            positionsValid = false;
+        }
+
+        return steps;
+    }
+}
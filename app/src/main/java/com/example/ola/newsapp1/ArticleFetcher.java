@@ -0,0 +1,224 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The one place where the articles of a request URL are downloaded, shared by all loaders
+ * and the background sync.
+ *
+ * If the URL was downloaded less than the freshness window ago, the stored articles are
+ * returned without going to the network. If the same URL is already being downloaded, for
+ * example by the loader of the previous screen orientation, the caller waits for that
+ * request instead of making another one.
+ *
+ * A stale first page of the newest articles is refreshed with an {@link ArticleDelta}
+ * request, which only downloads the articles published since the stored ones.
+ *
+ * Every article which passes through the fetcher is added to the {@link ArticleSearchIndex}
+ * and the {@link ContributorIndex}.
+ */
+final class ArticleFetcher implements SectionFetcher.Loader {
+
+    private static final String LOG_TAG = ArticleFetcher.class.getName();
+
+    /** Default time for which a download is reused without asking the server again */
+    static final long DEFAULT_FRESHNESS_WINDOW_MILLIS = ArticleCache.TTL_MILLIS;
+
+    /**
+     * Makes the actual request. Replaced in tests.
+     */
+    interface Source {
+        /**
+         * Returns the articles at the URL, the revalidated cached entry if they have not
+         * changed, or null if the request failed.
+         */
+        ArticleCache.Entry download(String url, ArticleCache.Entry cached);
+    }
+
+    private static final Source NETWORK = new Source() {
+        @Override
+        public ArticleCache.Entry download(String url, ArticleCache.Entry cached) {
+            return QueryUtils.fetchArticleData(url, cached);
+        }
+    };
+
+    private static ArticleFetcher sInstance;
+
+    private final ArticleCache mCache;
+    private final ArticleSearchIndex mSearchIndex;
+    private final ContributorIndex mContributorIndex;
+    private final Source mSource;
+    private final long mFreshnessWindowMillis;
+
+    // True once the articles stored before the app started are in the search index
+    private final AtomicBoolean mStoredArticlesIndexed = new AtomicBoolean();
+
+    // URL -> the request which is running for it
+    private final Map<String, FutureTask<ArticleCache.Entry>> mInFlight = new HashMap<>();
+
+    ArticleFetcher(ArticleCache cache, ArticleSearchIndex searchIndex, ContributorIndex contributorIndex,
+                   Source source, long freshnessWindowMillis) {
+        mCache = cache;
+        mSearchIndex = searchIndex;
+        mContributorIndex = contributorIndex;
+        mSource = source;
+        mFreshnessWindowMillis = freshnessWindowMillis;
+    }
+
+    /**
+     * Returns the fetcher shared by the whole app.
+     */
+    static synchronized ArticleFetcher getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleFetcher(ArticleCache.getInstance(context),
+                    ArticleSearchIndex.getInstance(), ContributorIndex.getInstance(), NETWORK,
+                    DEFAULT_FRESHNESS_WINDOW_MILLIS);
+        }
+        return sInstance;
+    }
+
+    /** Returns the articles stored for the URL, or null if there are none */
+    @Override
+    public ArticleCache.Entry getStored(String url) {
+        return indexed(mCache.get(url));
+    }
+
+    /** Returns the index of all the articles which have passed through the fetcher */
+    ArticleSearchIndex getSearchIndex() {
+        return mSearchIndex;
+    }
+
+    /** Returns the index of the articles which have passed through the fetcher, by contributor */
+    ContributorIndex getContributorIndex() {
+        return mContributorIndex;
+    }
+
+    /**
+     * Adds all the articles stored on the device to the indexes, the first time it is
+     * called. Reads all the stored files, so it has to be called on a background thread.
+     */
+    void indexStoredArticles() {
+        if (mStoredArticlesIndexed.compareAndSet(false, true)) {
+            for (List<Article> articles : mCache.getAllArticles()) {
+                mSearchIndex.addAll(articles);
+                mContributorIndex.addAll(articles);
+            }
+        }
+    }
+
+    /** Returns true if the entry is recent enough to be used without asking the server */
+    boolean isFresh(ArticleCache.Entry entry) {
+        return entry != null && System.currentTimeMillis() - entry.getSavedAt() < mFreshnessWindowMillis;
+    }
+
+    /**
+     * Returns the articles at the URL: the stored ones if they are fresh, otherwise the
+     * result of the request for the URL, made now or already running. If the request fails,
+     * the stored articles are returned, or null if there are none.
+     */
+    @Override
+    public ArticleCache.Entry fetch(final String url) throws InterruptedException {
+        final ArticleCache.Entry stored = mCache.get(url);
+        if (isFresh(stored)) {
+            return indexed(stored);
+        }
+
+        FutureTask<ArticleCache.Entry> request;
+        boolean ownRequest = false;
+        synchronized (mInFlight) {
+            request = mInFlight.get(url);
+            if (request == null) {
+                request = new FutureTask<>(new Callable<ArticleCache.Entry>() {
+                    @Override
+                    public ArticleCache.Entry call() {
+                        ArticleCache.Entry entry = download(url, stored);
+                        if (entry != null && !entry.getArticles().isEmpty()) {
+                            mCache.put(url, entry);
+                            return indexed(entry);
+                        }
+                        return indexed(stored);
+                    }
+                });
+                mInFlight.put(url, request);
+                ownRequest = true;
+            }
+        }
+
+        if (ownRequest) {
+            // The request runs on the thread which asked first, the others wait for it
+            try {
+                request.run();
+            } finally {
+                synchronized (mInFlight) {
+                    mInFlight.remove(url);
+                }
+            }
+        }
+
+        try {
+            return request.get();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem downloading " + url, e.getCause());
+            return stored;
+        }
+    }
+
+    /**
+     * Downloads the articles at the URL, only the new ones if the stored articles can be
+     * brought up to date with a delta request. Returns null if the request failed.
+     */
+    private ArticleCache.Entry download(String url, ArticleCache.Entry stored) {
+        String deltaUrl = stored == null
+                || System.currentTimeMillis() - stored.getSavedAt() >= ArticleDelta.MAX_AGE_MILLIS
+                ? null : ArticleDelta.deltaUrl(url, stored.getArticles());
+        if (deltaUrl == null) {
+            return mSource.download(url, stored);
+        }
+
+        ArticleCache.Entry delta = mSource.download(deltaUrl, null);
+        if (delta == null) {
+            return null;
+        }
+        List<Article> merged = ArticleDelta.merge(stored.getArticles(), delta.getArticles(),
+                ArticleDelta.pageSize(url));
+        // The validators of the full page no longer match what is stored, unless nothing changed
+        if (sameArticles(merged, stored.getArticles())) {
+            return stored.revalidated(System.currentTimeMillis(), null, null);
+        }
+        return new ArticleCache.Entry(merged, System.currentTimeMillis(), null, null);
+    }
+
+    private static boolean sameArticles(List<Article> a, List<Article> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).sameContentAs(b.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the articles of the entry to the indexes, unless they are there already, and
+     * returns the entry. Downloaded articles are in the contributor index already, from the
+     * parser.
+     */
+    private ArticleCache.Entry indexed(ArticleCache.Entry entry) {
+        if (entry != null && entry.markIndexed()) {
+            mSearchIndex.addAll(entry.getArticles());
+            mContributorIndex.addAll(entry.getArticles());
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the pages of articles for the list screen, one load per page, on a pool of worker
+ * threads of its own. Several pages load at the same time, and every page downloads its
+ * sections in parallel through the {@link SectionFetcher}.
+ *
+ * Each load publishes its page up to three times: the articles stored on the device
+ * ({@link Stage#STORED}), the merged list every time another section has arrived
+ * ({@link Stage#PARTIAL}) and the final list ({@link Stage#COMPLETE}). Personalized loads
+ * are ordered by the {@link ArticleRanker} before they are published, on the worker thread.
+ *
+ * The activity keeps the engine over configuration changes, so a rotation neither restarts
+ * nor loses a load: the new activity attaches and gets the last result of every page. When
+ * the activity goes away for good, the running loads are cancelled.
+ *
+ * Everything except the loads themselves runs on the main thread.
+ */
+final class ArticleLoadEngine {
+
+    private static final String LOG_TAG = ArticleLoadEngine.class.getName();
+
+    /** Number of pages which load at the same time, e.g. the first page and the next two */
+    static final int LOAD_THREADS = 3;
+
+    /** How far a published page has got */
+    enum Stage {
+        /** The articles stored on the device, a refresh follows */
+        STORED,
+        /** The articles of the sections which have arrived so far */
+        PARTIAL,
+        /** The final articles of the page */
+        COMPLETE
+    }
+
+    /**
+     * Receives the published pages, on the main thread.
+     */
+    interface Listener {
+        /**
+         * @param articles the articles of the page, or null if nothing is stored and
+         *                 nothing could be downloaded
+         */
+        void onPageLoaded(int page, List<Article> articles, Stage stage);
+    }
+
+    /** Tells if the device is online. Replaced in tests. */
+    interface Network {
+        boolean isConnected();
+    }
+
+    private final ArticleFetcher mFetcher;
+    private final ArticleBodyStore mBodyStore;
+    private final ExecutorService mWorkers;
+    private final Executor mDelivery;
+    private final Network mNetwork;
+    private final StartupSnapshot mSnapshot;
+    private final ArticleRanker mRanker;
+
+    // Page -> its latest load, running or finished, in page order
+    private final Map<Integer, Load> mLoads = new TreeMap<>();
+
+    // The activity showing the pages, null between two activities
+    private Listener mListener;
+
+    /**
+     * @param snapshot keeps the first page for the next start of the app, or null
+     * @param ranker orders the personalized loads
+     */
+    ArticleLoadEngine(ArticleFetcher fetcher, ArticleBodyStore bodyStore, ExecutorService workers,
+                      Executor delivery, Network network, StartupSnapshot snapshot,
+                      ArticleRanker ranker) {
+        mFetcher = fetcher;
+        mBodyStore = bodyStore;
+        mWorkers = workers;
+        mDelivery = delivery;
+        mNetwork = network;
+        mSnapshot = snapshot;
+        mRanker = ranker;
+    }
+
+    /** Returns a new engine with its own worker threads, publishing on the main thread */
+    static ArticleLoadEngine create(Context context) {
+        final Context appContext = context.getApplicationContext();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(LOAD_THREADS, LOAD_THREADS,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ArticleLoadEngine #" + mCount.incrementAndGet());
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                });
+        // The threads go away while the app doesn't load anything
+        workers.allowCoreThreadTimeOut(true);
+
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        return new ArticleLoadEngine(ArticleFetcher.getInstance(appContext),
+                ArticleBodyStore.getInstance(appContext), workers,
+                new Executor() {
+                    @Override
+                    public void execute(Runnable runnable) {
+                        mainHandler.post(runnable);
+                    }
+                },
+                new Network() {
+                    @Override
+                    public boolean isConnected() {
+                        return ArticleLoadEngine.isConnected(appContext);
+                    }
+                },
+                StartupSnapshot.getInstance(appContext),
+                ArticleRanker.getInstance(appContext));
+    }
+
+    /**
+     * Starts publishing to the listener, beginning with the last result of every page
+     * which has been loaded so far and not forgotten.
+     */
+    void attach(Listener listener) {
+        mListener = listener;
+        for (Load load : new ArrayList<>(mLoads.values())) {
+            if (load.mStage != null) {
+                listener.onPageLoaded(load.mPage, load.mArticles, load.mStage);
+            }
+        }
+    }
+
+    /**
+     * Stops publishing. Results which arrive in the meantime are kept for the next listener.
+     *
+     * @param cancel true if nobody will attach again, which cancels the running loads
+     */
+    void detach(boolean cancel) {
+        mListener = null;
+        if (cancel) {
+            cancelAll();
+        }
+    }
+
+    /** Returns true if the page has been loaded or is loading */
+    boolean hasLoad(int page) {
+        return mLoads.containsKey(page);
+    }
+
+    /** Returns true if any page has been loaded or is loading */
+    boolean hasLoads() {
+        return !mLoads.isEmpty();
+    }
+
+    /**
+     * Forgets the page once the list doesn't show it any more, cancelling its load if it is
+     * still running, so the engine keeps no more pages than the list and doesn't hand
+     * dropped pages to the next listener.
+     */
+    void forget(int page) {
+        Load load = mLoads.remove(page);
+        if (load != null) {
+            load.mCancelled = true;
+            if (load.mFuture != null) {
+                load.mFuture.cancel(true);
+            }
+        }
+    }
+
+    /** Returns true if the page is loading */
+    boolean isLoading(int page) {
+        Load load = mLoads.get(page);
+        return load != null && load.mStage != Stage.COMPLETE;
+    }
+
+    /**
+     * Starts loading the page, unless it is loading already.
+     *
+     * @param urls one request URL for each section
+     * @param newestFirst true to sort the page from the newest article
+     * @param personalized true to order the page by what the user reads
+     */
+    void load(int page, final List<String> urls, final boolean newestFirst, boolean personalized) {
+        if (isLoading(page)) {
+            return;
+        }
+        final Load load = new Load(page, personalized);
+        mLoads.put(page, load);
+        load.mFuture = mWorkers.submit(new Runnable() {
+            @Override
+            public void run() {
+                runLoad(load, urls, newestFirst);
+            }
+        });
+    }
+
+    /** Cancels all the running loads and forgets all the pages */
+    void cancelAll() {
+        for (Load load : mLoads.values()) {
+            load.mCancelled = true;
+            if (load.mFuture != null) {
+                load.mFuture.cancel(true);
+            }
+        }
+        mLoads.clear();
+    }
+
+    /**
+     * Loads the page: the stored articles first, then the articles of every section as it
+     * arrives. This is on a worker thread.
+     */
+    private void runLoad(final Load load, List<String> urls, boolean newestFirst) {
+        long startNanos = System.nanoTime();
+
+        // Articles stored during earlier runs of the app can be searched too, and those with a
+        // stored text opened without waiting for the list of texts
+        mFetcher.indexStoredArticles();
+        mBodyStore.load();
+
+        // Articles stored for each section, if there are any
+        List<List<Article>> storedSections = new ArrayList<>();
+        boolean allFresh = true;
+        for (String url : urls) {
+            ArticleCache.Entry entry = mFetcher.getStored(url);
+            if (entry != null) {
+                storedSections.add(entry.getArticles());
+            }
+            allFresh &= mFetcher.isFresh(entry);
+        }
+        List<Article> stored = storedSections.isEmpty() ? null : SectionFetcher.merge(storedSections, newestFirst);
+
+        if ((allFresh && stored != null) || !mNetwork.isConnected()) {
+            // Nothing to refresh, or no way to refresh it
+            complete(load, urls, stored, startNanos);
+            return;
+        }
+        if (stored != null) {
+            // Show the stored articles straight away, the refresh follows
+            publish(load, stored, Stage.STORED, startNanos);
+        }
+
+        // Sections which are fresh, or which another load is downloading already, are not
+        // requested again. Stale ones are revalidated.
+        List<Article> articles;
+        try {
+            articles = SectionFetcher.fetch(urls, mFetcher, newestFirst,
+                    new SectionFetcher.Listener() {
+                        @Override
+                        public void onSectionLoaded(List<Article> articlesSoFar) {
+                            if (!articlesSoFar.isEmpty()) {
+                                publish(load, articlesSoFar, Stage.PARTIAL, 0);
+                            }
+                        }
+                    });
+        } catch (InterruptedException e) {
+            // Cancelled, nobody waits for the result
+            Log.v(LOG_TAG, "Load of page " + load.mPage + " was cancelled");
+            return;
+        }
+
+        // Keep showing what we had if the refresh failed
+        complete(load, urls, articles.isEmpty() ? stored : articles, startNanos);
+    }
+
+    /**
+     * Publishes the final articles of the load. The first page is also kept for the next
+     * start of the app, which shows it before anything else has loaded.
+     */
+    private void complete(Load load, List<String> urls, List<Article> articles, long startNanos) {
+        List<Article> published = publish(load, articles, Stage.COMPLETE, startNanos);
+        if (load.mPage == 1 && mSnapshot != null && published != null && !published.isEmpty()
+                && !load.mCancelled) {
+            mSnapshot.save(urls, published);
+        }
+    }
+
+    /**
+     * Hands a result of the load to the main thread, where it is kept for the page and
+     * given to the listener. Results of cancelled or replaced loads are dropped.
+     *
+     * @param startNanos when the load started, to record how long it took, or 0
+     * @return the articles as they are published, in their final order
+     */
+    private List<Article> publish(final Load load, List<Article> loaded, final Stage stage, final long startNanos) {
+        if (load.mCancelled) {
+            return null;
+        }
+        final List<Article> articles = load.mPersonalized && loaded != null
+                ? mRanker.rank(loaded, System.currentTimeMillis()) : loaded;
+        mDelivery.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (load.mCancelled || mLoads.get(load.mPage) != load) {
+                    return;
+                }
+                load.mArticles = articles;
+                load.mStage = stage;
+                if (stage == Stage.COMPLETE) {
+                    load.mFuture = null;
+                }
+                if (startNanos != 0) {
+                    Metrics.recordSince(Metrics.LOADER_DELIVERY, startNanos);
+                }
+                if (mListener != null) {
+                    mListener.onPageLoaded(load.mPage, articles, stage);
+                }
+            }
+        });
+        return articles;
+    }
+
+    /**
+     * Returns true if there is a network connection which can be used to download articles.
+     */
+    static boolean isConnected(Context context) {
+        // Get a reference to the ConnectivityManager to check state of network connectivity
+        ConnectivityManager connMgr = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connMgr == null) {
+            return false;
+        }
+
+        // Get details on the currently active default data network
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    /** One load of one page, and the last result it published */
+    private static class Load {
+        final int mPage;
+        final boolean mPersonalized;
+        Future<?> mFuture;
+        volatile boolean mCancelled;
+
+        // Set on the main thread, null until the first result
+        List<Article> mArticles;
+        Stage mStage;
+
+        Load(int page, boolean personalized) {
+            mPage = page;
+            mPersonalized = personalized;
+        }
+    }
+}
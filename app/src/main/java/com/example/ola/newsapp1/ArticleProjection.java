@@ -0,0 +1,132 @@
+package com.example.ola.newsapp1;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+
+/**
+ * The parts of each Guardian result a screen needs, on top of the title, section, date and
+ * URL every result has.
+ *
+ * The request asks only for these ("show-fields" and "show-tags"), so the server leaves the
+ * rest out of the response, and the parser is given the same projection so it skips
+ * anything else it finds. Both come from one object, so they can't disagree.
+ */
+final class ArticleProjection {
+
+    /** The names of the contributors, from the contributor tags */
+    static final int CONTRIBUTORS = 1;
+    /** The URL of the thumbnail image, from the fields */
+    static final int THUMBNAIL = 1 << 1;
+    /** The text of the article, from the fields */
+    static final int BODY_TEXT = 1 << 2;
+
+    /** What a row of {@link ArticleAdapter} shows: the byline and the thumbnail */
+    static final ArticleProjection ROWS = new ArticleProjection(CONTRIBUTORS | THUMBNAIL);
+
+    /** What is stored for reading offline: only the text, the rows come from {@link #ROWS} */
+    static final ArticleProjection BODIES = new ArticleProjection(BODY_TEXT);
+
+    // Names of the request parameters and their values
+    static final String PARAMETER_SHOW_FIELDS = "show-fields";
+    static final String PARAMETER_SHOW_TAGS = "show-tags";
+    private static final String TAG_CONTRIBUTOR = "contributor";
+    private static final String FIELD_THUMBNAIL = "thumbnail";
+    private static final String FIELD_BODY_TEXT = "bodyText";
+
+    private final int mParts;
+
+    ArticleProjection(int parts) {
+        mParts = parts;
+    }
+
+    /**
+     * Returns the projection a request URL asks for, from its "show-fields" and "show-tags"
+     * parameters, so a response is parsed for what was requested.
+     */
+    static ArticleProjection fromUrl(String url) {
+        int parts = 0;
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return new ArticleProjection(parts);
+        }
+        for (String parameter : url.substring(query + 1).split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals <= 0) {
+                continue;
+            }
+            String name = parameter.substring(0, equals);
+            String value = decode(parameter.substring(equals + 1));
+            if (PARAMETER_SHOW_FIELDS.equals(name)) {
+                for (String field : value.split(",")) {
+                    if (FIELD_THUMBNAIL.equals(field)) {
+                        parts |= THUMBNAIL;
+                    } else if (FIELD_BODY_TEXT.equals(field)) {
+                        parts |= BODY_TEXT;
+                    }
+                }
+            } else if (PARAMETER_SHOW_TAGS.equals(name)) {
+                for (String tag : value.split(",")) {
+                    if (TAG_CONTRIBUTOR.equals(tag)) {
+                        parts |= CONTRIBUTORS;
+                    }
+                }
+            }
+        }
+        return new ArticleProjection(parts);
+    }
+
+    /** Returns true if the given part, one of the constants above, is requested */
+    boolean has(int part) {
+        return (mParts & part) != 0;
+    }
+
+    /**
+     * Returns the value of the "show-fields" parameter, or null if no fields are needed and
+     * the parameter is left out.
+     */
+    String getShowFields() {
+        StringBuilder fields = new StringBuilder();
+        if (has(THUMBNAIL)) {
+            fields.append(FIELD_THUMBNAIL);
+        }
+        if (has(BODY_TEXT)) {
+            if (fields.length() > 0) {
+                fields.append(',');
+            }
+            fields.append(FIELD_BODY_TEXT);
+        }
+        return fields.length() > 0 ? fields.toString() : null;
+    }
+
+    /**
+     * Returns the value of the "show-tags" parameter, or null if no tags are needed and the
+     * parameter is left out.
+     */
+    String getShowTags() {
+        return has(CONTRIBUTORS) ? TAG_CONTRIBUTOR : null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ArticleProjection && ((ArticleProjection) other).mParts == mParts;
+    }
+
+    @Override
+    public int hashCode() {
+        return mParts;
+    }
+
+    @Override
+    public String toString() {
+        return "ArticleProjection{fields=" + getShowFields() + ", tags=" + getShowTags() + "}";
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every JVM has UTF-8
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Guardian query built from the user's settings: which sections to request, in which
+ * order and how many articles per page.
+ *
+ * The list screen and the background sync both use it, so they request exactly the same
+ * URLs and share the articles stored for them.
+ */
+public class ArticleQuery {
+
+    private static final String GUARDIAN_REQUEST_URL =
+           //"http://content.guardianapis.com/search?order-by=newest&show-tags=contributor&page-size=20&q=politics&api-key=6f2b2fc3-131e-4731-8fbb-dd514a95c728";
+            "https://content.guardianapis.com/search?";
+
+    /** Number of articles requested with each page */
+    private static final int PAGE_SIZE = 10;
+
+    private final Context mContext;
+    private final String mOrderBy;
+    private final List<String> mSections;
+    private final int mPageSize;
+    private final int mMaxPage;
+    private final boolean mOfflineReading;
+
+    // Page -> its request URLs, which are built once
+    private final Map<Integer, List<String>> mUrls = new HashMap<>();
+
+    // The query of the current settings, kept for the life of the process so a new list
+    // screen doesn't read the settings again. Dropped when a setting changes.
+    private static ArticleQuery sCurrent;
+    private static SharedPreferences.OnSharedPreferenceChangeListener sSettingsListener;
+
+    private ArticleQuery(Context context, String orderBy, List<String> sections, int numberOfArticles,
+                         boolean offlineReading) {
+        mContext = context.getApplicationContext();
+        mOrderBy = orderBy;
+        mSections = sections;
+        mOfflineReading = offlineReading;
+
+        // Every page has a part of the articles from each section the user follows
+        int articlesPerSection = Math.max(1, numberOfArticles / sections.size());
+        mPageSize = Math.min(PAGE_SIZE, articlesPerSection);
+        mMaxPage = (articlesPerSection + mPageSize - 1) / mPageSize;
+    }
+
+    /**
+     * Returns the query for the current settings if they have been read already, or null.
+     */
+    static synchronized ArticleQuery getCurrent() {
+        return sCurrent;
+    }
+
+    /**
+     * Returns the query for the current settings, reading them if they haven't been read yet.
+     * The first read loads the settings from disk, so this should be called on a worker thread.
+     */
+    static ArticleQuery loadCurrent(Context context) {
+        Context appContext = context.getApplicationContext();
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(appContext);
+        synchronized (ArticleQuery.class) {
+            if (sCurrent != null) {
+                return sCurrent;
+            }
+            // Listen before reading, so a change made while the settings are read is not missed
+            if (sSettingsListener == null) {
+                sSettingsListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+                    @Override
+                    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                        synchronized (ArticleQuery.class) {
+                            sCurrent = null;
+                        }
+                    }
+                };
+                sharedPrefs.registerOnSharedPreferenceChangeListener(sSettingsListener);
+            }
+        }
+
+        ArticleQuery query = fromPreferences(appContext);
+        // The first page is requested straight away
+        query.getUrls(1);
+        synchronized (ArticleQuery.class) {
+            if (sCurrent == null) {
+                sCurrent = query;
+            }
+            return sCurrent;
+        }
+    }
+
+    /**
+     * Returns the query for the current settings.
+     */
+    public static ArticleQuery fromPreferences(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        // getString retrieves a String value from the preferences. The second parameter is the default value for this preference.
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default));
+
+        boolean offlineReading = sharedPrefs.getBoolean(
+                context.getString(R.string.settings_offline_reading_key),
+                context.getResources().getBoolean(R.bool.settings_offline_reading_default));
+
+        return new ArticleQuery(context, orderBy, readSections(context, sharedPrefs),
+                readNumberOfArticles(context, sharedPrefs), offlineReading);
+    }
+
+    /** Returns the number of articles requested with each page for each section */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /** Returns the number of the last page which is requested, from the number of articles setting */
+    public int getMaxPage() {
+        return mMaxPage;
+    }
+
+    /** Returns true if the articles are shown from the newest one, false for the oldest first */
+    public boolean isNewestFirst() {
+        // The merged list is sorted by date, oldest first only if the user asked for that
+        return !mContext.getString(R.string.settings_order_by_oldest_value).equals(mOrderBy);
+    }
+
+    /**
+     * Returns true if the articles are ordered on the device by what the user reads, see
+     * {@link ArticleRanker}. The newest articles are requested for it.
+     */
+    public boolean isPersonalized() {
+        return mContext.getString(R.string.settings_order_by_for_you_value).equals(mOrderBy);
+    }
+
+    /** Returns true if the user wants the text of the articles downloaded for reading offline */
+    public boolean isOfflineReading() {
+        return mOfflineReading;
+    }
+
+    /**
+     * Returns the request URLs for the given page, one for each section the user follows.
+     * They ask for what the rows of the list show, see {@link ArticleProjection#ROWS}.
+     */
+    public List<String> getUrls(int page) {
+        // Built once for every page, instead of looking up all the parameter names each time
+        synchronized (mUrls) {
+            List<String> urls = mUrls.get(page);
+            if (urls == null) {
+                urls = Collections.unmodifiableList(buildUrls(page, ArticleProjection.ROWS));
+                mUrls.put(page, urls);
+            }
+            return urls;
+        }
+    }
+
+    /**
+     * Returns the request URLs for the text of the articles on the given page, one for each
+     * section the user follows. They list the same articles as {@link #getUrls(int)}, with
+     * only their text, see {@link ArticleProjection#BODIES}.
+     */
+    public List<String> getBodyUrls(int page) {
+        return buildUrls(page, ArticleProjection.BODIES);
+    }
+
+    /**
+     * Returns the request URLs for the given page, asking only for the parts of the articles
+     * in the given projection. The parser reads the same projection back from the URL.
+     */
+    private List<String> buildUrls(int page, ArticleProjection projection) {
+        // The same for every section
+        String orderBy = isPersonalized()
+                ? mContext.getString(R.string.settings_order_by_newest_value) : mOrderBy;
+        String showTags = projection.getShowTags();
+        String showFields = projection.getShowFields();
+
+        List<String> urls = new ArrayList<>(mSections.size());
+        for (String section : mSections) {
+            // parse breaks apart the URI string that's passed into its parameter
+            Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
+
+            // buildUpon prepares the baseUri that we just parsed so we can add query parameters to it
+            Uri.Builder uriBuilder = baseUri.buildUpon();
+
+            // Append query parameter and its value
+            uriBuilder.appendQueryParameter(mContext.getString(R.string.order_by), orderBy);
+            uriBuilder.appendQueryParameter(mContext.getString(R.string.section), section);
+            // Tags and fields which are not shown are left out, they are most of a result
+            if (showTags != null) {
+                uriBuilder.appendQueryParameter(ArticleProjection.PARAMETER_SHOW_TAGS, showTags);
+            }
+            if (showFields != null) {
+                uriBuilder.appendQueryParameter(ArticleProjection.PARAMETER_SHOW_FIELDS, showFields);
+            }
+            uriBuilder.appendQueryParameter(mContext.getString(R.string.page_size), String.valueOf(mPageSize));
+            uriBuilder.appendQueryParameter(mContext.getString(R.string.page), String.valueOf(page));
+            uriBuilder.appendQueryParameter(mContext.getString(R.string.q), "");
+            uriBuilder.appendQueryParameter(mContext.getString(R.string.api_key), mContext.getString(R.string.api_key_value));
+            urls.add(uriBuilder.toString());
+        }
+        return urls;
+    }
+
+    /**
+     * Returns the sections the user follows, from the settings, in alphabetical order.
+     */
+    private static List<String> readSections(Context context, SharedPreferences sharedPrefs) {
+        Set<String> sections = sharedPrefs.getStringSet(context.getString(R.string.settings_sections_key), null);
+        if (sections == null || sections.isEmpty()) {
+            sections = new HashSet<>(Arrays.asList(context.getResources().getStringArray(R.array.settings_sections_default)));
+        }
+        // Sorted, so the request URLs (and the cached articles) stay the same between launches
+        List<String> sorted = new ArrayList<>(sections);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Returns the number of articles the user wants to see, from the settings.
+     */
+    private static int readNumberOfArticles(Context context, SharedPreferences sharedPrefs) {
+        String numberOfArticles = sharedPrefs.getString(
+                context.getString(R.string.settings_number_of_articles_key),
+                context.getString(R.string.settings_number_of_articles_default));
+        try {
+            return Math.max(1, Integer.parseInt(numberOfArticles.trim()));
+        } catch (NumberFormatException e) {
+            // The setting accepts decimals, so fall back to the default for anything odd
+            return Integer.parseInt(context.getString(R.string.settings_number_of_articles_default));
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Orders articles for the "For you" setting: new articles first, articles of the sections
+ * and authors the user opens often above the others, and articles the user has opened
+ * already further down.
+ *
+ * The score of an article is its recency, which halves every {@link #RECENCY_HALF_LIFE_MILLIS},
+ * plus the share of the user's clicks which went to its section and to its best liked
+ * contributor. A click counts for every contributor of the article. Clicks
+ * count less the older they are, halving every {@link #INTEREST_HALF_LIFE_MILLIS}, so the
+ * ranking follows the user's interests as they change. Articles the {@link ArticleStateStore}
+ * has as read keep only a part of their score, so the order agrees with the rows shown as read.
+ *
+ * Clicks are counted in primitive arrays, by name, and the ranking sorts a long[] of scores,
+ * so ranking thousands of articles takes well below a frame and allocates almost nothing.
+ * The history is written to a file in the background after every click.
+ */
+final class ArticleRanker {
+
+    private static final String LOG_TAG = ArticleRanker.class.getName();
+
+    /** Name of the file in the app's files directory */
+    private static final String FILE_NAME = "click_history";
+
+    /** Identifies the file, and its version */
+    private static final int MAGIC = 0x4e524e32;
+
+    /** The first version, which also listed the opened articles */
+    private static final int MAGIC_WITH_READ = 0x4e524e31;
+
+    /** Time in which the recency part of the score halves */
+    static final long RECENCY_HALF_LIFE_MILLIS = 6 * 60 * 60 * 1000L;
+
+    /** Time in which a click counts half as much */
+    static final long INTEREST_HALF_LIFE_MILLIS = 30 * 24 * 60 * 60 * 1000L;
+
+    /** Weight of the share of the clicks which went to the section of an article */
+    static final float SECTION_WEIGHT = 1f;
+
+    /** Weight of the share of the clicks which went to the contributor of an article */
+    static final float AUTHOR_WEIGHT = 0.6f;
+
+    /** Part of the score an article keeps once it has been opened */
+    static final float READ_FACTOR = 0.25f;
+
+    /**
+     * Clicks which count as going nowhere in particular, so the first few clicks don't
+     * make a section the only thing that matters
+     */
+    static final float PRIOR_CLICKS = 3f;
+
+    /** Number of section and author names counted, clicks of further names are not counted */
+    static final int MAX_NAMES = 2048;
+
+    private static ArticleRanker sInstance;
+
+    // Where the history is written, null to keep it in memory only
+    private final File mFile;
+
+    // Counts the clicks and writes the history, one click at a time
+    private final Executor mWriter;
+
+    // Which articles the user has opened
+    private final ArticleStateStore mStates;
+
+    // Clicks are counted relative to this time: a click at time t adds 2^((t - epoch) / half life),
+    // so older clicks don't have to be decayed one by one. Only ratios of counts are used.
+    private long mEpoch;
+    private float mTotalClicks;
+    private final NameCounts mSections = new NameCounts();
+    private final NameCounts mAuthors = new NameCounts();
+
+    private boolean mLoaded;
+
+    /**
+     * @param file where the history is kept, or null to keep it in memory only
+     * @param writer runs the counting and writing of the clicks, off the main thread
+     * @param states tells which articles the user has opened
+     */
+    ArticleRanker(File file, Executor writer, ArticleStateStore states) {
+        mFile = file;
+        mWriter = writer;
+        mStates = states;
+    }
+
+    /** Returns the ranker of the app */
+    static synchronized ArticleRanker getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleRanker(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    Executors.newSingleThreadExecutor(), ArticleStateStore.getInstance(context));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Counts a click on the article, which the user is going to read, and writes the history.
+     * Both happen on the writer, so this can be called on the main thread.
+     */
+    void recordClick(final Article article, final long now) {
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (ArticleRanker.this) {
+                    load();
+                    float weight = clickWeight(now);
+                    mTotalClicks += weight;
+                    mSections.add(article.getNewsSection(), weight);
+                    for (int i = 0; i < article.getContributorCount(); i++) {
+                        mAuthors.add(article.getContributor(i), weight);
+                    }
+                }
+                if (mFile != null) {
+                    write();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the articles ordered by their score, highest first. Articles with the same
+     * score keep their order. Reads the history the first time, so call it on a worker thread.
+     */
+    List<Article> rank(List<Article> articles, long now) {
+        int count = articles.size();
+        long[] keys = new long[count];
+        synchronized (this) {
+            load();
+            // The counts grow with the time since the epoch, so the prior has to grow with them
+            float prior = PRIOR_CLICKS * clickWeight(now);
+            float clicks = mTotalClicks + prior;
+            for (int i = 0; i < count; i++) {
+                Article article = articles.get(i);
+                float score = recency(article.getPublishedAt(), now)
+                        + SECTION_WEIGHT * mSections.get(article.getNewsSection()) / clicks
+                        + AUTHOR_WEIGHT * authorClicks(article) / clicks;
+                if ((mStates.getState(article) & ArticleStateStore.READ) != 0) {
+                    score *= READ_FACTOR;
+                }
+                // Scores are positive, so the bits of the float sort like the float. The highest
+                // score gets the lowest key, and the index in the low bits keeps ties in order.
+                keys[i] = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(score)) << 32) | i;
+            }
+        }
+        Arrays.sort(keys);
+        List<Article> ranked = new ArrayList<>(count);
+        for (long key : keys) {
+            ranked.add(articles.get((int) key));
+        }
+        return ranked;
+    }
+
+    /**
+     * Returns the clicks of the contributor of the article the user opens most, so an article
+     * with several contributors doesn't score higher just for having more of them.
+     */
+    private float authorClicks(Article article) {
+        float clicks = 0;
+        for (int i = 0; i < article.getContributorCount(); i++) {
+            clicks = Math.max(clicks, mAuthors.get(article.getContributor(i)));
+        }
+        return clicks;
+    }
+
+    /** Returns the recency part of the score, 1 for an article published now */
+    static float recency(long publishedAt, long now) {
+        if (publishedAt == ArticleDates.UNKNOWN) {
+            return 0;
+        }
+        long age = Math.max(0, now - publishedAt);
+        return (float) Math.pow(2, -(double) age / RECENCY_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * Returns what a click at the given time adds to the counts. Moves the epoch when the
+     * weights grow too big for a float.
+     */
+    private float clickWeight(long now) {
+        if (mEpoch == 0) {
+            mEpoch = now;
+        }
+        double halfLives = (double) (now - mEpoch) / INTEREST_HALF_LIFE_MILLIS;
+        if (halfLives > 32) {
+            float scale = (float) Math.pow(2, -halfLives);
+            mTotalClicks *= scale;
+            mSections.scale(scale);
+            mAuthors.scale(scale);
+            mEpoch = now;
+            halfLives = 0;
+        }
+        return (float) Math.pow(2, halfLives);
+    }
+
+    /** Reads the history from its file, if it hasn't been read yet */
+    private void load() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        if (mFile == null || !mFile.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            // The opened articles after the counts of the first version are left unread
+            int magic = in.readInt();
+            if (magic != MAGIC && magic != MAGIC_WITH_READ) {
+                return;
+            }
+            mEpoch = in.readLong();
+            mTotalClicks = in.readFloat();
+            mSections.read(in);
+            mAuthors.read(in);
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem reading the click history", e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // Everything has been read
+                }
+            }
+        }
+    }
+
+    /** Writes the history to its file, replacing it only once the new one is complete */
+    private void write() {
+        File temp = new File(mFile.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                synchronized (this) {
+                    out.writeInt(MAGIC);
+                    out.writeLong(mEpoch);
+                    out.writeFloat(mTotalClicks);
+                    mSections.write(out);
+                    mAuthors.write(out);
+                }
+            } finally {
+                out.close();
+            }
+            if (!temp.renameTo(mFile)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem writing the click history", e);
+            temp.delete();
+        }
+    }
+
+    /**
+     * Click counts by name, in an open addressing table of names and a float array, so
+     * looking a name up doesn't allocate.
+     */
+    private static final class NameCounts {
+        private String[] mNames = new String[64];
+        private float[] mCounts = new float[64];
+        private int mSize;
+
+        /** Returns the count of the name, 0 if it has none */
+        float get(String name) {
+            int slot = slotOf(mNames, name);
+            return mNames[slot] != null ? mCounts[slot] : 0;
+        }
+
+        void add(String name, float count) {
+            int slot = slotOf(mNames, name);
+            if (mNames[slot] == null) {
+                if (mSize >= MAX_NAMES) {
+                    return;
+                }
+                mNames[slot] = name;
+                mSize++;
+                if (mSize * 2 > mNames.length) {
+                    grow();
+                    slot = slotOf(mNames, name);
+                }
+            }
+            mCounts[slot] += count;
+        }
+
+        void scale(float scale) {
+            for (int i = 0; i < mCounts.length; i++) {
+                mCounts[i] *= scale;
+            }
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(mSize);
+            for (int i = 0; i < mNames.length; i++) {
+                if (mNames[i] != null) {
+                    out.writeUTF(mNames[i]);
+                    out.writeFloat(mCounts[i]);
+                }
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                add(in.readUTF(), in.readFloat());
+            }
+        }
+
+        private void grow() {
+            String[] names = mNames;
+            float[] counts = mCounts;
+            mNames = new String[names.length * 2];
+            mCounts = new float[names.length * 2];
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null) {
+                    int slot = slotOf(mNames, names[i]);
+                    mNames[slot] = names[i];
+                    mCounts[slot] = counts[i];
+                }
+            }
+        }
+
+        /** Returns the slot of the name, or the empty slot where it would go */
+        private static int slotOf(String[] names, String name) {
+            int mask = names.length - 1;
+            int slot = mix(name.hashCode()) & mask;
+            while (names[slot] != null && !names[slot].equals(name)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /** Spreads the bits of a hash code, so similar ones don't end up in neighbouring slots */
+    private static int mix(int hash) {
+        hash *= 0x9e3779b9;
+        return hash ^ (hash >>> 16);
+    }
+}
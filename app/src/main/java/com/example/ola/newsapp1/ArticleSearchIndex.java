@@ -0,0 +1,242 @@
+package com.example.ola.newsapp1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index of the words in the titles, sections and authors of the articles on the
+ * device, so they can be searched while the user types, also without a network connection.
+ *
+ * Every word is mapped to the sorted ids of the articles which contain it. The words are
+ * kept sorted, so all the words starting with what the user has typed so far are next to
+ * each other. Articles are added as they are downloaded, an article which is already
+ * indexed is only indexed again if it changed. When the index is full, the articles added
+ * first are dropped, and the new articles take over their ids, so the ids stay below the
+ * size limit.
+ */
+final class ArticleSearchIndex {
+
+    /** Maximum number of articles in the index */
+    static final int MAX_ARTICLES = 5000;
+
+    private static ArticleSearchIndex sInstance;
+
+    // Word -> sorted ids of the articles which contain it
+    private final TreeMap<String, IdList> mPostings = new TreeMap<>();
+
+    // Article URL -> id, in the order the articles were added to find the ones to drop,
+    // and id -> article. A changed article keeps its id.
+    private final LinkedHashMap<String, Integer> mIds = new LinkedHashMap<>();
+    private final List<Article> mArticles = new ArrayList<>();
+
+    private final int mMaxArticles;
+
+    ArticleSearchIndex() {
+        this(MAX_ARTICLES);
+    }
+
+    ArticleSearchIndex(int maxArticles) {
+        mMaxArticles = maxArticles;
+    }
+
+    /** Returns the index shared by the whole app */
+    static synchronized ArticleSearchIndex getInstance() {
+        if (sInstance == null) {
+            sInstance = new ArticleSearchIndex();
+        }
+        return sInstance;
+    }
+
+    /** Returns the number of articles in the index */
+    synchronized int size() {
+        return mIds.size();
+    }
+
+    /**
+     * Adds the articles to the index. An article with the same URL as one already in the
+     * index replaces it.
+     */
+    synchronized void addAll(Collection<Article> articles) {
+        for (Article article : articles) {
+            Integer oldId = mIds.remove(article.getNewsUrl());
+            int id;
+            if (oldId != null) {
+                Article old = mArticles.get(oldId);
+                if (article.sameContentAs(old)) {
+                    mIds.put(article.getNewsUrl(), oldId);
+                    continue;
+                }
+                // The new version takes the place of the old one
+                removeWords(oldId, old);
+                id = oldId;
+                mArticles.set(id, article);
+            } else if (mIds.size() >= mMaxArticles) {
+                // Drop the article added first and give its id to the new one
+                Iterator<Map.Entry<String, Integer>> oldest = mIds.entrySet().iterator();
+                id = oldest.next().getValue();
+                oldest.remove();
+                removeWords(id, mArticles.get(id));
+                mArticles.set(id, article);
+            } else {
+                id = mArticles.size();
+                mArticles.add(article);
+            }
+
+            mIds.put(article.getNewsUrl(), id);
+            for (String word : words(article)) {
+                IdList ids = mPostings.get(word);
+                if (ids == null) {
+                    ids = new IdList();
+                    mPostings.put(word, ids);
+                }
+                ids.add(id);
+            }
+        }
+    }
+
+    /** Removes the id of the article from the lists of its words */
+    private void removeWords(int id, Article article) {
+        for (String word : words(article)) {
+            IdList ids = mPostings.get(word);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                mPostings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Returns the articles which have words starting with every word of the query, newest
+     * first. Returns no articles for a query without any words.
+     *
+     * @param query what the user typed
+     * @param limit maximum number of articles returned
+     */
+    synchronized List<Article> search(String query, int limit) {
+        Set<String> prefixes = tokenize(query);
+        if (prefixes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        BitSet matches = null;
+        for (String prefix : prefixes) {
+            // All the words starting with the prefix are between the prefix and the prefix
+            // followed by the biggest character
+            SortedMap<String, IdList> range = mPostings.subMap(prefix, prefix + Character.MAX_VALUE);
+            BitSet prefixMatches = new BitSet(mArticles.size());
+            for (IdList ids : range.values()) {
+                ids.addTo(prefixMatches);
+            }
+            if (matches == null) {
+                matches = prefixMatches;
+            } else {
+                matches.and(prefixMatches);
+            }
+            if (matches.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<Article> results = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            results.add(mArticles.get(id));
+        }
+        Collections.sort(results, NEWEST_FIRST);
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            long aTime = a.getPublishedAt();
+            long bTime = b.getPublishedAt();
+            return aTime < bTime ? 1 : (aTime == bTime ? 0 : -1);
+        }
+    };
+
+    /** Returns the different words of the title, section and author of the article */
+    private static Set<String> words(Article article) {
+        Set<String> words = tokenize(article.getNewsTitle());
+        words.addAll(tokenize(article.getNewsSection()));
+        words.addAll(tokenize(article.getAuthorsName()));
+        return words;
+    }
+
+    /**
+     * Splits the text into lower case words made of letters and digits. Everything else,
+     * like spaces, punctuation and apostrophes, separates the words.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        String lowerCase = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerCase.length(); i++) {
+            boolean wordChar = i < lowerCase.length() && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lowerCase.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Sorted list of article ids, stored in an int array so it does not need an Integer
+     * object for every id.
+     */
+    private static class IdList {
+        private int[] mIds = new int[4];
+        private int mSize;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(mIds, 0, mSize, id);
+            if (index >= 0) {
+                return;
+            }
+            // Ids are reused, so a new one isn't always the biggest
+            index = -index - 1;
+            if (mSize == mIds.length) {
+                mIds = Arrays.copyOf(mIds, mSize * 2);
+            }
+            System.arraycopy(mIds, index, mIds, index + 1, mSize - index);
+            mIds[index] = id;
+            mSize++;
+        }
+
+        void remove(int id) {
+            int index = Arrays.binarySearch(mIds, 0, mSize, id);
+            if (index >= 0) {
+                System.arraycopy(mIds, index + 1, mIds, index, mSize - index - 1);
+                mSize--;
+            }
+        }
+
+        boolean isEmpty() {
+            return mSize == 0;
+        }
+
+        void addTo(BitSet set) {
+            for (int i = 0; i < mSize; i++) {
+                set.set(mIds[i]);
+            }
+        }
+    }
+}
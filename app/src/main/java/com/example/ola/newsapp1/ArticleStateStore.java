@@ -0,0 +1,439 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the user has done with each article: whether it has been read, whether it is
+ * bookmarked and when it was last opened, by the key of its website URL.
+ *
+ * The state is kept in memory in an open addressing table of primitive arrays, so the rows
+ * of the list can look it up while they are bound without allocating, hashing the URL or
+ * taking a lock.
+ * Changes are applied in memory at once and written behind, on a background thread: changes
+ * made within {@link #FLUSH_DELAY_MILLIS} of each other are appended to the file in one write.
+ *
+ * The file is a log of records (key, state, time opened), the last record of a key wins. It
+ * is compacted when it is read and holds many more records than articles, and state which is
+ * no longer worth keeping (read long ago, not bookmarked) is dropped then.
+ */
+final class ArticleStateStore {
+
+    private static final String LOG_TAG = ArticleStateStore.class.getName();
+
+    /** Name of the file in the app's files directory */
+    private static final String FILE_NAME = "article_state";
+
+    /** Identifies the file, and its version */
+    private static final int MAGIC = 0x4e535331;
+
+    /** Bytes of a record in the file: the key, the state and the time opened */
+    private static final int RECORD_SIZE = 8 + 1 + 8;
+
+    /** State bit of an article which has been opened */
+    static final int READ = 1;
+
+    /** State bit of an article the user has bookmarked */
+    static final int BOOKMARKED = 1 << 1;
+
+    /** Time a change waits for further changes before they are written together */
+    static final long FLUSH_DELAY_MILLIS = 1000;
+
+    /** Time after which the read state of an article which is not bookmarked is forgotten */
+    static final long READ_RETENTION_MILLIS = 180 * 24 * 60 * 60 * 1000L;
+
+    private static ArticleStateStore sInstance;
+
+    private final File mFile;
+    private final ScheduledExecutorService mWriter;
+    private final Executor mDelivery;
+
+    // Read without the lock, so rows being bound never wait for the writer. Changed with the
+    // lock held, slots are only ever added, and a bigger table replaces it as a whole.
+    private volatile Table mTable = new Table(256);
+    private int mSize;
+
+    // Keys changed since the last write, in the order they were changed
+    private long[] mDirty = new long[16];
+    private int mDirtyCount;
+    private boolean mFlushScheduled;
+
+    private boolean mLoaded;
+    private final List<Runnable> mOnLoaded = new ArrayList<>();
+
+    /**
+     * @param file where the state is kept
+     * @param writer reads and writes the file
+     * @param delivery runs the callbacks of {@link #whenLoaded(Runnable)}, on the main thread in the app
+     */
+    ArticleStateStore(File file, ScheduledExecutorService writer, Executor delivery) {
+        mFile = file;
+        mWriter = writer;
+        mDelivery = delivery;
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    /** Returns the store of the app, which starts reading its file in the background */
+    static synchronized ArticleStateStore getInstance(Context context) {
+        if (sInstance == null) {
+            final Handler mainHandler = new Handler(Looper.getMainLooper());
+            sInstance = new ArticleStateStore(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    Executors.newSingleThreadScheduledExecutor(), new Executor() {
+                        @Override
+                        public void execute(Runnable runnable) {
+                            mainHandler.post(runnable);
+                        }
+                    });
+        }
+        return sInstance;
+    }
+
+    /**
+     * Runs the callback once the state stored before has been read, or never if it has been
+     * read already. Until then only the changes made since the start are known.
+     */
+    synchronized void whenLoaded(Runnable callback) {
+        if (!mLoaded) {
+            mOnLoaded.add(callback);
+        }
+    }
+
+    /** Returns the state bits of the article, 0 if the user has done nothing with it */
+    int getState(Article article) {
+        Table table = mTable;
+        int slot = slotOf(table.mKeys, article.getUrlKey());
+        return table.mKeys[slot] != 0 ? table.mStates[slot] : 0;
+    }
+
+    /** Returns when the article was last opened, or 0 if it hasn't been */
+    long getOpenedAt(Article article) {
+        Table table = mTable;
+        int slot = slotOf(table.mKeys, article.getUrlKey());
+        return table.mKeys[slot] != 0 ? table.mOpenedAt[slot] : 0;
+    }
+
+    /** Marks the article as read, opened at the given time */
+    synchronized void markOpened(Article article, long now) {
+        int slot = put(article.getUrlKey());
+        mTable.mStates[slot] |= READ;
+        mTable.mOpenedAt[slot] = now;
+        changed(article.getUrlKey());
+    }
+
+    /** Bookmarks the article, or removes its bookmark */
+    synchronized void setBookmarked(Article article, boolean bookmarked) {
+        int slot = put(article.getUrlKey());
+        if (bookmarked) {
+            mTable.mStates[slot] |= BOOKMARKED;
+        } else {
+            mTable.mStates[slot] &= ~BOOKMARKED;
+        }
+        changed(article.getUrlKey());
+    }
+
+    /**
+     * Writes the changes now instead of waiting for more, for example when the app goes to
+     * the background and may be stopped. The writing still happens on the writer.
+     */
+    synchronized void flushSoon() {
+        if (mDirtyCount > 0) {
+            mFlushScheduled = true;
+            mWriter.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            });
+        }
+    }
+
+    /** Remembers that the key changed and schedules a write, if none is waiting */
+    private void changed(long key) {
+        if (mDirtyCount == mDirty.length) {
+            mDirty = Arrays.copyOf(mDirty, mDirty.length * 2);
+        }
+        mDirty[mDirtyCount++] = key;
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mWriter.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Appends the state of the changed keys to the file, in one write */
+    private void flush() {
+        byte[] records;
+        synchronized (this) {
+            mFlushScheduled = false;
+            if (mDirtyCount == 0 || !mLoaded) {
+                // Written by load() once the file has been read
+                return;
+            }
+            Table table = mTable;
+            records = new byte[mDirtyCount * RECORD_SIZE];
+            for (int i = 0; i < mDirtyCount; i++) {
+                int slot = slotOf(table.mKeys, mDirty[i]);
+                putRecord(records, i * RECORD_SIZE, table.mKeys[slot], table.mStates[slot],
+                        table.mOpenedAt[slot]);
+            }
+            mDirtyCount = 0;
+        }
+        try {
+            boolean created = !mFile.exists();
+            FileOutputStream out = new FileOutputStream(mFile, true);
+            try {
+                if (created) {
+                    new DataOutputStream(out).writeInt(MAGIC);
+                }
+                out.write(records);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem writing the article state", e);
+        }
+    }
+
+    /**
+     * Reads the file into the table. Keys which changed before it was read keep their new
+     * state. Rewrites the file if it holds many records which are no longer needed.
+     */
+    private void load() {
+        long now = System.currentTimeMillis();
+        int records = 0;
+        boolean damaged = false;
+        if (mFile.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+                if (in.readInt() != MAGIC) {
+                    damaged = true;
+                } else {
+                    byte[] record = new byte[RECORD_SIZE];
+                    while (true) {
+                        try {
+                            in.readFully(record);
+                        } catch (EOFException e) {
+                            // The end, or a record which was only partly written
+                            break;
+                        }
+                        records++;
+                        readRecord(record, now);
+                    }
+                    // A record cut off at the end would put every record appended after it
+                    // out of line, so the file is rewritten without it
+                    if (mFile.length() != 4 + (long) records * RECORD_SIZE) {
+                        damaged = true;
+                    }
+                }
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Problem reading the article state", e);
+                damaged = true;
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        // Everything has been read
+                    }
+                }
+            }
+        }
+
+        List<Runnable> callbacks;
+        synchronized (this) {
+            mLoaded = true;
+            callbacks = new ArrayList<>(mOnLoaded);
+            mOnLoaded.clear();
+        }
+        for (Runnable callback : callbacks) {
+            mDelivery.execute(callback);
+        }
+
+        if (damaged || records > 2 * size() + 64) {
+            compact();
+        }
+        // Changes made while the file was read
+        flush();
+    }
+
+    /** Applies a record of the file to the table, unless the key has changed since the start */
+    private synchronized void readRecord(byte[] record, long now) {
+        long key = getLong(record, 0);
+        int state = record[8];
+        long openedAt = getLong(record, 9);
+        int slot = slotOf(mTable.mKeys, key);
+        boolean known = mTable.mKeys[slot] != 0;
+        if (known && isDirty(key)) {
+            return;
+        }
+        if (state == 0 || state == READ && now - openedAt > READ_RETENTION_MILLIS) {
+            // Nothing worth keeping, dropped when the file is compacted
+            if (known) {
+                mTable.mStates[slot] = 0;
+            }
+            return;
+        }
+        slot = put(key);
+        mTable.mStates[slot] = (byte) state;
+        mTable.mOpenedAt[slot] = openedAt;
+    }
+
+    /**
+     * Replaces the file with one record for every article with some state, including the
+     * changes which are still waiting to be written.
+     */
+    private void compact() {
+        byte[] records;
+        synchronized (this) {
+            Table table = mTable;
+            records = new byte[mSize * RECORD_SIZE];
+            int length = 0;
+            for (int slot = 0; slot < table.mKeys.length; slot++) {
+                if (table.mKeys[slot] != 0 && table.mStates[slot] != 0) {
+                    putRecord(records, length, table.mKeys[slot], table.mStates[slot], table.mOpenedAt[slot]);
+                    length += RECORD_SIZE;
+                }
+            }
+            records = Arrays.copyOf(records, length);
+            // The waiting changes are in the records. Later ones are appended to the new file.
+            mDirtyCount = 0;
+        }
+        File temp = new File(mFile.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(MAGIC);
+                out.write(records);
+            } finally {
+                out.close();
+            }
+            // Readers see the old file or the new one, never half of one
+            if (!temp.renameTo(mFile)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem compacting the article state", e);
+            temp.delete();
+        }
+    }
+
+    private synchronized int size() {
+        return mSize;
+    }
+
+    private boolean isDirty(long key) {
+        for (int i = 0; i < mDirtyCount; i++) {
+            if (mDirty[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the slot of the key, adding the key with no state if it isn't in the table.
+     * Called with the lock held.
+     */
+    private int put(long key) {
+        int slot = slotOf(mTable.mKeys, key);
+        if (mTable.mKeys[slot] == 0) {
+            if ((mSize + 1) * 2 > mTable.mKeys.length) {
+                grow();
+                slot = slotOf(mTable.mKeys, key);
+            }
+            // A reader which finds the key before its state is set sees no state, as before
+            mTable.mKeys[slot] = key;
+            mSize++;
+        }
+        return slot;
+    }
+
+    /** Publishes a table twice as big, with the same contents */
+    private void grow() {
+        Table old = mTable;
+        Table table = new Table(old.mKeys.length * 2);
+        for (int i = 0; i < old.mKeys.length; i++) {
+            if (old.mKeys[i] != 0) {
+                int slot = slotOf(table.mKeys, old.mKeys[i]);
+                table.mKeys[slot] = old.mKeys[i];
+                table.mStates[slot] = old.mStates[i];
+                table.mOpenedAt[slot] = old.mOpenedAt[i];
+            }
+        }
+        mTable = table;
+    }
+
+    /** Returns the slot of the key, or the empty slot where it would go */
+    private static int slotOf(long[] keys, long key) {
+        int mask = keys.length - 1;
+        // The keys are hashes already, their bits only need folding
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /** Open addressing table of keys (0 for an empty slot), state bits and times opened */
+    private static final class Table {
+        final long[] mKeys;
+        final byte[] mStates;
+        final long[] mOpenedAt;
+
+        Table(int capacity) {
+            mKeys = new long[capacity];
+            mStates = new byte[capacity];
+            mOpenedAt = new long[capacity];
+        }
+    }
+
+    private static void putRecord(byte[] bytes, int offset, long key, int state, long openedAt) {
+        putLong(bytes, offset, key);
+        bytes[offset + 8] = (byte) state;
+        putLong(bytes, offset + 9, openedAt);
+    }
+
+    private static void putLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.ola.newsapp1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds {@link Article} objects straight from the Guardian JSON response while it is being read.
+ *
+ * Unlike {@link QueryUtils#extractFeatureFromJson(String)} it never keeps the whole response
+ * (or a tree of JSONObjects) in memory. Each article is created as soon as its element in the
+ * "results" array is finished, and fields we don't show are skipped. Only the tags and fields
+ * of the {@link ArticleProjection} the response was requested with are read.
+ */
+final class ArticleStreamParser {
+
+    // Keys used for the JSON response
+    private static final String json_response = "response";
+    private static final String json_results = "results";
+    private static final String json_section = "sectionName";
+    private static final String json_date = "webPublicationDate";
+    private static final String json_title = "webTitle";
+    private static final String json_url = "webUrl";
+    private static final String json_tags = "tags";
+    private static final String json_author = "webTitle";
+    private static final String json_fields = "fields";
+    private static final String json_thumbnail = "thumbnail";
+    private static final String json_body_text = "bodyText";
+
+    private static final String[] NO_CONTRIBUTORS = new String[0];
+
+    private ArticleStreamParser() {
+    }
+
+    /**
+     * Parse the response from the given {@link InputStream} and return a list of {@link Article}s.
+     * If the response is malformed, the articles parsed before the problem are still returned.
+     */
+    static List<Article> parse(InputStream inputStream) throws IOException {
+        return parse(inputStream, -1, null, ArticleProjection.ROWS);
+    }
+
+    /**
+     * Same as {@link #parse(InputStream)}, reading the response into a pooled buffer sized for
+     * the given length, so a small response doesn't need a big buffer and a buffer is not
+     * allocated for every response.
+     *
+     * Each article is also added to the given index as soon as it is parsed, so the index
+     * is built in the same pass over the response.
+     *
+     * @param contentLength the length of the response in bytes, or -1 if it is not known
+     * @param index where the articles are added by contributor, or null
+     * @param projection the parts of the articles the response was requested with, anything
+     *                   else is skipped
+     */
+    static List<Article> parse(InputStream inputStream, long contentLength, ContributorIndex index, ArticleProjection projection) throws IOException {
+        List<Article> articlesList = new ArrayList<>();
+        byte[] buffer = BufferPool.acquire(BufferPool.sizeFor(contentLength));
+        try {
+            readRoot(new JsonPullReader(inputStream, buffer), articlesList, index, projection);
+        } catch (IOException e) {
+            // Keep the articles which were complete before the stream broke
+            if (articlesList.isEmpty()) {
+                throw e;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return articlesList;
+    }
+
+    /**
+     * Parse a response requested with show-fields=bodyText and return the text of each
+     * article, by its website URL. Articles without a text are left out. If the response is
+     * malformed, the texts parsed before the problem are still returned.
+     *
+     * @param contentLength the length of the response in bytes, or -1 if it is not known
+     */
+    static Map<String, String> parseBodies(InputStream inputStream, long contentLength) throws IOException {
+        Map<String, String> bodies = new LinkedHashMap<>();
+        byte[] buffer = BufferPool.acquire(BufferPool.sizeFor(contentLength));
+        try {
+            JsonPullReader reader = new JsonPullReader(inputStream, buffer);
+            if (moveToResults(reader)) {
+                readBodies(reader, bodies);
+            }
+        } catch (IOException e) {
+            if (bodies.isEmpty()) {
+                throw e;
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        return bodies;
+    }
+
+    private static void readRoot(JsonPullReader reader, List<Article> articlesList,
+                                 ContributorIndex index, ArticleProjection projection) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (json_response.equals(reader.nextName())) {
+                readResponse(reader, articlesList, index, projection);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readResponse(JsonPullReader reader, List<Article> articlesList,
+                                     ContributorIndex index, ArticleProjection projection) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (json_results.equals(reader.nextName())) {
+                readResults(reader, articlesList, index, projection);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readResults(JsonPullReader reader, List<Article> articlesList,
+                                    ContributorIndex index, ArticleProjection projection) throws IOException {
+        // Looked up once, not for every result
+        boolean readContributors = projection.has(ArticleProjection.CONTRIBUTORS);
+        boolean readThumbnail = projection.has(ArticleProjection.THUMBNAIL);
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String title = null;
+            String section = null;
+            String date = null;
+            String url = null;
+            String thumbnail = null;
+            // An article without tags has no byline
+            String[] contributors = NO_CONTRIBUTORS;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (json_title.equals(name)) {
+                    title = reader.nextString();
+                } else if (json_section.equals(name)) {
+                    section = reader.nextString();
+                } else if (json_date.equals(name)) {
+                    date = reader.nextString();
+                } else if (json_url.equals(name)) {
+                    url = reader.nextString();
+                } else if (readContributors && json_tags.equals(name)) {
+                    contributors = readContributors(reader);
+                } else if (readThumbnail && json_fields.equals(name)) {
+                    thumbnail = readField(reader, json_thumbnail);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (title == null || section == null || date == null || url == null) {
+                throw new IOException("Article without a title, section, date or url");
+            }
+
+            // Create a new {@link Article} object with the title, section, contributors, date,
+            // url and thumbnail from the JSON response.
+            Article article = new Article(title, section, contributors,
+                    ArticleDates.parseIso8601(date), url, thumbnail);
+            articlesList.add(article);
+            if (index != null) {
+                index.add(article);
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Skip ahead to the "results" array of the response. Returns false if there is none.
+     * Only what comes before the array is read, the rest of the response is left unread.
+     */
+    private static boolean moveToResults(JsonPullReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (json_response.equals(reader.nextName())) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (json_results.equals(reader.nextName())) {
+                        return true;
+                    }
+                    reader.skipValue();
+                }
+                return false;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private static void readBodies(JsonPullReader reader, Map<String, String> bodies) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String url = null;
+            String body = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (json_url.equals(name)) {
+                    url = reader.nextString();
+                } else if (json_fields.equals(name)) {
+                    body = readField(reader, json_body_text);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (url != null && body != null && !body.isEmpty()) {
+                bodies.put(url, body);
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * Read the "fields" object and return the value of the given field, or null if there is none.
+     */
+    private static String readField(JsonPullReader reader, String field) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (field.equals(reader.nextName())) {
+                value = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    /**
+     * Read the "tags" array and return the names of all the contributors, in order. Tags
+     * without a name, or with a null or blank one, are left out.
+     */
+    private static String[] readContributors(JsonPullReader reader) throws IOException {
+        List<String> contributors = new ArrayList<>(2);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (json_author.equals(reader.nextName())) {
+                    // A null or blank name would end up as "null" in the byline and break
+                    // the stores and indexes the name is kept in
+                    String name = reader.nextString();
+                    if (name != null && !name.trim().isEmpty()) {
+                        contributors.add(name);
+                    }
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        reader.endArray();
+        return contributors.isEmpty() ? NO_CONTRIBUTORS : contributors.toArray(new String[contributors.size()]);
+    }
+}
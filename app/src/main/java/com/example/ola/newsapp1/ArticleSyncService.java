@@ -0,0 +1,186 @@
+package com.example.ola.newsapp1;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the first page of articles in the background, so they are already stored on the
+ * device when the user opens the app. If the user asked for it in the settings, the text of
+ * those articles is downloaded too, so they can be read without a connection.
+ *
+ * The job only runs on an unmetered network while the device is charging, and asks the
+ * {@link JobScheduler} to try again later, with exponential backoff, if some sections
+ * could not be refreshed.
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class ArticleSyncService extends JobService {
+
+    private static final String LOG_TAG = ArticleSyncService.class.getName();
+
+    /** The app only has one background job, so scheduling it again replaces the same job */
+    private static final int JOB_ID = 1;
+
+    /** How often the articles are refreshed */
+    private static final long SYNC_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** First delay before a failed sync is retried, it doubles with every failure */
+    private static final long INITIAL_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /** Thread running the current sync, null when there is none */
+    private Thread mSyncThread;
+
+    /**
+     * Schedules the periodic sync, unless it is already scheduled. Does nothing before
+     * Android 5.0, where the articles are only loaded when the app is open.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null) {
+            return;
+        }
+
+        // Scheduling the job again would restart its period (and lose its backoff), so keep
+        // the one which is already there
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == JOB_ID) {
+                return;
+            }
+        }
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, ArticleSyncService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(SYNC_INTERVAL_MILLIS)
+                .setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        if (scheduler.schedule(job) != JobScheduler.RESULT_SUCCESS) {
+            Log.w(LOG_TAG, "The article sync could not be scheduled");
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        // The job runs on the main thread, so the requests are made on a thread of their own
+        mSyncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean retry = !sync(getApplicationContext());
+                if (!Thread.currentThread().isInterrupted()) {
+                    jobFinished(params, retry);
+                }
+            }
+        }, "ArticleSync");
+        mSyncThread.setPriority(Thread.MIN_PRIORITY);
+        mSyncThread.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // The constraints are no longer met, e.g. the charger was unplugged
+        if (mSyncThread != null) {
+            mSyncThread.interrupt();
+            mSyncThread = null;
+        }
+        // Run the job again when the constraints are met
+        return true;
+    }
+
+    /**
+     * Refreshes the stored first page of every section the user follows, using the same
+     * URLs as the list screen. Sections which are still fresh are not requested.
+     *
+     * @return true if all the sections are fresh (and their texts stored, if the user reads
+     * offline) afterwards
+     */
+    static boolean sync(Context context) {
+        ArticleQuery query = ArticleQuery.loadCurrent(context);
+        ArticleFetcher fetcher = ArticleFetcher.getInstance(context);
+
+        List<String> urls = query.getUrls(1);
+        boolean allFresh = true;
+        for (String url : urls) {
+            allFresh &= fetcher.isFresh(fetcher.getStored(url));
+        }
+        if (!allFresh) {
+            try {
+                // Stale entries are revalidated, so unchanged sections cost only a short response.
+                // Fresh ones are not requested at all.
+                SectionFetcher.fetch(urls, fetcher, query.isNewestFirst(), null);
+            } catch (InterruptedException e) {
+                Log.w(LOG_TAG, "Sync was interrupted", e);
+                return false;
+            }
+            allFresh = true;
+            for (String url : urls) {
+                allFresh &= fetcher.isFresh(fetcher.getStored(url));
+            }
+        }
+
+        if (query.isOfflineReading()) {
+            allFresh &= syncBodies(query, fetcher, ArticleBodyStore.getInstance(context));
+        }
+        return allFresh;
+    }
+
+    /**
+     * Downloads the text of the stored articles of the first page of every section, for the
+     * sections which have articles without a stored text.
+     *
+     * @return true if the texts of all the sections are stored afterwards
+     */
+    static boolean syncBodies(ArticleQuery query, ArticleFetcher fetcher, ArticleBodyStore store) {
+        List<String> urls = query.getUrls(1);
+        List<String> bodyUrls = query.getBodyUrls(1);
+        boolean allStored = true;
+        for (int i = 0; i < urls.size(); i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            ArticleCache.Entry entry = fetcher.getStored(urls.get(i));
+            if (entry == null || hasAllBodies(entry.getArticles(), store)) {
+                continue;
+            }
+
+            Map<String, String> bodies = QueryUtils.fetchArticleBodies(bodyUrls.get(i));
+            if (bodies == null) {
+                allStored = false;
+                continue;
+            }
+            // Texts which are already stored don't change, only the new ones are written
+            Map<String, String> newBodies = new HashMap<>();
+            for (Map.Entry<String, String> body : bodies.entrySet()) {
+                if (!store.contains(body.getKey())) {
+                    newBodies.put(body.getKey(), body.getValue());
+                }
+            }
+            store.putAll(newBodies);
+        }
+        return allStored;
+    }
+
+    private static boolean hasAllBodies(List<Article> articles, ArticleBodyStore store) {
+        for (Article article : articles) {
+            if (!store.contains(article.getNewsUrl())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ola.newsapp1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Byte arrays for reading responses, reused from one request to the next so that reading a
+ * response doesn't allocate buffers in proportion to its size.
+ *
+ * Sizes are rounded up to a power of two, so a buffer returned by one request fits the next
+ * request of a similar size.
+ */
+final class BufferPool {
+
+    /** Smallest buffer handed out */
+    static final int MIN_SIZE = 2 * 1024;
+
+    /** Biggest buffer handed out, and biggest buffer kept for reuse */
+    static final int MAX_SIZE = 64 * 1024;
+
+    /**
+     * Number of buffers kept, enough for all the requests which run at the same time
+     * (see SectionFetcher.MAX_PARALLEL_REQUESTS) and a couple more
+     */
+    private static final int MAX_POOLED = 6;
+
+    private static final List<byte[]> sPool = new ArrayList<>();
+
+    private BufferPool() {
+    }
+
+    /**
+     * Returns the size of the buffer to use for a response, from its Content-Length.
+     *
+     * @param contentLength the length of the response, or -1 if it is not known
+     */
+    static int sizeFor(long contentLength) {
+        if (contentLength < 0 || contentLength > MAX_SIZE) {
+            return MAX_SIZE;
+        }
+        int size = MIN_SIZE;
+        while (size < contentLength) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Returns a buffer of at least the given size (up to {@link #MAX_SIZE}). Give it back with
+     * {@link #release(byte[])} when it is no longer used.
+     */
+    static byte[] acquire(int size) {
+        int wanted = sizeFor(size);
+        synchronized (sPool) {
+            // The smallest pooled buffer which is big enough
+            int best = -1;
+            for (int i = 0; i < sPool.size(); i++) {
+                int length = sPool.get(i).length;
+                if (length >= wanted && (best < 0 || length < sPool.get(best).length)) {
+                    best = i;
+                }
+            }
+            if (best >= 0) {
+                return sPool.remove(best);
+            }
+        }
+        return new byte[wanted];
+    }
+
+    /** Returns a buffer to the pool. The buffer must not be used any more afterwards. */
+    static void release(byte[] buffer) {
+        if (buffer == null || buffer.length > MAX_SIZE) {
+            return;
+        }
+        synchronized (sPool) {
+            if (sPool.size() < MAX_POOLED) {
+                sPool.add(buffer);
+            } else {
+                // Keep the biggest buffers, they fit every request
+                int smallest = 0;
+                for (int i = 1; i < sPool.size(); i++) {
+                    if (sPool.get(i).length < sPool.get(smallest).length) {
+                        smallest = i;
+                    }
+                }
+                if (sPool.get(smallest).length < buffer.length) {
+                    sPool.set(smallest, buffer);
+                }
+            }
+        }
+    }
+}
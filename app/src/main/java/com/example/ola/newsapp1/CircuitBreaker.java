@@ -0,0 +1,97 @@
+package com.example.ola.newsapp1;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stops sending requests to a server after several of them failed in a row, so the app
+ * falls back to the stored articles at once instead of waiting for every request to time out.
+ *
+ * After {@link #FAILURE_THRESHOLD} failures the breaker is open and refuses requests for
+ * {@link #OPEN_MILLIS}. Then it lets one request through: if it succeeds the breaker closes,
+ * if it fails the breaker opens again. A server which says it is rate limiting the app opens
+ * the breaker for as long as the server asked.
+ *
+ * Times are passed in, in milliseconds, so the breaker can be tested without waiting.
+ */
+final class CircuitBreaker {
+
+    /**
+     * Failures in a row which open the breaker. More than the attempts of one request, so a
+     * single request which used up its retries doesn't shut out all the others.
+     */
+    static final int FAILURE_THRESHOLD = 2 * HttpRetry.MAX_ATTEMPTS;
+
+    /** How long an open breaker refuses requests */
+    static final long OPEN_MILLIS = 30 * 1000L;
+
+    private static final Map<String, CircuitBreaker> sBreakers = new HashMap<>();
+
+    private int mFailures;
+    // Until when requests are refused, 0 when the breaker is closed
+    private long mOpenUntil;
+    // True while the one request let through after the breaker was open is running
+    private boolean mTrialRunning;
+
+    /** Returns the breaker of the given server */
+    static CircuitBreaker forHost(String host) {
+        synchronized (sBreakers) {
+            CircuitBreaker breaker = sBreakers.get(host);
+            if (breaker == null) {
+                breaker = new CircuitBreaker();
+                sBreakers.put(host, breaker);
+            }
+            return breaker;
+        }
+    }
+
+    /** Returns true if a request may be sent now. Report its result with one of the record methods. */
+    synchronized boolean allowRequest(long now) {
+        if (mOpenUntil == 0) {
+            return true;
+        }
+        if (now < mOpenUntil || mTrialRunning) {
+            return false;
+        }
+        // Let one request find out if the server is back
+        mTrialRunning = true;
+        return true;
+    }
+
+    /** Returns true if requests are refused at the moment */
+    synchronized boolean isOpen(long now) {
+        return mOpenUntil != 0 && (now < mOpenUntil || mTrialRunning);
+    }
+
+    synchronized void recordSuccess() {
+        mFailures = 0;
+        mOpenUntil = 0;
+        mTrialRunning = false;
+    }
+
+    synchronized void recordFailure(long now) {
+        mFailures++;
+        if (mTrialRunning || mFailures >= FAILURE_THRESHOLD) {
+            open(now, OPEN_MILLIS);
+        }
+    }
+
+    /**
+     * Reports a request which ended without telling anything about the server, e.g. because
+     * it was cancelled. It is not counted as a failure, but if it was the trial request of an
+     * open breaker the next request is let through instead.
+     */
+    synchronized void recordCancelled() {
+        mTrialRunning = false;
+    }
+
+    /** Refuses requests for the given time, e.g. when the server asked the app to slow down */
+    synchronized void openFor(long now, long millis) {
+        open(now, Math.max(millis, 0));
+    }
+
+    private void open(long now, long millis) {
+        mOpenUntil = Math.max(mOpenUntil, now + millis);
+        mTrialRunning = false;
+    }
+}
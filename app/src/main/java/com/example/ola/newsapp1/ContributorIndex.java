@@ -0,0 +1,133 @@
+package com.example.ola.newsapp1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The articles on the device by contributor, so the "More by" list of an author is one
+ * lookup instead of a scan of every stored list or another request.
+ *
+ * Downloaded articles are added by the {@link ArticleStreamParser} as soon as each one is
+ * parsed, stored articles when they are read. An article with the same URL as one already in
+ * the index replaces it. When the index is full, the articles added first are dropped.
+ */
+final class ContributorIndex {
+
+    /** Maximum number of articles in the index */
+    static final int MAX_ARTICLES = 5000;
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            return a.getPublishedAt() < b.getPublishedAt() ? 1
+                    : a.getPublishedAt() > b.getPublishedAt() ? -1 : 0;
+        }
+    };
+
+    private static ContributorIndex sInstance;
+
+    /** The articles of one contributor */
+    private static final class Contributor {
+        // URL -> article
+        final Map<String, Article> mArticles = new HashMap<>();
+        // The articles newest first, or null until they are asked for after a change
+        List<Article> mSorted;
+    }
+
+    // Contributor -> their articles
+    private final Map<String, Contributor> mByContributor = new HashMap<>();
+
+    // URL -> article, in the order the articles were added, to find the ones to drop
+    private final LinkedHashMap<String, Article> mByUrl = new LinkedHashMap<>();
+
+    private final int mMaxArticles;
+
+    ContributorIndex(int maxArticles) {
+        mMaxArticles = maxArticles;
+    }
+
+    /** Returns the index shared by the whole app */
+    static synchronized ContributorIndex getInstance() {
+        if (sInstance == null) {
+            sInstance = new ContributorIndex(MAX_ARTICLES);
+        }
+        return sInstance;
+    }
+
+    /** Returns the number of articles in the index */
+    synchronized int size() {
+        return mByUrl.size();
+    }
+
+    /** Adds the article, replacing the one with the same URL */
+    synchronized void add(Article article) {
+        Article old = mByUrl.get(article.getNewsUrl());
+        if (old == article) {
+            // Already added while it was parsed
+            return;
+        }
+        if (old != null) {
+            mByUrl.remove(article.getNewsUrl());
+            removeContributors(old);
+        } else if (mByUrl.size() >= mMaxArticles) {
+            Iterator<Article> oldest = mByUrl.values().iterator();
+            removeContributors(oldest.next());
+            oldest.remove();
+        }
+        mByUrl.put(article.getNewsUrl(), article);
+        for (String name : article.getContributors()) {
+            Contributor contributor = mByContributor.get(name);
+            if (contributor == null) {
+                contributor = new Contributor();
+                mByContributor.put(name, contributor);
+            }
+            contributor.mArticles.put(article.getNewsUrl(), article);
+            contributor.mSorted = null;
+        }
+    }
+
+    /** Adds the articles, see {@link #add(Article)} */
+    synchronized void addAll(Collection<Article> articles) {
+        for (Article article : articles) {
+            add(article);
+        }
+    }
+
+    /**
+     * Returns the articles of the contributor, newest first, or an empty list if the index
+     * has none. The list can't be changed. It is sorted once and then reused until the
+     * articles of the contributor change.
+     */
+    synchronized List<Article> get(String name) {
+        Contributor contributor = mByContributor.get(name);
+        if (contributor == null) {
+            return Collections.emptyList();
+        }
+        if (contributor.mSorted == null) {
+            List<Article> sorted = new ArrayList<>(contributor.mArticles.values());
+            Collections.sort(sorted, NEWEST_FIRST);
+            contributor.mSorted = Collections.unmodifiableList(sorted);
+        }
+        return contributor.mSorted;
+    }
+
+    private void removeContributors(Article article) {
+        for (String name : article.getContributors()) {
+            Contributor contributor = mByContributor.get(name);
+            if (contributor != null) {
+                contributor.mArticles.remove(article.getNewsUrl());
+                contributor.mSorted = null;
+                if (contributor.mArticles.isEmpty()) {
+                    mByContributor.remove(name);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ola.newsapp1;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+
+/**
+ * Fails the reads of a response once the deadline of its request has passed.
+ *
+ * The read timeout only limits the wait for the next bytes, so a server which sends a few
+ * bytes every now and then could keep a request running far beyond its deadline. Each read
+ * checks the clock, and a blocked read is cut off by the read timeout, which is never longer
+ * than what is left of the deadline (see {@link HttpRetry}).
+ */
+final class DeadlineInputStream extends FilterInputStream {
+
+    // System.nanoTime() at the deadline
+    private final long mDeadlineNanos;
+
+    DeadlineInputStream(InputStream in, long deadlineNanos) {
+        super(in);
+        mDeadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkDeadline();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        checkDeadline();
+        return super.read(buffer, offset, length);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkDeadline();
+        return super.skip(n);
+    }
+
+    private void checkDeadline() throws SocketTimeoutException {
+        if (System.nanoTime() - mDeadlineNanos >= 0) {
+            // A timeout, so HttpRetry counts it as a failure of the server
+            throw new SocketTimeoutException("The response did not arrive in time");
+        }
+    }
+}
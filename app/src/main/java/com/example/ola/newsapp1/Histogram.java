@@ -0,0 +1,133 @@
+package com.example.ola.newsapp1;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of recorded values, e.g. durations in microseconds or sizes in bytes.
+ *
+ * Values are counted in buckets which grow exponentially: every power of two is split into
+ * {@link #SUB_BUCKETS} equal parts, so a percentile is never off by more than about 12%.
+ * Recording only increments a few counters, without locks or allocation, so it can be done
+ * from any thread on the hot path.
+ */
+public final class Histogram {
+
+    /** Number of buckets for every power of two */
+    private static final int SUB_BUCKETS = 8;
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /** Values up to 2^63 - 1 are covered */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final String mName;
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong(Long.MIN_VALUE);
+
+    Histogram(String name) {
+        mName = name;
+    }
+
+    /** Returns the name of the histogram */
+    public String getName() {
+        return mName;
+    }
+
+    /** Records one value. Negative values are recorded as 0. */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mCounts.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    /** Returns the number of recorded values */
+    public long getCount() {
+        return mCount.get();
+    }
+
+    /** Returns the average of the recorded values, or 0 if there are none */
+    public double getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : (double) mSum.get() / count;
+    }
+
+    /** Returns the biggest recorded value, or 0 if there are none */
+    public long getMax() {
+        return mCount.get() == 0 ? 0 : mMax.get();
+    }
+
+    /**
+     * Returns the value below which the given percentage of the recorded values are, e.g.
+     * 50 for the median. It is the upper end of the bucket of that value, but never more than
+     * the biggest recorded value.
+     */
+    public long getPercentile(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += mCounts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /** Removes all recorded values */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            mCounts.set(bucket, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(Long.MIN_VALUE);
+    }
+
+    /** Returns one line with the count, mean, median, p90, p99 and maximum */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+                mName, getCount(), getMean(), getPercentile(50), getPercentile(90),
+                getPercentile(99), getMax());
+    }
+
+    /**
+     * Returns the bucket of the value. Values smaller than {@link #SUB_BUCKETS} have a bucket
+     * each, bigger ones share a bucket with the values which have the same highest bits.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /** Returns the biggest value which is counted in the bucket */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        long upper = lowest + (1L << shift) - 1;
+        // The last bucket would overflow
+        return upper < lowest ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.ola.newsapp1;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Runs a request again when it failed for a reason which may go away: a network error, a
+ * timeout or a status code which means the server is busy. All the attempts together have
+ * one deadline, so a bad network makes the user wait for the deadline at most, not for the
+ * sum of all the timeouts.
+ *
+ * Attempts are spaced by an exponential backoff with jitter, or by the Retry-After time
+ * the server asked for. Every attempt goes through the {@link CircuitBreaker} of the server,
+ * so once the server is known to be down the request fails at once.
+ */
+final class HttpRetry {
+
+    /** Number of attempts of one request, the first one included */
+    static final int MAX_ATTEMPTS = 3;
+
+    /** Backoff before the second attempt, it doubles for every further attempt */
+    static final long BASE_DELAY_MILLIS = 500;
+
+    /** Upper limit of the backoff */
+    static final long MAX_DELAY_MILLIS = 4000;
+
+    /** Time all the attempts of one request together may take */
+    static final long BUDGET_MILLIS = 12000;
+
+    /** Limits of the timeouts of one attempt, shortened to what is left of the budget */
+    private static final long MAX_CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final long MAX_READ_TIMEOUT_MILLIS = 8000;
+
+    /** Status code of a server which is rate limiting the app, not in HttpURLConnection */
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /** The retries of all requests to the Guardian API */
+    static final HttpRetry DEFAULT = new HttpRetry(MAX_ATTEMPTS, BASE_DELAY_MILLIS, MAX_DELAY_MILLIS, BUDGET_MILLIS);
+
+    /**
+     * One attempt of a request.
+     */
+    interface Call<T> {
+        /**
+         * Makes the request with the given timeouts and returns its result. An error status
+         * code is thrown as an {@link HttpStatusException}.
+         *
+         * @param deadlineNanos the System.nanoTime() by which the response has to be read,
+         *                      see {@link DeadlineInputStream}
+         */
+        T run(int connectTimeoutMillis, int readTimeoutMillis, long deadlineNanos) throws IOException;
+    }
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final long mBudgetMillis;
+    private final Random mRandom = new Random();
+
+    HttpRetry(int maxAttempts, long baseDelayMillis, long maxDelayMillis, long budgetMillis) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mBudgetMillis = budgetMillis;
+    }
+
+    /**
+     * Runs the call until it succeeds, fails for good or the deadline passes, and returns its
+     * result. Throws the failure of the last attempt, or an IOException right away if the
+     * breaker refuses requests to the server.
+     */
+    <T> T execute(CircuitBreaker breaker, Call<T> call) throws IOException {
+        long startNanos = System.nanoTime();
+        IOException failure = null;
+        int attempt = 0;
+        try {
+            while (true) {
+                long remaining = mBudgetMillis - (System.nanoTime() - startNanos) / 1000000;
+                if (remaining <= 0) {
+                    throw deadlinePassed(failure);
+                }
+                if (!breaker.allowRequest(System.currentTimeMillis())) {
+                    throw new IOException("The server failed too often, not asking it for now", failure);
+                }
+
+                attempt++;
+                long retryAfter = -1;
+                // False until the result of the attempt is reported to the breaker
+                boolean reported = false;
+                try {
+                    T result = call.run((int) Math.min(MAX_CONNECT_TIMEOUT_MILLIS, remaining),
+                            (int) Math.min(MAX_READ_TIMEOUT_MILLIS, remaining),
+                            startNanos + mBudgetMillis * 1000000);
+                    breaker.recordSuccess();
+                    reported = true;
+                    return result;
+                } catch (HttpStatusException e) {
+                    failure = e;
+                    if (!isRetryable(e.getResponseCode())) {
+                        // The server is up, it just doesn't like the request
+                        breaker.recordSuccess();
+                        reported = true;
+                        throw e;
+                    }
+                    retryAfter = e.getRetryAfterMillis();
+                    if (retryAfter >= 0) {
+                        // Nothing else gets through to the server until then either
+                        breaker.openFor(System.currentTimeMillis(), retryAfter);
+                    } else {
+                        breaker.recordFailure(System.currentTimeMillis());
+                    }
+                    reported = true;
+                } catch (InterruptedIOException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        // Cancelled, not a problem of the server
+                        throw e;
+                    }
+                    failure = e;
+                    breaker.recordFailure(System.currentTimeMillis());
+                    reported = true;
+                } catch (IOException e) {
+                    failure = e;
+                    breaker.recordFailure(System.currentTimeMillis());
+                    reported = true;
+                } finally {
+                    if (!reported) {
+                        // Cancelled, or the call threw something else. If this was the trial
+                        // request of an open breaker, the next request may try again.
+                        breaker.recordCancelled();
+                    }
+                }
+
+                if (attempt >= mMaxAttempts) {
+                    throw failure;
+                }
+                long delay = Math.max(backoff(attempt), retryAfter);
+                if ((System.nanoTime() - startNanos) / 1000000 + delay >= mBudgetMillis) {
+                    // The next attempt could not finish in time anyway
+                    throw deadlinePassed(failure);
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting to retry");
+                }
+            }
+        } finally {
+            Metrics.record(Metrics.HTTP_ATTEMPTS, attempt);
+        }
+    }
+
+    /**
+     * Returns the time to wait after the given failed attempt: half of the exponential
+     * backoff plus a random part of the other half, so the requests of all the sections
+     * (and of all the devices) which failed together don't all come back at the same moment.
+     */
+    long backoff(int attempt) {
+        long delay = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(attempt - 1, 16));
+        long half = delay / 2;
+        return half + (half > 0 ? (long) (mRandom.nextDouble() * half) : 0);
+    }
+
+    /** Returns true if a request which got the status code may succeed when it is sent again */
+    static boolean isRetryable(int responseCode) {
+        return responseCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                || responseCode == HTTP_TOO_MANY_REQUESTS
+                || responseCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || responseCode == HttpURLConnection.HTTP_BAD_GATEWAY
+                || responseCode == HttpURLConnection.HTTP_UNAVAILABLE
+                || responseCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Returns the time in milliseconds a Retry-After header asks to wait, either a number
+     * of seconds or an HTTP date, or -1 if there is no header or it cannot be read.
+     */
+    static long parseRetryAfter(String header, long now) {
+        if (header == null || header.trim().isEmpty()) {
+            return -1;
+        }
+        header = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(header) * 1000);
+        } catch (NumberFormatException e) {
+            // Not seconds, so it should be a date
+        }
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(header).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    private static IOException deadlinePassed(IOException failure) {
+        return new IOException("The request did not succeed in time", failure);
+    }
+}
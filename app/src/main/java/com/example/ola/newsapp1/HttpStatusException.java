@@ -0,0 +1,33 @@
+package com.example.ola.newsapp1;
+
+import java.io.IOException;
+
+/**
+ * The server answered with an error status code instead of the articles.
+ */
+final class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int mResponseCode;
+    private final long mRetryAfterMillis;
+
+    /**
+     * @param retryAfterMillis how long the server asked to wait before the next request
+     *                         (its Retry-After header), or -1 if it didn't say
+     */
+    HttpStatusException(int responseCode, long retryAfterMillis) {
+        super("Error response code " + responseCode);
+        mResponseCode = responseCode;
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /** Returns how long the server asked to wait, or -1 if it didn't say */
+    long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+}
@@ -0,0 +1,514 @@
+package com.example.ola.newsapp1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A small pull parser for JSON, modelled on {@link android.util.JsonReader}.
+ *
+ * It reads the response token by token, so the whole document never has to be held in
+ * memory, and values the caller does not need can be skipped without creating Strings for them.
+ * We use our own reader instead of the framework one so that it also runs in local unit tests.
+ *
+ * The reader works on the UTF-8 bytes of the response. All the characters JSON uses for its
+ * structure are ASCII, and bytes of other characters never look like ASCII in UTF-8, so only
+ * the Strings the caller asks for are ever decoded, straight from the buffer.
+ */
+final class JsonPullReader implements Closeable {
+
+    /** Kinds of tokens the reader can return from {@link #peek()} */
+    enum Token {
+        BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    // Scopes of the nesting stack
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Number of property names remembered, so the same name doesn't become a new String every time */
+    private static final int NAME_CACHE_SIZE = 32;
+
+    private final InputStream mIn;
+
+    // Buffer of bytes read from the stream
+    private final byte[] mBuffer;
+    private int mPos = 0;
+    private int mLimit = 0;
+
+    // Stack of the scopes we are currently in
+    private int[] mStack = new int[32];
+    private int mStackSize = 1;
+
+    // Token found by the last call to peek(), or null if it has been consumed
+    private Token mPeeked;
+
+    // Reused while reading a string that contains escape sequences or doesn't fit in the buffer
+    private byte[] mScratch = new byte[256];
+    private int mScratchLength;
+
+    // First half of a surrogate pair read from a unicode escape, waiting for the second half
+    private char mPendingHighSurrogate;
+
+    // Property names read so far, as bytes and as Strings
+    private final byte[][] mNameBytes = new byte[NAME_CACHE_SIZE][];
+    private final String[] mNames = new String[NAME_CACHE_SIZE];
+
+    /**
+     * Constructs a reader of the UTF-8 JSON document in the stream.
+     *
+     * @param in the stream to read
+     * @param buffer the buffer to read the stream into. It belongs to the reader until the
+     *               document has been read.
+     */
+    JsonPullReader(InputStream in, byte[] buffer) {
+        mIn = in;
+        mBuffer = buffer;
+        mStack[0] = EMPTY_DOCUMENT;
+    }
+
+    /** Consumes the next token, which must be the beginning of an object. */
+    void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /** Consumes the next token, which must be the end of the current object. */
+    void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        mStackSize--;
+    }
+
+    /** Consumes the next token, which must be the beginning of an array. */
+    void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /** Consumes the next token, which must be the end of the current array. */
+    void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        mStackSize--;
+    }
+
+    /** Returns true if the current object or array has another element. */
+    boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /** Returns the next property name of the current object. */
+    String nextName() throws IOException {
+        expect(Token.NAME);
+        return readName();
+    }
+
+    /**
+     * Returns the next value as a String. Numbers and booleans are returned as their literal
+     * text and null is returned as null.
+     */
+    String nextString() throws IOException {
+        Token token = peek();
+        mPeeked = null;
+        switch (token) {
+            case STRING:
+                return readString();
+            case NUMBER:
+            case BOOLEAN:
+                return readLiteral();
+            case NULL:
+                readLiteral();
+                return null;
+            default:
+                throw syntaxError("Expected a string but was " + token);
+        }
+    }
+
+    /** Skips the next value, including everything nested inside it. */
+    void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            mPeeked = null;
+            switch (token) {
+                case BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    depth++;
+                    break;
+                case BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    mStackSize--;
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    skipString();
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("Unexpected end of document");
+                default:
+                    readLiteral();
+                    break;
+            }
+        } while (depth > 0);
+    }
+
+    /** Returns the type of the next token without consuming it. */
+    Token peek() throws IOException {
+        if (mPeeked != null) {
+            return mPeeked;
+        }
+
+        int scope = mStack[mStackSize - 1];
+        int c;
+        switch (scope) {
+            case EMPTY_ARRAY:
+                mStack[mStackSize - 1] = NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return mPeeked = Token.END_ARRAY;
+                }
+                mPos--;
+                break;
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return mPeeked = Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+                break;
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                mStack[mStackSize - 1] = DANGLING_NAME;
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    mStack[mStackSize - 1] = NONEMPTY_OBJECT;
+                    return mPeeked = Token.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                return mPeeked = Token.NAME;
+            case DANGLING_NAME:
+                mStack[mStackSize - 1] = NONEMPTY_OBJECT;
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                break;
+            case EMPTY_DOCUMENT:
+                mStack[mStackSize - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (nextNonWhitespace() == -1) {
+                    return mPeeked = Token.END_DOCUMENT;
+                }
+                throw syntaxError("Unexpected data after the document");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return mPeeked = Token.BEGIN_OBJECT;
+            case '[':
+                return mPeeked = Token.BEGIN_ARRAY;
+            case '"':
+                return mPeeked = Token.STRING;
+            case 't':
+            case 'f':
+                mPos--;
+                return mPeeked = Token.BOOLEAN;
+            case 'n':
+                mPos--;
+                return mPeeked = Token.NULL;
+            case -1:
+                throw syntaxError("Unexpected end of document");
+            default:
+                mPos--;
+                return mPeeked = Token.NUMBER;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("Expected " + expected + " but was " + token);
+        }
+        mPeeked = null;
+    }
+
+    private void push(int scope) {
+        if (mStackSize == mStack.length) {
+            int[] bigger = new int[mStackSize * 2];
+            System.arraycopy(mStack, 0, bigger, 0, mStackSize);
+            mStack = bigger;
+        }
+        mStack[mStackSize++] = scope;
+    }
+
+    /** Makes sure at least one byte is buffered. Returns false at the end of the stream. */
+    private boolean fill() throws IOException {
+        if (mPos < mLimit) {
+            return true;
+        }
+        mPos = 0;
+        mLimit = 0;
+        int read;
+        while ((read = mIn.read(mBuffer, 0, mBuffer.length)) == 0) {
+            // Keep reading until we get at least one byte or the end of the stream
+        }
+        if (read == -1) {
+            return false;
+        }
+        mLimit = read;
+        return true;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (fill()) {
+            byte c = mBuffer[mPos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the rest of a property name whose opening quote has already been consumed.
+     * Names which were read before are returned as the same String.
+     */
+    private String readName() throws IOException {
+        // Look for the end of the name in the buffer
+        int end = mPos;
+        while (end < mLimit && mBuffer[end] != '"' && mBuffer[end] != '\\') {
+            end++;
+        }
+        if (end == mLimit || mBuffer[end] != '"') {
+            // Escaped or not all in the buffer, which doesn't happen with the Guardian's names
+            return readString();
+        }
+
+        int length = end - mPos;
+        int slot = (length * 31 + (length > 0 ? mBuffer[mPos] * 7 + mBuffer[end - 1] : 0)) & (NAME_CACHE_SIZE - 1);
+        byte[] cached = mNameBytes[slot];
+        String name;
+        if (cached != null && regionEquals(cached, mBuffer, mPos, length)) {
+            name = mNames[slot];
+        } else {
+            name = new String(mBuffer, mPos, length, UTF_8);
+            mNameBytes[slot] = Arrays.copyOfRange(mBuffer, mPos, end);
+            mNames[slot] = name;
+        }
+        mPos = end + 1;
+        return name;
+    }
+
+    private static boolean regionEquals(byte[] expected, byte[] buffer, int offset, int length) {
+        if (expected.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (expected[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Reads the rest of a string whose opening quote has already been consumed. */
+    private String readString() throws IOException {
+        // Most strings are in the buffer as they are, so they are decoded right from it
+        int start = mPos;
+        while (mPos < mLimit) {
+            byte c = mBuffer[mPos++];
+            if (c == '"') {
+                return new String(mBuffer, start, mPos - start - 1, UTF_8);
+            } else if (c == '\\') {
+                mPos--;
+                break;
+            }
+        }
+
+        // Otherwise collect the bytes in the scratch buffer first
+        mScratchLength = 0;
+        appendToScratch(start, mPos - start);
+        while (true) {
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            start = mPos;
+            while (mPos < mLimit) {
+                byte c = mBuffer[mPos++];
+                if (c == '"') {
+                    appendToScratch(start, mPos - start - 1);
+                    flushPendingSurrogate();
+                    return new String(mScratch, 0, mScratchLength, UTF_8);
+                } else if (c == '\\') {
+                    appendToScratch(start, mPos - start - 1);
+                    appendEscapeCharacter(readEscapeCharacter());
+                    start = mPos;
+                }
+            }
+            appendToScratch(start, mPos - start);
+        }
+    }
+
+    /** Same as {@link #readString()}, but without building the String. */
+    private void skipString() throws IOException {
+        while (true) {
+            if (!fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            byte c = mBuffer[mPos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                readEscapeCharacter();
+            }
+        }
+    }
+
+    private char readEscapeCharacter() throws IOException {
+        if (!fill()) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        byte escaped = mBuffer[mPos++];
+        switch (escaped) {
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (!fill()) {
+                        throw syntaxError("Unterminated escape sequence");
+                    }
+                    int digit = Character.digit(mBuffer[mPos++], 16);
+                    if (digit < 0) {
+                        throw syntaxError("Malformed escape sequence");
+                    }
+                    value = (value << 4) + digit;
+                }
+                return (char) value;
+            case 't':
+                return '\t';
+            case 'b':
+                return '\b';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            default:
+                // Covers \" \\ and \/
+                return (char) escaped;
+        }
+    }
+
+    /** Adds bytes of the buffer to the scratch buffer */
+    private void appendToScratch(int start, int length) {
+        if (length == 0) {
+            return;
+        }
+        flushPendingSurrogate();
+        ensureScratchCapacity(length);
+        System.arraycopy(mBuffer, start, mScratch, mScratchLength, length);
+        mScratchLength += length;
+    }
+
+    /** Adds an escaped character to the scratch buffer, encoded as UTF-8 */
+    private void appendEscapeCharacter(char c) {
+        if (Character.isHighSurrogate(c)) {
+            // Wait for the second half to encode the whole code point
+            flushPendingSurrogate();
+            mPendingHighSurrogate = c;
+            return;
+        }
+        if (Character.isLowSurrogate(c) && mPendingHighSurrogate != 0) {
+            appendCodePoint(Character.toCodePoint(mPendingHighSurrogate, c));
+            mPendingHighSurrogate = 0;
+            return;
+        }
+        flushPendingSurrogate();
+        appendCodePoint(Character.isLowSurrogate(c) ? '\ufffd' : c);
+    }
+
+    /** A surrogate without its other half can't be encoded, so it becomes the replacement character */
+    private void flushPendingSurrogate() {
+        if (mPendingHighSurrogate != 0) {
+            mPendingHighSurrogate = 0;
+            appendCodePoint('\ufffd');
+        }
+    }
+
+    private void appendCodePoint(int codePoint) {
+        ensureScratchCapacity(4);
+        if (codePoint < 0x80) {
+            mScratch[mScratchLength++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            mScratch[mScratchLength++] = (byte) (0xc0 | (codePoint >> 6));
+            mScratch[mScratchLength++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else if (codePoint < 0x10000) {
+            mScratch[mScratchLength++] = (byte) (0xe0 | (codePoint >> 12));
+            mScratch[mScratchLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            mScratch[mScratchLength++] = (byte) (0x80 | (codePoint & 0x3f));
+        } else {
+            mScratch[mScratchLength++] = (byte) (0xf0 | (codePoint >> 18));
+            mScratch[mScratchLength++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+            mScratch[mScratchLength++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+            mScratch[mScratchLength++] = (byte) (0x80 | (codePoint & 0x3f));
+        }
+    }
+
+    private void ensureScratchCapacity(int extra) {
+        if (mScratchLength + extra > mScratch.length) {
+            mScratch = Arrays.copyOf(mScratch, Math.max(mScratch.length * 2, mScratchLength + extra));
+        }
+    }
+
+    /** Reads an unquoted value such as a number, true, false or null. */
+    private String readLiteral() throws IOException {
+        mScratchLength = 0;
+        while (fill()) {
+            byte c = mBuffer[mPos];
+            if (c == ',' || c == '}' || c == ']' || c == ':'
+                    || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                break;
+            }
+            ensureScratchCapacity(1);
+            mScratch[mScratchLength++] = c;
+            mPos++;
+        }
+        if (mScratchLength == 0) {
+            throw syntaxError("Expected a value");
+        }
+        return new String(mScratch, 0, mScratchLength, UTF_8);
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.ola.newsapp1;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream and the time spent waiting for them.
+ *
+ * The articles are parsed while the response is being downloaded, so this is what tells
+ * the time spent on the network apart from the time spent parsing.
+ */
+final class MeteredInputStream extends FilterInputStream {
+
+    private long mBytes;
+    private long mReadNanos;
+
+    MeteredInputStream(InputStream in) {
+        super(in);
+    }
+
+    /** Returns the number of bytes read so far */
+    long getBytes() {
+        return mBytes;
+    }
+
+    /** Returns the time spent in read() so far, in nanoseconds */
+    long getReadNanos() {
+        return mReadNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int b = super.read();
+        mReadNanos += System.nanoTime() - start;
+        if (b >= 0) {
+            mBytes++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        int count = super.read(buffer, offset, length);
+        mReadNanos += System.nanoTime() - start;
+        if (count > 0) {
+            mBytes += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = System.nanoTime();
+        long skipped = super.skip(n);
+        mReadNanos += System.nanoTime() - start;
+        mBytes += skipped;
+        return skipped;
+    }
+}
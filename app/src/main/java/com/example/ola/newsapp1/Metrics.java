@@ -0,0 +1,126 @@
+package com.example.ola.newsapp1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Timings and sizes recorded on the way from the network request to the first row on the
+ * screen, kept in {@link Histogram}s by name.
+ *
+ * Recording is off unless {@link #setEnabled(boolean)} turns it on (the app does that in
+ * debug builds). When it is off, the hot paths only read one boolean, so release builds
+ * don't pay for it. The values can be seen on the metrics screen or dumped in a test.
+ */
+public final class Metrics {
+
+    // Names of the histograms. Durations are in microseconds.
+
+    /** Looking up the server and opening the connection, including the TLS handshake */
+    public static final String HTTP_CONNECT = "http.connect_us";
+    /** From sending the request to the response headers (time to first byte) */
+    public static final String HTTP_TTFB = "http.ttfb_us";
+    /** Time spent waiting for the bytes of the response body */
+    public static final String HTTP_DOWNLOAD = "http.download_us";
+    /** Number of attempts one request took, see {@link HttpRetry} */
+    public static final String HTTP_ATTEMPTS = "http.attempts";
+    /** Size of the response body as it came over the network */
+    public static final String HTTP_BYTES = "http.bytes";
+    /** Building the articles from the response, without the time spent waiting for bytes */
+    public static final String PARSE = "parse_us";
+    /** Building the articles with the org.json reference parser, from the whole response */
+    public static final String PARSE_JSON = "parse.json_us";
+    /** Number of articles in one response, as parsed by {@link ArticleStreamParser} */
+    public static final String PARSE_ARTICLES = "parse.articles";
+    /** From the start of a load to the delivery of its result */
+    public static final String LOADER_DELIVERY = "loader.delivery_us";
+    /** From the creation of the list screen to the first row drawn */
+    public static final String STARTUP_FIRST_ROW = "startup.first_row_us";
+    /** From the start of the process to the first frame of the list screen */
+    public static final String STARTUP_COLD = "startup.cold_us";
+    /** From the creation of the list screen in a running process to its first frame */
+    public static final String STARTUP_WARM = "startup.warm_us";
+    /** Reading the rows of the startup snapshot, on the main thread */
+    public static final String STARTUP_SNAPSHOT = "startup.snapshot_us";
+
+    private static volatile boolean sEnabled;
+
+    private static final ConcurrentMap<String, Histogram> sHistograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    /** Turns recording on or off */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /** Returns true if values are recorded. Check it before measuring anything costly. */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /** Records a value in the histogram with the given name, if recording is on */
+    public static void record(String name, long value) {
+        if (!sEnabled) {
+            return;
+        }
+        histogram(name).record(value);
+    }
+
+    /**
+     * Records the time since the given {@link System#nanoTime()}, in microseconds, if
+     * recording is on.
+     */
+    public static void recordSince(String name, long startNanos) {
+        if (!sEnabled) {
+            return;
+        }
+        histogram(name).record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /** Returns the histogram with the given name, creating it if there is none yet */
+    public static Histogram histogram(String name) {
+        Histogram histogram = sHistograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(name);
+            histogram = sHistograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /** Returns the histograms which have values, sorted by name */
+    public static List<Histogram> getHistograms() {
+        List<String> names = new ArrayList<>(sHistograms.keySet());
+        Collections.sort(names);
+        List<Histogram> histograms = new ArrayList<>(names.size());
+        for (String name : names) {
+            Histogram histogram = sHistograms.get(name);
+            if (histogram.getCount() > 0) {
+                histograms.add(histogram);
+            }
+        }
+        return histograms;
+    }
+
+    /** Returns all the histograms as text, one line each */
+    public static String dump() {
+        StringBuilder text = new StringBuilder();
+        for (Histogram histogram : getHistograms()) {
+            text.append(histogram).append('\n');
+        }
+        return text.toString();
+    }
+
+    /** Removes all recorded values */
+    public static void reset() {
+        for (Histogram histogram : sHistograms.values()) {
+            histogram.reset();
+        }
+    }
+}
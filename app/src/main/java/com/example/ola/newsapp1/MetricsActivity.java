@@ -0,0 +1,27 @@
+package com.example.ola.newsapp1;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.widget.TextView;
+
+/**
+ * Debug screen with the {@link Metrics} recorded since the app started, to see where the
+ * time goes on the way from the network to the screen.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.metrics_activity);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Show the latest values every time the screen is opened
+        TextView metricsTextView = findViewById(R.id.metrics);
+        String metrics = Metrics.dump();
+        metricsTextView.setText(metrics.isEmpty() ? getString(R.string.no_metrics) : metrics);
+    }
+}
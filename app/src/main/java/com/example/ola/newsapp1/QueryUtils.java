@@ -6,18 +6,17 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
-import static com.example.ola.newsapp1.ArticleActivity.LOG_TAG;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 /**
  * Helper methods related to requesting and receiving articles data from Guardian.
  */
@@ -29,6 +28,8 @@ public class QueryUtils {
      * directly from the class name QueryUtils (and an object instance of QueryUtils is not needed).
      */
 
+    private static final String LOG_TAG = QueryUtils.class.getName();
+
     // Keys used for the JSON response
     private static final String json_response = "response";
     private static final String json_results = "results";
@@ -38,6 +39,11 @@ public class QueryUtils {
     private static final String json_url = "webUrl";
     private static final String json_tags = "tags";
     private static final String json_author = "webTitle";
+    private static final String json_fields = "fields";
+    private static final String json_thumbnail = "thumbnail";
+
+    /** Usual size of a JSON response divided by its gzipped size */
+    private static final int GZIP_RATIO = 5;
 
     private QueryUtils() {
     }
@@ -46,25 +52,102 @@ public class QueryUtils {
      * Query the Guardian dataset and return a list of {@link Article} objects.
      */
     public static List<Article> fetchArticleData(String requestUrl){
+        ArticleCache.Entry entry = fetchArticleData(requestUrl, null);
+        return entry == null ? null : entry.getArticles();
+    }
+
+    /**
+     * Query the Guardian dataset and return the {@link Article}s together with the
+     * validators (ETag and Last-Modified) of the response, or null if the request failed.
+     *
+     * @param requestUrl the URL to query
+     * @param cached the articles stored for this URL before, or null. The server is asked
+     *               to answer "Not Modified" if they are still current, in which case the
+     *               same list is returned without downloading or parsing anything.
+     */
+    public static ArticleCache.Entry fetchArticleData(String requestUrl, final ArticleCache.Entry cached){
 
         // Create URL object
-        URL url = createUrl(requestUrl);
+        final URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
+        // Perform HTTP request to the URL and parse the articles while the response is read.
+        // Failures which may go away are retried, as long as the request is within its deadline.
         try {
-            jsonResponse = makeHttpRequest(url);
+            return HttpRetry.DEFAULT.execute(CircuitBreaker.forHost(url.getHost()),
+                    new HttpRetry.Call<ArticleCache.Entry>() {
+                        @Override
+                        public ArticleCache.Entry run(int connectTimeoutMillis, int readTimeoutMillis,
+                                                      long deadlineNanos) throws IOException {
+                            return makeHttpRequest(url, cached, connectTimeoutMillis, readTimeoutMillis,
+                                    deadlineNanos);
+                        }
+                    });
         } catch (IOException e) {
+            // The caller falls back to the stored articles
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
+            return null;
         }
+    }
 
-        // Extract relevant fields from the JSON response and create a list of {@link Article}s
-        List<Article> articlesList = extractFeatureFromJson(jsonResponse);
-
-        // Return the list of {@link Article}s
-        return articlesList;
+    /**
+     * Query the Guardian dataset for the text of the articles, with a URL built by
+     * {@link ArticleQuery#getBodyUrls(int)}, and return the texts by the website URL of each
+     * article, or null if the request failed.
+     */
+    static Map<String, String> fetchArticleBodies(String requestUrl){
+        final URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
+        try {
+            return HttpRetry.DEFAULT.execute(CircuitBreaker.forHost(url.getHost()),
+                    new HttpRetry.Call<Map<String, String>>() {
+                        @Override
+                        public Map<String, String> run(int connectTimeoutMillis, int readTimeoutMillis,
+                                                       long deadlineNanos) throws IOException {
+                            return requestArticleBodies(url, connectTimeoutMillis, readTimeoutMillis,
+                                    deadlineNanos);
+                        }
+                    });
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem retrieving the article texts.", e);
+            return null;
+        }
     }
 
+    /**
+     * Make one request for the text of the articles. An error response is thrown as an
+     * {@link HttpStatusException}.
+     */
+    private static Map<String, String> requestArticleBodies(URL url, int connectTimeoutMillis,
+                                                            int readTimeoutMillis, long deadlineNanos)
+            throws IOException {
+        InputStream inputStream = null;
+        try {
+            HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setReadTimeout(readTimeoutMillis);
+            urlConnection.setConnectTimeout(connectTimeoutMillis);
+            urlConnection.setRequestMethod("GET");
+            // Text compresses well, see makeHttpRequest()
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+
+            int responseCode = urlConnection.getResponseCode();
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                inputStream = withDeadline(urlConnection.getErrorStream(), deadlineNanos);
+                throw statusException(urlConnection, responseCode);
+            }
+            inputStream = openResponseStream(urlConnection,
+                    withDeadline(urlConnection.getInputStream(), deadlineNanos));
+            return ArticleStreamParser.parseBodies(inputStream, expectedBodyLength(urlConnection));
+        } finally {
+            if (inputStream != null) {
+                drainAndClose(inputStream);
+            }
+        }
+    }
 
     /**
      * Returns new URL object from the given string URL.
@@ -82,84 +165,208 @@ public class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make one HTTP request to the given URL and return the list of {@link Article}s
+     * parsed from the response. An error response is thrown as an {@link HttpStatusException}.
      */
-    private static String makeHttpRequest(URL url) throws IOException{
-        String jsonResponse = "";
+    private static ArticleCache.Entry makeHttpRequest(URL url, ArticleCache.Entry cached,
+                                                      int connectTimeoutMillis, int readTimeoutMillis,
+                                                      long deadlineNanos)
+            throws IOException{
+        ArticleCache.Entry entry = null;
 
-    // if url is empty, return earlier
-        if(url == null){
-            return jsonResponse;
-        }
+        // Only time the request when the metrics are recorded
+        boolean metered = Metrics.isEnabled();
 
         // Initialize variables for the HTTP connection and for the InputStream
         HttpURLConnection urlConnection = null;
         InputStream inputStream = null;
         try {
             urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            // The timeouts are what is left of the deadline of the request, see HttpRetry
+            urlConnection.setReadTimeout(readTimeoutMillis);
+            urlConnection.setConnectTimeout(connectTimeoutMillis);
             urlConnection.setRequestMethod("GET");
-            // Send a request to connect
+
+            // Ask for a compressed response. Setting this header ourselves means the
+            // response is not decompressed for us, see openResponseStream().
+            urlConnection.setRequestProperty("Accept-Encoding", "gzip");
+
+            // Ask the server to answer "304 Not Modified" if the stored articles are still current
+            if (cached != null) {
+                if (cached.getETag() != null) {
+                    urlConnection.setRequestProperty("If-None-Match", cached.getETag());
+                }
+                if (cached.getLastModified() != null) {
+                    urlConnection.setRequestProperty("If-Modified-Since", cached.getLastModified());
+                }
+            }
+
+            // Send a request to connect. The time includes looking up the server, which is not
+            // timed on its own: a separate lookup would cost the request another round trip.
+            long connectStart = metered ? System.nanoTime() : 0;
             urlConnection.connect();
+            if (metered) {
+                Metrics.recordSince(Metrics.HTTP_CONNECT, connectStart);
+            }
 
-            // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if(urlConnection.getResponseCode() == 200){
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
-            } else {
-                Log.e(LOG_TAG,"Error response code " + urlConnection.getResponseCode());
+            long requestStart = metered ? System.nanoTime() : 0;
+            int responseCode = urlConnection.getResponseCode();
+            if (metered) {
+                Metrics.recordSince(Metrics.HTTP_TTFB, requestStart);
             }
-        } catch (IOException e) {
-            // If the connection was not established, print it to the log
-            Log.e(LOG_TAG, "Problem retrieving the Guardian JSON results.", e);
-        } finally {
 
-            // Disconnect the HTTP connection if it has been not yet disconnected
-            if(urlConnection != null){
-                urlConnection.disconnect();
+            if(responseCode == HttpURLConnection.HTTP_OK){
+                // If the request was successful (response code 200),
+                // then parse the articles straight from the input stream.
+                // Cut off at the deadline, however slowly the body trickles in
+                InputStream body = withDeadline(urlConnection.getInputStream(), deadlineNanos);
+                MeteredInputStream meter = metered ? new MeteredInputStream(body) : null;
+                inputStream = openResponseStream(urlConnection, metered ? meter : body);
+                long parseStart = metered ? System.nanoTime() : 0;
+                // Parsed for the tags and fields the URL asked for
+                List<Article> articlesList = ArticleStreamParser.parse(inputStream,
+                        expectedBodyLength(urlConnection), ContributorIndex.getInstance(),
+                        ArticleProjection.fromUrl(url.toString()));
+                if (metered) {
+                    // The response is parsed while it is downloaded, the time spent waiting
+                    // for bytes is the download and the rest is the parsing
+                    long totalNanos = System.nanoTime() - parseStart;
+                    Metrics.record(Metrics.HTTP_DOWNLOAD, meter.getReadNanos() / 1000);
+                    Metrics.record(Metrics.PARSE, (totalNanos - meter.getReadNanos()) / 1000);
+                    Metrics.record(Metrics.HTTP_BYTES, meter.getBytes());
+                    Metrics.record(Metrics.PARSE_ARTICLES, articlesList.size());
+                }
+                entry = new ArticleCache.Entry(articlesList, System.currentTimeMillis(),
+                        urlConnection.getHeaderField("ETag"),
+                        urlConnection.getHeaderField("Last-Modified"));
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                // Nothing has changed, so reuse the articles we already have
+                inputStream = withDeadline(urlConnection.getInputStream(), deadlineNanos);
+                entry = cached.revalidated(System.currentTimeMillis(),
+                        urlConnection.getHeaderField("ETag"),
+                        urlConnection.getHeaderField("Last-Modified"));
+            } else {
+                inputStream = withDeadline(urlConnection.getErrorStream(), deadlineNanos);
+                throw statusException(urlConnection, responseCode);
             }
+        } finally {
+            // The connection is not disconnected, so it can be reused by the next request.
+            // It only goes back to the pool when the response has been read to the end and closed.
             if(inputStream != null){
                 // Closing the input stream could throw an IOException, which is why
                 // the makeHttpRequest(URL url) method signature specifies than an IOException
                 // could be thrown.
-                inputStream.close();
+                drainAndClose(inputStream);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the exception for an error response, with the time the server asked the app
+     * to wait before the next request if it said so.
+     */
+    private static HttpStatusException statusException(HttpURLConnection urlConnection, int responseCode) {
+        Log.e(LOG_TAG, "Error response code " + responseCode);
+        return new HttpStatusException(responseCode, HttpRetry.parseRetryAfter(
+                urlConnection.getHeaderField("Retry-After"), System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns the body of a successful response, decompressing it if the server sent it gzipped.
+     *
+     * @param body the body of the response as it arrives, possibly wrapped to count the bytes
+     */
+    private static InputStream openResponseStream(HttpURLConnection urlConnection, InputStream body)
+            throws IOException {
+        if ("gzip".equalsIgnoreCase(urlConnection.getContentEncoding())) {
+            return new GZIPInputStream(body);
+        }
+        return body;
+    }
+
+    /**
+     * Returns the stream wrapped to fail once the deadline of the request has passed, or null
+     * if there is no stream.
+     */
+    private static InputStream withDeadline(InputStream inputStream, long deadlineNanos) {
+        return inputStream != null ? new DeadlineInputStream(inputStream, deadlineNanos) : null;
+    }
+
+    /**
+     * Returns the number of bytes the body of the response will have once it is decompressed,
+     * estimated from the Content-Length header, or -1 if the server didn't send the length.
+     */
+    private static long expectedBodyLength(HttpURLConnection urlConnection) {
+        long contentLength = urlConnection.getContentLength();
+        if (contentLength > 0 && "gzip".equalsIgnoreCase(urlConnection.getContentEncoding())) {
+            // The length is of the compressed body, JSON usually shrinks to a fifth or less
+            return contentLength * GZIP_RATIO;
+        }
+        return contentLength;
+    }
+
+    /**
+     * Reads whatever is left of the response and closes the stream, which allows the
+     * underlying connection to be kept alive and reused.
+     */
+    private static void drainAndClose(InputStream inputStream) throws IOException {
+        byte[] buffer = BufferPool.acquire(BufferPool.MIN_SIZE);
+        try {
+            while (inputStream.read(buffer) != -1) {
+                // Discard the rest of the response
             }
+        } catch (IOException e) {
+            // The connection cannot be reused, but there is nothing more to do with it
+        } finally {
+            BufferPool.release(buffer);
+            inputStream.close();
         }
-        return jsonResponse;
     }
 
     /**
      * Convert the {@link InputStream} into a String which contains the
      * whole JSON response from the server.
+     * Together with {@link #extractFeatureFromJson(String)} this is the reference
+     * parser that {@link ArticleStreamParser} is checked against.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException{
-        StringBuilder output = new StringBuilder();
-        if(inputStream != null){
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-            // Append the data of the BufferedReader line by line to the StringBuilder
-            String line = bufferedReader.readLine();
-            while(line != null){
-                output.append(line);
-                line = bufferedReader.readLine();
+    static String readFromStream(InputStream inputStream) throws IOException{
+        if(inputStream == null){
+            return "";
+        }
+        // Read the raw bytes and decode them once at the end. Decoding line by line would
+        // copy every character twice and lose the line breaks inside the response.
+        byte[] buffer = BufferPool.acquire(BufferPool.MAX_SIZE);
+        byte[] bytes = buffer;
+        int length = 0;
+        try {
+            int read;
+            while ((read = inputStream.read(bytes, length, bytes.length - length)) != -1) {
+                length += read;
+                if (length == bytes.length) {
+                    // Responses bigger than the pooled buffer grow a copy of it
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
             }
+            // Convert the bytes into a String and return it
+            return new String(bytes, 0, length, Charset.forName("UTF-8"));
+        } finally {
+            BufferPool.release(buffer);
         }
-        // Convert the output into String and return it
-        return output.toString();
     }
 
     /**
      * Return a list of {@link Article} objects that has been built up from
      * parsing the given JSON response.
      */
-    private static List<Article> extractFeatureFromJson(String articlesJson){
+    static List<Article> extractFeatureFromJson(String articlesJson){
         // If the JSON string is empty or null, then return early.
         if(TextUtils.isEmpty(articlesJson)){
             return null;
         }
 
+        long parseStart = System.nanoTime();
+
         // Create an empty ArrayList that we can start adding articles to
         List<Article> articlesList = new ArrayList<>();
 
@@ -167,10 +374,6 @@ public class QueryUtils {
         // is formatted, a JSONException exception object will be thrown.
         // Catch the exception so the app doesn't crash, and print the error message to the logs.
         try{
-            String articleAuthor = "N/A";
-            JSONArray currentArticleAuthorArray;
-            JSONObject articleTag;
-
             // Create a JSONObject from the JSON response string
             JSONObject baseJsonResponse = new JSONObject(articlesJson);
 
@@ -198,23 +401,31 @@ public class QueryUtils {
                 // Extract the url (value) for the key "webUrl"
                 String url = currentArticle.getString(json_url);
 
-                // Extract the author (value) for the key "webTitle"
-                if (currentArticle.has(json_tags)) {
-                    currentArticleAuthorArray = currentArticle.getJSONArray(json_tags);
-
-                    if (currentArticleAuthorArray.length() > 0) {
-                        for (int j = 0; j < 1; j++) {
-                            articleTag = currentArticleAuthorArray.getJSONObject(j);
-                            if (articleTag.has(json_author)) {
-                                articleAuthor = articleTag.getString(json_author);
-                            }
+                // Extract the contributors (value) for the key "webTitle" of every tag.
+                // An article without tags has no byline.
+                List<String> contributors = new ArrayList<>();
+                JSONArray tags = currentArticle.optJSONArray(json_tags);
+                if (tags != null) {
+                    for (int j = 0; j < tags.length(); j++) {
+                        JSONObject tag = tags.getJSONObject(j);
+                        if (tag.has(json_author)) {
+                            contributors.add(tag.getString(json_author));
                         }
                     }
                 }
 
-                // Create a new {@link Article} object with the title, date, section, author
-                // and url from the JSON response.
-                Article articlesObject = new Article(title, section, date, articleAuthor, url);
+                // Extract the thumbnail (value) for the key "thumbnail" of the "fields", if there is one
+                String thumbnail = null;
+                JSONObject fields = currentArticle.optJSONObject(json_fields);
+                if (fields != null && fields.has(json_thumbnail)) {
+                    thumbnail = fields.getString(json_thumbnail);
+                }
+
+                // Create a new {@link Article} object with the title, section, contributors, date,
+                // url and thumbnail from the JSON response.
+                Article articlesObject = new Article(title, section,
+                        contributors.toArray(new String[contributors.size()]),
+                        ArticleDates.parseIso8601(date), url, thumbnail);
 
                 // Add the new {@link Article} to the list of articles.
                 articlesList.add(articlesObject);
@@ -225,6 +436,9 @@ public class QueryUtils {
             Log.e("QueryUtils","Problem parsing the earthquake JSON results", e);
         }
 
+        // Only the time: the articles of a response are counted by the parser the app uses
+        Metrics.recordSince(Metrics.PARSE_JSON, parseStart);
+
         // Return the list of articles
         return articlesList;
     }
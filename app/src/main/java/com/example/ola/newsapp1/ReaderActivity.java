@@ -0,0 +1,94 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.View;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Shows the text of an article stored by the {@link ArticleBodyStore}, so it can be read
+ * without a web browser or a connection.
+ */
+public class ReaderActivity extends AppCompatActivity {
+
+    /** Website URL of the article, it is also the key of its stored text */
+    private static final String EXTRA_URL = "url";
+
+    /** Title of the article */
+    private static final String EXTRA_TITLE = "title";
+
+    private TextView mBodyTextView;
+
+    /** Returns the intent which opens the given article, its text must be stored */
+    static Intent newIntent(Context context, Article article) {
+        Intent intent = new Intent(context, ReaderActivity.class);
+        intent.putExtra(EXTRA_URL, article.getNewsUrl());
+        intent.putExtra(EXTRA_TITLE, article.getNewsTitle());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.reader_activity);
+
+        final String url = getIntent().getStringExtra(EXTRA_URL);
+        TextView titleTextView = findViewById(R.id.reader_title);
+        titleTextView.setText(getIntent().getStringExtra(EXTRA_TITLE));
+        mBodyTextView = findViewById(R.id.reader_body);
+
+        findViewById(R.id.reader_open_in_browser).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+                if (websiteIntent.resolveActivity(getPackageManager()) != null) {
+                    startActivity(websiteIntent);
+                } else {
+                    Toast.makeText(ReaderActivity.this, R.string.no_webbrowser, Toast.LENGTH_LONG).show();
+                }
+            }
+        });
+
+        // Reading the text takes only a moment, but it is still a disk read
+        new LoadBodyTask(this).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, url);
+    }
+
+    /** Shows the text of the article, or a message if it is no longer stored */
+    private void showBody(String body) {
+        mBodyTextView.setText(body != null ? body : getString(R.string.no_stored_text));
+    }
+
+    /**
+     * Reads the stored text of the article in the background. It only keeps a weak reference
+     * to the activity, so a closed screen is not kept in memory until it finishes.
+     */
+    private static class LoadBodyTask extends AsyncTask<String, Void, String> {
+        private final WeakReference<ReaderActivity> mActivity;
+        private final ArticleBodyStore mStore;
+
+        LoadBodyTask(ReaderActivity activity) {
+            mActivity = new WeakReference<>(activity);
+            mStore = ArticleBodyStore.getInstance(activity);
+        }
+
+        @Override
+        protected String doInBackground(String... urls) {
+            return mStore.get(urls[0]);
+        }
+
+        @Override
+        protected void onPostExecute(String body) {
+            ReaderActivity activity = mActivity.get();
+            if (activity != null && !activity.isFinishing()) {
+                activity.showBody(body);
+            }
+        }
+    }
+}
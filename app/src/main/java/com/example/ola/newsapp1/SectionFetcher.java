@@ -0,0 +1,165 @@
+package com.example.ola.newsapp1;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the articles of several sections at the same time and merges them into one list.
+ *
+ * Requests run on a small pool shared by the whole app, so the total time is about the time
+ * of the slowest section instead of the sum of all of them, without opening too many
+ * connections at once.
+ */
+final class SectionFetcher {
+
+    private static final String LOG_TAG = SectionFetcher.class.getName();
+
+    /** Maximum number of requests running at the same time */
+    static final int MAX_PARALLEL_REQUESTS = 4;
+
+    private static final ExecutorService sExecutor = Executors.newFixedThreadPool(MAX_PARALLEL_REQUESTS,
+            new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SectionFetcher #" + mCount.incrementAndGet());
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+
+    /**
+     * Receives the merged list every time the articles of another section have arrived.
+     * Called on a background thread.
+     */
+    interface Listener {
+        void onSectionLoaded(List<Article> articlesSoFar);
+    }
+
+    /**
+     * Stores and downloads the articles of one section. {@link ArticleFetcher} outside of
+     * tests.
+     */
+    interface Loader {
+        /** Returns the articles stored for the URL, or null if there are none */
+        ArticleCache.Entry getStored(String url);
+
+        /** Returns the articles at the URL, or null if there are none */
+        ArticleCache.Entry fetch(String url) throws InterruptedException;
+    }
+
+    private SectionFetcher() {
+    }
+
+    /**
+     * Downloads the articles from all the URLs in parallel and returns them merged. URLs
+     * which were downloaded recently are not requested again, and URLs which fail keep their
+     * stored articles, if there are any.
+     *
+     * @param urls one request URL for each section
+     * @param loader downloads and stores the articles of one URL
+     * @param newestFirst true to sort the merged list from the newest article
+     * @param listener told about the merged list after each section, may be null
+     */
+    static List<Article> fetch(List<String> urls, final Loader loader, boolean newestFirst,
+                               Listener listener) throws InterruptedException {
+        CompletionService<Void> completionService = new ExecutorCompletionService<>(sExecutor);
+        List<Future<Void>> futures = new ArrayList<>(urls.size());
+
+        // Articles of each section, in the order of the URLs so the merge is stable
+        final Map<String, List<Article>> sections = Collections.synchronizedMap(
+                new LinkedHashMap<String, List<Article>>());
+        for (String url : urls) {
+            ArticleCache.Entry entry = loader.getStored(url);
+            sections.put(url, entry != null ? entry.getArticles() : Collections.<Article>emptyList());
+        }
+
+        for (final String url : urls) {
+            futures.add(completionService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    ArticleCache.Entry entry = loader.fetch(url);
+                    if (entry != null) {
+                        sections.put(url, entry.getArticles());
+                    }
+                    return null;
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Void> done = completionService.take();
+                try {
+                    done.get();
+                } catch (ExecutionException e) {
+                    // That section keeps its stored articles, the others still arrive
+                    Log.e(LOG_TAG, "Problem downloading a section", e.getCause());
+                }
+                if (listener != null && i < futures.size() - 1) {
+                    listener.onSectionLoaded(merge(snapshot(sections), newestFirst));
+                }
+            }
+        } catch (InterruptedException e) {
+            // Nobody is waiting for the sections any more, so stop what is still running
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return merge(snapshot(sections), newestFirst);
+    }
+
+    /**
+     * Merges the lists of articles into one list sorted by publication date, without
+     * articles which have the same URL as one before them.
+     */
+    static List<Article> merge(Collection<List<Article>> lists, boolean newestFirst) {
+        List<Article> merged = new ArrayList<>();
+        Set<String> urls = new HashSet<>();
+        for (List<Article> list : lists) {
+            for (Article article : list) {
+                if (urls.add(article.getNewsUrl())) {
+                    merged.add(article);
+                }
+            }
+        }
+        // The sort is stable, so articles published at the same time keep their order.
+        Collections.sort(merged, newestFirst ? NEWEST_FIRST : Collections.reverseOrder(NEWEST_FIRST));
+        return merged;
+    }
+
+    private static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article a, Article b) {
+            long aTime = a.getPublishedAt();
+            long bTime = b.getPublishedAt();
+            return aTime < bTime ? 1 : (aTime == bTime ? 0 : -1);
+        }
+    };
+
+    private static List<List<Article>> snapshot(Map<String, List<Article>> sections) {
+        synchronized (sections) {
+            return new ArrayList<>(sections.values());
+        }
+    }
+}
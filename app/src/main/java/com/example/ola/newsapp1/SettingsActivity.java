@@ -20,11 +20,14 @@ import android.support.v7.app.AppCompatActivity;
 
 import android.content.SharedPreferences;
 import android.preference.ListPreference;
+import android.preference.MultiSelectListPreference;
 
 import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 
+import java.util.Set;
+
 public class SettingsActivity extends AppCompatActivity {
 
     @Override
@@ -48,6 +51,9 @@ public class SettingsActivity extends AppCompatActivity {
             Preference orderBy = findPreference(getString(R.string.settings_order_by_key));
             bindPreferenceSummaryToValue(orderBy);
 
+            Preference sections = findPreference(getString(R.string.settings_sections_key));
+            bindPreferenceSummaryToValue(sections);
+
         }
 
         /**
@@ -60,6 +66,25 @@ public class SettingsActivity extends AppCompatActivity {
         @Override
         public boolean onPreferenceChange(Preference preference, Object value) {
             // The code in this method takes care of updating the displayed preference summary after it has been changed
+            if (preference instanceof MultiSelectListPreference) {
+                // Show the labels of all chosen sections, in the order of the list
+                MultiSelectListPreference multiSelectPreference = (MultiSelectListPreference) preference;
+                Set<?> chosen = (Set<?>) value;
+                CharSequence[] labels = multiSelectPreference.getEntries();
+                CharSequence[] values = multiSelectPreference.getEntryValues();
+                StringBuilder summary = new StringBuilder();
+                for (int i = 0; i < values.length; i++) {
+                    if (chosen.contains(values[i].toString())) {
+                        if (summary.length() > 0) {
+                            summary.append(", ");
+                        }
+                        summary.append(labels[i]);
+                    }
+                }
+                preference.setSummary(summary);
+                // At least one section has to be chosen
+                return !chosen.isEmpty();
+            }
             String stringValue = value.toString();
             //preference.setSummary(stringValue);
             if (preference instanceof ListPreference) {
@@ -84,6 +109,10 @@ public class SettingsActivity extends AppCompatActivity {
             // and display that in the preference summary (so that the user can see the current value of the preference):
             SharedPreferences preferences =
                     PreferenceManager.getDefaultSharedPreferences(preference.getContext());
+            if (preference instanceof MultiSelectListPreference) {
+                onPreferenceChange(preference, ((MultiSelectListPreference) preference).getValues());
+                return;
+            }
             String preferenceString = preferences.getString(preference.getKey(), "");
             onPreferenceChange(preference, preferenceString);
         }
@@ -0,0 +1,155 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The first rows of the list as they were last loaded, kept in one small file so the next
+ * start can show them while the list screen is created, before the settings, the stored
+ * articles or the network have been touched.
+ *
+ * The file is a few kilobytes in the {@link ArticleCodec} format, so reading it on the main
+ * thread takes about a millisecond. It is rewritten on a worker thread every time the first
+ * page has loaded. It remembers which page URLs it was made from, so rows of other settings
+ * can be dropped once the current settings are known.
+ */
+final class StartupSnapshot {
+
+    private static final String LOG_TAG = StartupSnapshot.class.getName();
+
+    /** Name of the file in the app's files directory */
+    private static final String FILE_NAME = "startup_snapshot";
+
+    /** Identifies the file, and its version */
+    private static final int MAGIC = 0x4e534e31;
+
+    /** Number of articles kept, more than fit on the screen */
+    static final int MAX_ARTICLES = 30;
+
+    private static StartupSnapshot sInstance;
+
+    private final File mFile;
+
+    /**
+     * The rows of a snapshot, and the page they were made from.
+     */
+    static final class Rows {
+        private final String mKey;
+        private final List<Article> mArticles;
+
+        Rows(String key, List<Article> articles) {
+            mKey = key;
+            mArticles = articles;
+        }
+
+        /** Returns true if the rows were made from the page with the given URLs */
+        boolean isFor(List<String> urls) {
+            return mKey.equals(keyFor(urls));
+        }
+
+        List<Article> getArticles() {
+            return mArticles;
+        }
+    }
+
+    StartupSnapshot(File file) {
+        mFile = file;
+    }
+
+    /** Returns the snapshot of the app */
+    static synchronized StartupSnapshot getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new StartupSnapshot(new File(context.getApplicationContext().getFilesDir(), FILE_NAME));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the rows of the snapshot, or null if there is none or it is too old to show.
+     */
+    Rows read() {
+        long length = mFile.length();
+        if (length == 0) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            // Read in one go, the file is small
+            byte[] data = new byte[(int) Math.min(length, Integer.MAX_VALUE)];
+            in = new DataInputStream(new FileInputStream(mFile));
+            in.readFully(data);
+
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(data));
+            if (header.readInt() != MAGIC) {
+                return null;
+            }
+            String key = header.readUTF();
+            long savedAt = header.readLong();
+            if (System.currentTimeMillis() - savedAt > ArticleCache.MAX_AGE_MILLIS) {
+                return null;
+            }
+            int offset = data.length - header.available();
+            return new Rows(key, ArticleCodec.decode(data, offset, data.length - offset, ArticleCodec.ALL_FIELDS));
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem reading the startup snapshot", e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the first articles of the page with the given URLs. Writes
+     * a file, so call it on a worker thread.
+     */
+    synchronized void save(List<String> urls, List<Article> articles) {
+        File temp = new File(mFile.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(MAGIC);
+            out.writeUTF(keyFor(urls));
+            out.writeLong(System.currentTimeMillis());
+            out.write(ArticleCodec.encode(articles.subList(0, Math.min(articles.size(), MAX_ARTICLES))));
+            out.close();
+            out = null;
+            // Readers see the old snapshot or the new one, never half of one
+            if (!temp.renameTo(mFile)) {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem writing the startup snapshot", e);
+            closeQuietly(out);
+            temp.delete();
+        }
+    }
+
+    private static String keyFor(List<String> urls) {
+        StringBuilder key = new StringBuilder();
+        for (String url : urls) {
+            key.append(url).append('\n');
+        }
+        return key.toString();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing to do about it
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.ola.newsapp1;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Files of the downloaded thumbnail images, as they came from the server.
+ *
+ * Works like the {@link ArticleCache}: one file per URL, named by the hash of the URL, and
+ * the least recently used files are removed when the images take more than the size limit.
+ */
+final class ThumbnailDiskCache {
+
+    private static final String LOG_TAG = ThumbnailDiskCache.class.getName();
+
+    private final File mDirectory;
+    private final long mMaxSizeBytes;
+
+    // File name -> file size, in least recently used order. Loaded on first use.
+    private LinkedHashMap<String, Long> mIndex;
+    private long mTotalSize;
+
+    ThumbnailDiskCache(File directory, long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /** Returns the image stored for the URL, or null if there is none */
+    synchronized byte[] get(String url) {
+        loadIndex();
+        String fileName = ArticleCache.fileNameFor(url);
+        Long size = mIndex.get(fileName);
+        if (size == null) {
+            return null;
+        }
+        File file = new File(mDirectory, fileName);
+        try {
+            byte[] data = readFile(file, size.intValue());
+            // Mark the file as the most recently used one
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem reading a stored thumbnail", e);
+            remove(fileName);
+            return null;
+        }
+    }
+
+    /** Stores the image downloaded from the URL */
+    synchronized void put(String url, byte[] data) {
+        loadIndex();
+        if (data.length > mMaxSizeBytes) {
+            return;
+        }
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.w(LOG_TAG, "Cannot create " + mDirectory);
+            return;
+        }
+        String fileName = ArticleCache.fileNameFor(url);
+        File file = new File(mDirectory, fileName);
+        File temp = new File(mDirectory, fileName + ".tmp");
+        try {
+            OutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem storing a thumbnail", e);
+            temp.delete();
+            return;
+        }
+
+        // Replace the old file only when the new one is complete
+        remove(fileName);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        mIndex.put(fileName, (long) data.length);
+        mTotalSize += data.length;
+        trimToSize();
+    }
+
+    /** Returns the size of all the stored images, in bytes */
+    synchronized long size() {
+        loadIndex();
+        return mTotalSize;
+    }
+
+    /**
+     * Builds the index of stored files from the disk. The last modified time of each file is
+     * the time when it was last used.
+     */
+    private void loadIndex() {
+        if (mIndex != null) {
+            return;
+        }
+        mIndex = new LinkedHashMap<>(16, 0.75f, true);
+        mTotalSize = 0;
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : files) {
+            if (file.getName().endsWith(".tmp")) {
+                // Left over from a write which did not finish
+                file.delete();
+                continue;
+            }
+            mIndex.put(file.getName(), file.length());
+            mTotalSize += file.length();
+        }
+    }
+
+    /** Removes the least recently used files until the images fit in the size limit. */
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mIndex.entrySet().iterator();
+        while (mTotalSize > mMaxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            new File(mDirectory, eldest.getKey()).delete();
+            mTotalSize -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private void remove(String fileName) {
+        Long size = mIndex.remove(fileName);
+        if (size != null) {
+            mTotalSize -= size;
+        }
+        new File(mDirectory, fileName).delete();
+    }
+
+    private static byte[] readFile(File file, int size) throws IOException {
+        byte[] data = new byte[size];
+        InputStream in = new FileInputStream(file);
+        try {
+            int length = 0;
+            int read;
+            while (length < size && (read = in.read(data, length, size - length)) != -1) {
+                length += read;
+            }
+            if (length != size) {
+                throw new IOException("Thumbnail file is shorter than expected");
+            }
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+}
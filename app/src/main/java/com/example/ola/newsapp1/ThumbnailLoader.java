@@ -0,0 +1,329 @@
+package com.example.ola.newsapp1;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shows the thumbnails of the articles in the rows of the list.
+ *
+ * Images are downloaded and decoded on background threads, already scaled down to the size
+ * of the thumbnail view, and kept in two caches: decoded bitmaps in memory and the
+ * downloaded files on disk. Both have a size limit and drop the least recently used images.
+ * When a row is reused for another article, the request for its old image is cancelled.
+ *
+ * All the methods must be called on the main thread.
+ */
+final class ThumbnailLoader {
+
+    private static final String LOG_TAG = ThumbnailLoader.class.getName();
+
+    /** Name of the directory (inside the app's cache directory) with the downloaded images */
+    private static final String CACHE_DIR = "thumbnails";
+
+    /** Upper limit of the size of all downloaded images */
+    static final long DISK_CACHE_BYTES = 10 * 1024 * 1024L;
+
+    /** Images bigger than this are not downloaded, a thumbnail is never that big */
+    private static final int MAX_IMAGE_BYTES = 1024 * 1024;
+
+    /** Number of images downloaded and decoded at the same time */
+    private static final int THREADS = 2;
+
+    private static ThumbnailLoader sInstance;
+
+    private final ThumbnailDiskCache mDiskCache;
+    private final LruCache<String, Bitmap> mMemoryCache;
+    private final ExecutorService mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Size of the thumbnail views, the images are decoded for it
+    private final int mWidth;
+    private final int mHeight;
+
+    /** The image each view is waiting for, so it can be cancelled when the view is reused */
+    private final Map<ImageView, Request> mRequests = new WeakHashMap<>();
+
+    /** Images being loaded before their rows are on the screen, by URL */
+    private final Map<String, Future<?>> mPrefetches = new HashMap<>();
+
+    private ThumbnailLoader(Context context) {
+        mDiskCache = new ThumbnailDiskCache(new File(context.getCacheDir(), CACHE_DIR), DISK_CACHE_BYTES);
+        mWidth = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_width);
+        mHeight = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_height);
+
+        // A sixteenth of the memory the app may use, which is a few screens of thumbnails
+        int maxKilobytes = (int) (Runtime.getRuntime().maxMemory() / 1024 / 16);
+        mMemoryCache = new LruCache<String, Bitmap>(maxKilobytes) {
+            @Override
+            protected int sizeOf(String url, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+
+        // The newest requests are handled first, they are for the rows the user looks at now
+        mExecutor = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingDeque<Runnable>() {
+                    @Override
+                    public boolean offer(Runnable runnable) {
+                        return super.offerFirst(runnable);
+                    }
+                },
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ThumbnailLoader #" + mCount.incrementAndGet());
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+    }
+
+    /** Returns the loader shared by the whole app */
+    static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Shows the image at the URL in the view, or hides the view if the URL is null. The
+     * view is empty until the image is there.
+     */
+    void load(final ImageView view, final String url) {
+        Request previous = mRequests.remove(view);
+        if (previous != null) {
+            if (previous.mUrl.equals(url)) {
+                // Already on its way
+                mRequests.put(view, previous);
+                return;
+            }
+            // A prefetch may still be wanted by another row, it is left to finish
+            if (!previous.mPrefetched) {
+                previous.mFuture.cancel(true);
+            }
+        }
+
+        if (url == null) {
+            view.setImageDrawable(null);
+            view.setVisibility(View.GONE);
+            return;
+        }
+        view.setVisibility(View.VISIBLE);
+
+        Bitmap bitmap = mMemoryCache.get(url);
+        if (bitmap != null) {
+            view.setImageBitmap(bitmap);
+            return;
+        }
+        view.setImageDrawable(null);
+
+        final Request request = new Request(url);
+        Future<?> prefetch = mPrefetches.get(url);
+        if (prefetch != null) {
+            // Already loading for a row below the screen, shown when the prefetch is done
+            request.mFuture = prefetch;
+            request.mPrefetched = true;
+            mRequests.put(view, request);
+            return;
+        }
+        request.mFuture = mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap loaded = loadBitmap(url);
+                if (Thread.currentThread().isInterrupted()) {
+                    // Cancelled, the request was removed when the row was reused
+                    return;
+                }
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Only if the view still shows the same article. A failed request is
+                        // removed too, so the next bind of the row tries again.
+                        if (mRequests.get(view) == request) {
+                            mRequests.remove(view);
+                            if (loaded != null) {
+                                view.setImageBitmap(loaded);
+                            }
+                        }
+                    }
+                });
+            }
+        });
+        mRequests.put(view, request);
+    }
+
+    /**
+     * Loads the image at the URL into the memory cache, for a row which will soon scroll
+     * onto the screen.
+     */
+    void prefetch(final String url) {
+        if (url == null || mMemoryCache.get(url) != null || mPrefetches.containsKey(url)) {
+            return;
+        }
+        mPrefetches.put(url, mExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap loaded = loadBitmap(url);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mPrefetches.remove(url);
+                        // Rows which scrolled onto the screen meanwhile waited for this prefetch
+                        Iterator<Map.Entry<ImageView, Request>> requests = mRequests.entrySet().iterator();
+                        while (requests.hasNext()) {
+                            Map.Entry<ImageView, Request> entry = requests.next();
+                            Request request = entry.getValue();
+                            if (request.mPrefetched && request.mUrl.equals(url)) {
+                                requests.remove();
+                                if (loaded != null) {
+                                    entry.getKey().setImageBitmap(loaded);
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        }));
+    }
+
+    /**
+     * Returns the image at the URL decoded for the thumbnail size, from the memory cache, the
+     * disk cache or the network. Returns null if it cannot be loaded or the request was
+     * cancelled. This is on a background thread.
+     */
+    private Bitmap loadBitmap(String url) {
+        Bitmap bitmap = mMemoryCache.get(url);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        byte[] data = mDiskCache.get(url);
+        if (data == null) {
+            data = download(url);
+            if (data == null) {
+                return null;
+            }
+            mDiskCache.put(url, data);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            // The row was reused, the decoded image would not be shown
+            return null;
+        }
+
+        bitmap = decode(data, mWidth, mHeight);
+        if (bitmap != null) {
+            mMemoryCache.put(url, bitmap);
+        }
+        return bitmap;
+    }
+
+    /** Downloads the image at the URL, or returns null if the request failed. */
+    private static byte[] download(String imageUrl) {
+        HttpURLConnection urlConnection = null;
+        try {
+            urlConnection = (HttpURLConnection) new URL(imageUrl).openConnection();
+            urlConnection.setReadTimeout(10000 /* milliseconds */);
+            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            if (urlConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                Log.w(LOG_TAG, "Error response code " + urlConnection.getResponseCode() + " for a thumbnail");
+                return null;
+            }
+
+            int contentLength = urlConnection.getContentLength();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(
+                    contentLength > 0 ? Math.min(contentLength, MAX_IMAGE_BYTES) : BufferPool.MIN_SIZE);
+            byte[] buffer = BufferPool.acquire(BufferPool.MIN_SIZE);
+            InputStream inputStream = urlConnection.getInputStream();
+            try {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                    if (output.size() > MAX_IMAGE_BYTES || Thread.currentThread().isInterrupted()) {
+                        return null;
+                    }
+                }
+            } finally {
+                BufferPool.release(buffer);
+                inputStream.close();
+            }
+            return output.toByteArray();
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem downloading a thumbnail", e);
+            return null;
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Decodes the image scaled down to about the given size. Thumbnails are photos without
+     * transparency, so they use 2 bytes per pixel instead of 4.
+     */
+    private static Bitmap decode(byte[] data, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+    }
+
+    /**
+     * Returns the biggest power of two the image can be scaled down by while staying at least
+     * as big as the requested size.
+     */
+    static int calculateInSampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int inSampleSize = 1;
+        while (imageWidth / (inSampleSize * 2) >= width && imageHeight / (inSampleSize * 2) >= height) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /** The image a view is waiting for */
+    private static class Request {
+        final String mUrl;
+        Future<?> mFuture;
+        // True if mFuture is a prefetch, which is not cancelled with the request
+        boolean mPrefetched;
+
+        Request(String url) {
+            mUrl = url;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of storing the text of the articles in {@link ArticleBodyStore}.
+ */
+public class ArticleBodyStoreTest {
+
+    private static final String URL_1 = "https://www.theguardian.com/technology/1";
+    private static final String URL_2 = "https://www.theguardian.com/technology/2";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsStoredTextAfterRestart() throws Exception {
+        File file = new File(mFolder.getRoot(), "bodies");
+        ArticleBodyStore store = new ArticleBodyStore(file, 1024 * 1024);
+        assertNull(store.get(URL_1));
+
+        store.put(URL_1, "Ten years of the smartphone – and what comes next");
+        store.put(URL_2, "Zażółć gęślą jaźń");
+        assertEquals("Ten years of the smartphone – and what comes next", store.get(URL_1));
+
+        ArticleBodyStore reopened = new ArticleBodyStore(file, 1024 * 1024);
+        assertEquals(2, reopened.size());
+        assertEquals("Zażółć gęślą jaźń", reopened.get(URL_2));
+    }
+
+    @Test
+    public void put_replacesTextOfSameArticle() throws Exception {
+        File file = new File(mFolder.getRoot(), "bodies");
+        ArticleBodyStore store = new ArticleBodyStore(file, 1024 * 1024);
+        store.put(URL_1, "First version");
+        store.put(URL_1, "Corrected version");
+
+        assertEquals(1, store.size());
+        assertEquals("Corrected version", store.get(URL_1));
+        assertEquals("Corrected version", new ArticleBodyStore(file, 1024 * 1024).get(URL_1));
+    }
+
+    @Test(timeout = 5000)
+    public void contains_doesNotWaitForAWrite() throws Exception {
+        final ArticleBodyStore store = new ArticleBodyStore(new File(mFolder.getRoot(), "bodies"), 1024 * 1024);
+        store.put(URL_1, "First version");
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        // Holds the lock of the store like a long write does
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (store) {
+                    locked.countDown();
+                    try {
+                        done.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        });
+        writer.start();
+        locked.await();
+
+        try {
+            assertTrue(store.contains(URL_1));
+            assertFalse(store.contains(URL_2));
+        } finally {
+            done.countDown();
+            writer.join();
+        }
+    }
+
+    @Test
+    public void put_dropsOldestTextsToStayUnderLimit() throws Exception {
+        File file = new File(mFolder.getRoot(), "bodies");
+        long limit = 16 * 1024;
+        ArticleBodyStore store = new ArticleBodyStore(file, limit);
+
+        // Random text doesn't compress, so every record is about 2 KB
+        Random random = new Random(42);
+        for (int i = 0; i < 20; i++) {
+            store.put(URL_1 + "/" + i, randomText(random, 2000));
+            assertTrue(store.sizeInBytes() <= limit);
+            assertTrue(file.length() <= limit);
+        }
+
+        // The newest text is always kept, the oldest ones are gone
+        assertNotNull(store.get(URL_1 + "/19"));
+        assertFalse(store.contains(URL_1 + "/0"));
+        assertTrue(store.size() < 20);
+        assertEquals(store.size(), new ArticleBodyStore(file, limit).size());
+    }
+
+    @Test
+    public void load_dropsIncompleteLastText() throws Exception {
+        File file = new File(mFolder.getRoot(), "bodies");
+        ArticleBodyStore store = new ArticleBodyStore(file, 1024 * 1024);
+        store.put(URL_1, "Complete text");
+        long complete = file.length();
+        store.put(URL_2, "This text was cut off while it was being written");
+
+        // Cut the second record in the middle
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(complete + 10);
+        raf.close();
+
+        ArticleBodyStore reopened = new ArticleBodyStore(file, 1024 * 1024);
+        assertEquals("Complete text", reopened.get(URL_1));
+        assertFalse(reopened.contains(URL_2));
+        assertEquals(complete, file.length());
+
+        reopened.put(URL_2, "Written again");
+        assertEquals("Written again", new ArticleBodyStore(file, 1024 * 1024).get(URL_2));
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('!' + random.nextInt(90)));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the {@link ArticleCache} file store.
+ */
+public class ArticleCacheTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void put_thenGet_returnsSameArticles() throws Exception {
+        ArticleCache cache = new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES);
+        cache.put("https://example.com/a", articles("a", 3));
+
+        ArticleCache.Entry entry = cache.get("https://example.com/a");
+
+        assertNotNull(entry);
+        assertTrue(entry.isFresh());
+        assertEquals(3, entry.getArticles().size());
+        assertEquals("a title 1", entry.getArticles().get(1).getNewsTitle());
+        assertEquals("a author 1", entry.getArticles().get(1).getAuthorsName());
+        assertNull(cache.get("https://example.com/other"));
+    }
+
+    @Test
+    public void entries_surviveNewCacheInstance() throws Exception {
+        new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES).put("https://example.com/a", articles("a", 2));
+
+        ArticleCache.Entry entry = new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES)
+                .get("https://example.com/a");
+
+        assertNotNull(entry);
+        assertEquals(2, entry.getArticles().size());
+    }
+
+    @Test
+    public void put_overSizeLimit_evictsLeastRecentlyUsed() throws Exception {
+        // Measure one entry, then allow a bit more than two of them
+        new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES).put("https://example.com/a", articles("a", 10));
+        long entrySize = mFolder.getRoot().listFiles()[0].length();
+
+        ArticleCache cache = new ArticleCache(mFolder.getRoot(), entrySize * 5 / 2);
+        cache.put("https://example.com/b", articles("b", 10));
+        // Use "a", so "b" becomes the least recently used entry
+        assertNotNull(cache.get("https://example.com/a"));
+        cache.put("https://example.com/c", articles("c", 10));
+
+        assertNotNull(cache.get("https://example.com/a"));
+        assertNull(cache.get("https://example.com/b"));
+        assertNotNull(cache.get("https://example.com/c"));
+    }
+
+    @Test
+    public void validators_areStoredAndKeptOnRevalidation() throws Exception {
+        long savedAt = System.currentTimeMillis();
+        new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES).put("https://example.com/a",
+                new ArticleCache.Entry(articles("a", 1).getArticles(), savedAt, "\"v1\"", null));
+
+        ArticleCache.Entry stored = new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES)
+                .get("https://example.com/a");
+        ArticleCache.Entry revalidated = stored.revalidated(savedAt + 1000L, null, "Sun, 29 Apr 2018 06:00:00 GMT");
+
+        assertEquals("\"v1\"", stored.getETag());
+        assertNull(stored.getLastModified());
+        assertSame(stored.getArticles(), revalidated.getArticles());
+        assertEquals("\"v1\"", revalidated.getETag());
+        assertEquals("Sun, 29 Apr 2018 06:00:00 GMT", revalidated.getLastModified());
+        assertEquals(savedAt + 1000L, revalidated.getSavedAt());
+    }
+
+    @Test
+    public void get_touchesFileOnlyWhenItsTimeIsOutOfDate() throws Exception {
+        ArticleCache cache = new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES);
+        cache.put("https://example.com/a", articles("a", 2));
+        File file = mFolder.getRoot().listFiles()[0];
+        // Changed behind the back of the store, which still has the time it wrote
+        // Whole seconds, which every file system can store
+        long old = (System.currentTimeMillis() - 2 * ArticleCache.TOUCH_STEP_MILLIS) / 1000 * 1000;
+        assertTrue(file.setLastModified(old));
+
+        assertNotNull(cache.get("https://example.com/a"));
+        assertEquals(old, file.lastModified());
+
+        // A new store reads the old time from the file, so the next read brings it up to date
+        assertNotNull(new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES)
+                .get("https://example.com/a"));
+        assertTrue(file.lastModified() > old);
+    }
+
+    @Test
+    public void markIndexed_onlyOnceForTheSameArticles() throws Exception {
+        ArticleCache cache = new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES);
+        cache.put("https://example.com/a", articles("a", 2));
+
+        assertTrue(cache.get("https://example.com/a").markIndexed());
+        assertFalse(cache.get("https://example.com/a").markIndexed());
+        assertFalse(cache.get("https://example.com/a").revalidated(System.currentTimeMillis(), null, null)
+                .markIndexed());
+        // Read from the disk again, so they have to be indexed again
+        assertTrue(new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES)
+                .get("https://example.com/a").markIndexed());
+    }
+
+    private static ArticleCache.Entry articles(String prefix, int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article(prefix + " title " + i, "Technology", prefix + " author " + i,
+                    "2018-04-29T06:00:0" + i + "Z", "https://www.theguardian.com/" + prefix + "/" + i));
+        }
+        return new ArticleCache.Entry(articles, System.currentTimeMillis(), null, null);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link ArticleCodec}.
+ */
+public class ArticleCodecTest {
+
+    @Test
+    public void decode_returnsEncodedArticles() throws IOException {
+        List<Article> articles = Arrays.asList(
+                new Article("Title ą 🎉", "Technology", "Author", 1525000000000L,
+                        "https://www.theguardian.com/technology/a", "https://media.guim.co.uk/a.jpg"),
+                new Article("Second", "Technology", new String[]{"Author", "Second author"}, 1524990000000L,
+                        "https://www.theguardian.com/technology/b", null),
+                new Article("No byline", "Technology", "", 1524980000000L,
+                        "https://www.theguardian.com/technology/d", null),
+                new Article("Undated", "Politics", "Author", ArticleDates.UNKNOWN,
+                        "https://www.theguardian.com/politics/c", "https://media.guim.co.uk/c.jpg"));
+
+        List<Article> decoded = ArticleCodec.decode(ArticleCodec.encode(articles));
+
+        assertEquals(articles.size(), decoded.size());
+        for (int i = 0; i < articles.size(); i++) {
+            assertTrue("Article " + i, articles.get(i).sameContentAs(decoded.get(i)));
+        }
+    }
+
+    @Test
+    public void decode_emptyList() throws IOException {
+        assertTrue(ArticleCodec.decode(ArticleCodec.encode(Collections.<Article>emptyList())).isEmpty());
+    }
+
+    @Test
+    public void decode_onlyRequestedFields() throws IOException {
+        byte[] encoded = ArticleCodec.encode(articles(3));
+
+        List<Article> rows = ArticleCodec.decode(encoded, 0, encoded.length,
+                ArticleCodec.FIELD_TITLE | ArticleCodec.FIELD_URL);
+
+        assertEquals("Title 1", rows.get(1).getNewsTitle());
+        assertEquals("https://www.theguardian.com/technology/1", rows.get(1).getNewsUrl());
+        assertEquals("", rows.get(1).getNewsSection());
+        assertEquals(ArticleDates.UNKNOWN, rows.get(1).getPublishedAt());
+        assertNull(rows.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void encode_repeatedNamesAreWrittenOnce() {
+        int oneArticle = ArticleCodec.encode(articles(1)).length;
+        int manyArticles = ArticleCodec.encode(articles(101)).length;
+
+        // Title, date and the ends of the URLs for each further article, but not the names,
+        // which alone are longer than that
+        assertTrue("Bytes per article: " + (manyArticles - oneArticle) / 100,
+                manyArticles - oneArticle < 100 * 40);
+    }
+
+    @Test(expected = IOException.class)
+    public void decode_otherVersion_fails() throws IOException {
+        byte[] encoded = ArticleCodec.encode(articles(2));
+        encoded[0] = ArticleCodec.FORMAT_VERSION + 1;
+        ArticleCodec.decode(encoded);
+    }
+
+    @Test
+    public void decode_incompleteData_fails() {
+        byte[] encoded = ArticleCodec.encode(articles(5));
+        for (int length = 0; length < encoded.length; length++) {
+            try {
+                ArticleCodec.decode(Arrays.copyOf(encoded, length));
+                fail("Decoded " + length + " of " + encoded.length + " bytes");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    private static List<Article> articles(int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article("Title " + i, "Technology and science", "Author with a long name " + (i % 3),
+                    1525000000000L - i * 60000L, "https://www.theguardian.com/technology/" + i,
+                    "https://media.guim.co.uk/" + i + ".jpg"));
+        }
+        return articles;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of reading the publication dates in {@link ArticleDates}.
+ */
+public class ArticleDatesTest {
+
+    @Test
+    public void parseIso8601_matchesSimpleDateFormat() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String[] dates = {"2018-04-29T06:00:09Z", "2016-02-29T23:59:59Z", "1970-01-01T00:00:00Z",
+                "2000-03-01T12:30:00Z", "1969-12-31T23:59:59Z", "2100-12-31T00:00:01Z"};
+
+        for (String date : dates) {
+            assertEquals(date, format.parse(date).getTime(), ArticleDates.parseIso8601(date));
+        }
+    }
+
+    @Test
+    public void parseIso8601_readsFractionsAndOffsets() {
+        long utc = ArticleDates.parseIso8601("2018-04-29T06:00:00Z");
+
+        assertEquals(utc + 123, ArticleDates.parseIso8601("2018-04-29T06:00:00.123456Z"));
+        assertEquals(utc, ArticleDates.parseIso8601("2018-04-29T07:30:00+01:30"));
+        assertEquals(utc, ArticleDates.parseIso8601("2018-04-29T01:00:00-05:00"));
+        assertEquals(utc, ArticleDates.parseIso8601("2018-04-29T06:00:00"));
+    }
+
+    @Test
+    public void parseIso8601_rejectsOtherText() {
+        assertEquals(ArticleDates.UNKNOWN, ArticleDates.parseIso8601(null));
+        assertEquals(ArticleDates.UNKNOWN, ArticleDates.parseIso8601(""));
+        assertEquals(ArticleDates.UNKNOWN, ArticleDates.parseIso8601("29 April 2018"));
+        assertEquals(ArticleDates.UNKNOWN, ArticleDates.parseIso8601("2018-13-29T06:00:00Z"));
+        assertEquals(ArticleDates.UNKNOWN, ArticleDates.parseIso8601("2018-04-29T06:00:00Q"));
+        assertEquals(ArticleDates.UNKNOWN, ArticleDates.parseIso8601("2018-04-29T06:00:00.Z"));
+    }
+
+    @Test
+    public void formatIso8601_isReadBackByParser() {
+        assertEquals("2018-04-29T06:00:09Z", ArticleDates.formatIso8601(ArticleDates.parseIso8601("2018-04-29T06:00:09Z")));
+        assertEquals("2000-02-29T23:59:59Z", ArticleDates.formatIso8601(ArticleDates.parseIso8601("2000-02-29T23:59:59.999Z")));
+        assertEquals("1969-12-31T23:00:00Z", ArticleDates.formatIso8601(-60 * 60 * 1000L));
+    }
+
+    @Test
+    public void article_sharesNamesAndCachesDisplayDate() {
+        Article first = new Article("a", new String("Technology"), new String("Jane Doe"), "2018-04-29T06:00:00Z", "u1");
+        Article second = new Article("b", new String("Technology"), new String("Jane Doe"), "2018-04-29T07:00:00Z", "u2");
+
+        assertSame(first.getNewsSection(), second.getNewsSection());
+        assertSame(first.getAuthorsName(), second.getAuthorsName());
+        assertSame(first.getNewsDate(), first.getNewsDate());
+        assertFalse(first.getNewsDate().isEmpty());
+    }
+}
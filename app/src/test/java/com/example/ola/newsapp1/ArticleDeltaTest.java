@@ -0,0 +1,55 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the incremental refresh of the first page in {@link ArticleDelta}.
+ */
+public class ArticleDeltaTest {
+
+    private static final String FIRST_PAGE =
+            "https://content.guardianapis.com/search?order-by=newest&section=technology&page-size=3&page=1&api-key=test";
+
+    @Test
+    public void deltaUrl_startsAtNewestStoredArticle() {
+        List<Article> stored = Arrays.asList(article("b", "2018-04-29T06:00:00Z"), article("a", "2018-04-28T06:00:00Z"));
+
+        assertEquals(FIRST_PAGE + "&from-date=2018-04-29T06%3A00%3A00Z", ArticleDelta.deltaUrl(FIRST_PAGE, stored));
+    }
+
+    @Test
+    public void deltaUrl_onlyForFirstPageOfNewest() {
+        List<Article> stored = Collections.singletonList(article("a", "2018-04-28T06:00:00Z"));
+
+        assertNull(ArticleDelta.deltaUrl(FIRST_PAGE.replace("order-by=newest", "order-by=oldest"), stored));
+        assertNull(ArticleDelta.deltaUrl(FIRST_PAGE.replace("page=1", "page=2"), stored));
+        assertNull(ArticleDelta.deltaUrl(FIRST_PAGE.replace("page=1", "page=10"), stored));
+        assertNull(ArticleDelta.deltaUrl(FIRST_PAGE, Collections.<Article>emptyList()));
+        assertEquals(3, ArticleDelta.pageSize(FIRST_PAGE));
+    }
+
+    @Test
+    public void merge_putsNewArticlesOnTopAndCutsPage() {
+        List<Article> stored = Arrays.asList(article("c", "2018-04-29T06:00:00Z"),
+                article("b", "2018-04-28T06:00:00Z"), article("a", "2018-04-27T06:00:00Z"));
+        // The article at the watermark comes back with the new one
+        List<Article> newer = Arrays.asList(article("d", "2018-04-30T06:00:00Z"), article("c", "2018-04-29T06:00:00Z"));
+
+        List<Article> merged = ArticleDelta.merge(stored, newer, 3);
+
+        assertEquals(3, merged.size());
+        assertEquals("https://www.theguardian.com/d", merged.get(0).getNewsUrl());
+        assertEquals("https://www.theguardian.com/c", merged.get(1).getNewsUrl());
+        assertEquals("https://www.theguardian.com/b", merged.get(2).getNewsUrl());
+    }
+
+    private static Article article(String id, String date) {
+        return new Article("Title " + id, "Technology", "Author", date, "https://www.theguardian.com/" + id);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link ArticleDiff}.
+ */
+public class ArticleDiffTest {
+
+    @Test
+    public void sameArticles_noSteps() {
+        assertSteps(list("a", "b", "c"), list("a", "b", "c"), 0);
+    }
+
+    @Test
+    public void newArticlesOnTop_onlyInserted() {
+        assertSteps(list("c", "d", "e"), list("a", "b", "c", "d", "e"), 2);
+    }
+
+    @Test
+    public void articlesPushedOffTheEnd_onlyRemoved() {
+        assertSteps(list("a", "b", "c", "d"), list("x", "a", "b"), 3);
+    }
+
+    @Test
+    public void changedArticle_onlyChanged() {
+        List<Article> newList = list("a", "b", "c");
+        newList.set(1, new Article("b updated", "Technology", "author", "2018-04-29T06:00:00Z", "https://www.theguardian.com/b"));
+
+        assertSteps(list("a", "b", "c"), newList, 1);
+    }
+
+    @Test
+    public void movedArticle_removedAndInserted() {
+        assertSteps(list("a", "b", "c", "d"), list("d", "a", "b", "c"), 2);
+    }
+
+    @Test
+    public void shuffledLists_endUpEqual() {
+        assertSteps(list("a", "b", "c", "d", "e", "f"), list("f", "x", "c", "a", "y", "e"), -1);
+        assertSteps(list(), list("a", "b"), 2);
+        assertSteps(list("a", "b"), list(), 2);
+    }
+
+    /**
+     * Applies the steps to a copy of the old list, checks that it ends up equal to the new
+     * list and, unless expectedSteps is negative, that the number of steps is as expected.
+     */
+    private static void assertSteps(List<Article> oldList, List<Article> newList, int expectedSteps) {
+        final List<Article> result = new ArrayList<>(oldList);
+        int steps = ArticleDiff.apply(oldList, newList, new ArticleDiff.Callback() {
+            @Override
+            public void onInserted(int position, Article article) {
+                result.add(position, article);
+            }
+
+            @Override
+            public void onRemoved(int position) {
+                result.remove(position);
+            }
+
+            @Override
+            public void onChanged(int position, Article article) {
+                result.set(position, article);
+            }
+        });
+
+        assertEquals(newList.size(), result.size());
+        for (int i = 0; i < newList.size(); i++) {
+            assertTrue("Different article at " + i, newList.get(i).sameContentAs(result.get(i)));
+        }
+        if (expectedSteps >= 0) {
+            assertEquals(expectedSteps, steps);
+        }
+    }
+
+    private static List<Article> list(String... keys) {
+        List<Article> articles = new ArrayList<>();
+        for (String key : Arrays.asList(keys)) {
+            articles.add(new Article(key, "Technology", "author", "2018-04-29T06:00:00Z", "https://www.theguardian.com/" + key));
+        }
+        return articles;
+    }
+}
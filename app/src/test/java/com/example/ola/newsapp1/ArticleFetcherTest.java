@@ -0,0 +1,168 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of sharing the downloads in {@link ArticleFetcher}.
+ */
+public class ArticleFetcherTest {
+
+    private static final String URL = "https://content.guardianapis.com/search?section=technology";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void fetch_concurrentCallsShareOneRequest() throws Exception {
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch finishRequest = new CountDownLatch(1);
+        final CountingSource source = new CountingSource() {
+            @Override
+            public ArticleCache.Entry download(String url, ArticleCache.Entry cached) {
+                requestStarted.countDown();
+                try {
+                    finishRequest.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.download(url, cached);
+            }
+        };
+        final ArticleFetcher fetcher = newFetcher(source, ArticleCache.TTL_MILLIS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<ArticleCache.Entry> first = executor.submit(fetchTask(fetcher));
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+            Future<ArticleCache.Entry> second = executor.submit(fetchTask(fetcher));
+            Future<ArticleCache.Entry> third = executor.submit(fetchTask(fetcher));
+            // Give the other two callers time to attach to the running request
+            Thread.sleep(100);
+            finishRequest.countDown();
+
+            assertSame(first.get(), second.get());
+            assertSame(first.get(), third.get());
+            assertEquals(1, source.mRequests.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fetch_withinFreshnessWindow_usesStoredArticles() throws Exception {
+        CountingSource source = new CountingSource();
+        ArticleFetcher fetcher = newFetcher(source, ArticleCache.TTL_MILLIS);
+
+        ArticleCache.Entry downloaded = fetcher.fetch(URL);
+        ArticleCache.Entry again = fetcher.fetch(URL);
+
+        assertEquals(1, source.mRequests.get());
+        assertSame(downloaded.getArticles(), again.getArticles());
+        assertTrue(fetcher.isFresh(again));
+    }
+
+    @Test
+    public void fetch_afterFreshnessWindow_asksAgain() throws Exception {
+        CountingSource source = new CountingSource();
+        ArticleFetcher fetcher = newFetcher(source, 0);
+
+        fetcher.fetch(URL);
+        fetcher.fetch(URL);
+
+        assertEquals(2, source.mRequests.get());
+    }
+
+    @Test
+    public void fetch_failedRequest_keepsStoredArticles() throws Exception {
+        CountingSource source = new CountingSource();
+        ArticleFetcher fetcher = newFetcher(source, 0);
+        ArticleCache.Entry downloaded = fetcher.fetch(URL);
+
+        source.mFail = true;
+        ArticleCache.Entry afterFailure = fetcher.fetch(URL);
+
+        assertNotNull(afterFailure);
+        assertSame(downloaded.getArticles(), afterFailure.getArticles());
+    }
+
+    @Test
+    public void fetch_firstPageOfNewest_asksOnlyForNewArticles() throws Exception {
+        final String firstPage = "https://content.guardianapis.com/search?order-by=newest&page-size=2&page=1";
+        final List<String> requested = new ArrayList<>();
+        ArticleFetcher.Source source = new ArticleFetcher.Source() {
+            @Override
+            public ArticleCache.Entry download(String url, ArticleCache.Entry cached) {
+                requested.add(url);
+                List<Article> articles = new ArrayList<>();
+                if (requested.size() == 1) {
+                    articles.add(new Article("Old", "Technology", "Author", "2018-04-28T06:00:00Z",
+                            "https://www.theguardian.com/old"));
+                    articles.add(new Article("Older", "Technology", "Author", "2018-04-27T06:00:00Z",
+                            "https://www.theguardian.com/older"));
+                } else {
+                    articles.add(new Article("New", "Technology", "Author", "2018-04-29T06:00:00Z",
+                            "https://www.theguardian.com/new"));
+                }
+                return new ArticleCache.Entry(articles, System.currentTimeMillis(), "etag", null);
+            }
+        };
+        ArticleFetcher fetcher = newFetcher(source, 0);
+
+        fetcher.fetch(firstPage);
+        ArticleCache.Entry refreshed = fetcher.fetch(firstPage);
+
+        assertEquals(firstPage + "&from-date=2018-04-28T06%3A00%3A00Z", requested.get(1));
+        assertEquals(2, refreshed.getArticles().size());
+        assertEquals("New", refreshed.getArticles().get(0).getNewsTitle());
+        assertEquals("Old", refreshed.getArticles().get(1).getNewsTitle());
+        assertNull(refreshed.getETag());
+    }
+
+    private ArticleFetcher newFetcher(ArticleFetcher.Source source, long freshnessWindowMillis) {
+        return new ArticleFetcher(new ArticleCache(mFolder.getRoot(), ArticleCache.MAX_SIZE_BYTES),
+                new ArticleSearchIndex(), new ContributorIndex(ContributorIndex.MAX_ARTICLES),
+                source, freshnessWindowMillis);
+    }
+
+    private static Callable<ArticleCache.Entry> fetchTask(final ArticleFetcher fetcher) {
+        return new Callable<ArticleCache.Entry>() {
+            @Override
+            public ArticleCache.Entry call() throws Exception {
+                return fetcher.fetch(URL);
+            }
+        };
+    }
+
+    /** Answers every request with one article and counts the requests */
+    private static class CountingSource implements ArticleFetcher.Source {
+        final AtomicInteger mRequests = new AtomicInteger();
+        volatile boolean mFail;
+
+        @Override
+        public ArticleCache.Entry download(String url, ArticleCache.Entry cached) {
+            mRequests.incrementAndGet();
+            if (mFail) {
+                return null;
+            }
+            Article article = new Article("Title", "Technology", "Author", "2018-04-29T06:00:00Z",
+                    "https://www.theguardian.com/a");
+            return new ArticleCache.Entry(Collections.singletonList(article),
+                    System.currentTimeMillis(), null, null);
+        }
+    }
+}
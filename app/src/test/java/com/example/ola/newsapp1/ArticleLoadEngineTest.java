@@ -0,0 +1,234 @@
+package com.example.ola.newsapp1;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the stages a page goes through in {@link ArticleLoadEngine}. Results are
+ * handed over through a queue which stands in for the main thread.
+ */
+public class ArticleLoadEngineTest {
+
+    private static final List<String> URLS = Collections.singletonList(
+            "https://content.guardianapis.com/search?section=technology");
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final ExecutorService mWorkers = Executors.newFixedThreadPool(ArticleLoadEngine.LOAD_THREADS);
+    private final ScheduledExecutorService mStateWriter = Executors.newSingleThreadScheduledExecutor();
+    private final BlockingQueue<Runnable> mMainThread = new LinkedBlockingQueue<>();
+    private final RecordingListener mListener = new RecordingListener();
+    private volatile boolean mOnline = true;
+
+    @After
+    public void tearDown() {
+        mWorkers.shutdownNow();
+        mStateWriter.shutdownNow();
+    }
+
+    @Test
+    public void load_publishesStoredThenCompleteArticles() throws Exception {
+        ArticleFetcher fetcher = newFetcher(new NumberingSource(), 0);
+        // Something stored from an earlier run, stale at once
+        fetcher.fetch(URLS.get(0));
+        ArticleLoadEngine engine = newEngine(fetcher);
+        engine.attach(mListener);
+
+        engine.load(1, URLS, true, false);
+        assertTrue(engine.isLoading(1));
+        runMainThreadUntil(1, ArticleLoadEngine.Stage.COMPLETE);
+
+        assertEquals("1 STORED Title 1", mListener.mEvents.get(0));
+        assertEquals("1 COMPLETE Title 2", mListener.mEvents.get(1));
+        assertFalse(engine.isLoading(1));
+    }
+
+    @Test
+    public void load_firstPage_isKeptForTheNextStart() throws Exception {
+        ArticleLoadEngine engine = newEngine(newFetcher(new NumberingSource(), 0));
+        engine.attach(mListener);
+
+        engine.load(1, URLS, true, false);
+        runMainThreadUntil(1, ArticleLoadEngine.Stage.COMPLETE);
+        mWorkers.shutdown();
+        assertTrue(mWorkers.awaitTermination(5, TimeUnit.SECONDS));
+
+        StartupSnapshot.Rows rows = new StartupSnapshot(new File(mFolder.getRoot(), "snapshot")).read();
+        assertTrue(rows.isFor(URLS));
+        assertEquals("Title 1", rows.getArticles().get(0).getNewsTitle());
+    }
+
+    @Test
+    public void load_offline_publishesStoredArticlesOnly() throws Exception {
+        NumberingSource source = new NumberingSource();
+        ArticleFetcher fetcher = newFetcher(source, 0);
+        fetcher.fetch(URLS.get(0));
+        mOnline = false;
+        ArticleLoadEngine engine = newEngine(fetcher);
+        engine.attach(mListener);
+
+        engine.load(1, URLS, true, false);
+        runMainThreadUntil(1, ArticleLoadEngine.Stage.COMPLETE);
+
+        assertEquals(Collections.singletonList("1 COMPLETE Title 1"), mListener.mEvents);
+        assertEquals(1, source.mRequests.get());
+    }
+
+    @Test
+    public void attach_redeliversPagesWithoutLoadingAgain() throws Exception {
+        NumberingSource source = new NumberingSource();
+        ArticleLoadEngine engine = newEngine(newFetcher(source, ArticleCache.TTL_MILLIS));
+        engine.attach(mListener);
+        engine.load(1, URLS, true, false);
+        runMainThreadUntil(1, ArticleLoadEngine.Stage.COMPLETE);
+
+        // The activity is recreated after a rotation
+        engine.detach(false);
+        RecordingListener next = new RecordingListener();
+        engine.attach(next);
+
+        assertEquals(Collections.singletonList("1 COMPLETE Title 1"), next.mEvents);
+        assertTrue(engine.hasLoad(1));
+        assertEquals(1, source.mRequests.get());
+    }
+
+    @Test
+    public void forget_pageIsNotRedelivered() throws Exception {
+        ArticleLoadEngine engine = newEngine(newFetcher(new NumberingSource(), ArticleCache.TTL_MILLIS));
+        engine.attach(mListener);
+        engine.load(1, URLS, true, false);
+        runMainThreadUntil(1, ArticleLoadEngine.Stage.COMPLETE);
+        engine.load(2, URLS, true, false);
+        runMainThreadUntil(2, ArticleLoadEngine.Stage.COMPLETE);
+
+        // The list dropped the first page
+        engine.forget(1);
+        engine.detach(false);
+        RecordingListener next = new RecordingListener();
+        engine.attach(next);
+
+        assertEquals(1, next.mEvents.size());
+        assertTrue(next.mEvents.get(0).startsWith("2 COMPLETE"));
+        assertFalse(engine.hasLoad(1));
+    }
+
+    @Test
+    public void detach_cancelsRunningLoads() throws Exception {
+        final CountDownLatch requestStarted = new CountDownLatch(1);
+        final CountDownLatch requestInterrupted = new CountDownLatch(1);
+        ArticleFetcher.Source blocking = new ArticleFetcher.Source() {
+            @Override
+            public ArticleCache.Entry download(String url, ArticleCache.Entry cached) {
+                requestStarted.countDown();
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    requestInterrupted.countDown();
+                }
+                return null;
+            }
+        };
+        ArticleLoadEngine engine = newEngine(newFetcher(blocking, 0));
+        engine.attach(mListener);
+        engine.load(1, URLS, true, false);
+        assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+
+        // The screen is closed for good
+        engine.detach(true);
+
+        assertTrue(requestInterrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(engine.hasLoad(1));
+        Runnable delivery;
+        while ((delivery = mMainThread.poll(100, TimeUnit.MILLISECONDS)) != null) {
+            delivery.run();
+        }
+        assertTrue(mListener.mEvents.isEmpty());
+    }
+
+    private ArticleLoadEngine newEngine(ArticleFetcher fetcher) {
+        return new ArticleLoadEngine(fetcher,
+                new ArticleBodyStore(new File(mFolder.getRoot(), "bodies"), 1024 * 1024),
+                mWorkers,
+                new Executor() {
+                    @Override
+                    public void execute(Runnable runnable) {
+                        mMainThread.add(runnable);
+                    }
+                },
+                new ArticleLoadEngine.Network() {
+                    @Override
+                    public boolean isConnected() {
+                        return mOnline;
+                    }
+                },
+                new StartupSnapshot(new File(mFolder.getRoot(), "snapshot")),
+                new ArticleRanker(null, DIRECT,
+                        new ArticleStateStore(new File(mFolder.getRoot(), "state"), mStateWriter, DIRECT)));
+    }
+
+    private ArticleFetcher newFetcher(ArticleFetcher.Source source, long freshnessWindowMillis) {
+        return new ArticleFetcher(new ArticleCache(new File(mFolder.getRoot(), "articles"), ArticleCache.MAX_SIZE_BYTES),
+                new ArticleSearchIndex(), new ContributorIndex(ContributorIndex.MAX_ARTICLES),
+                source, freshnessWindowMillis);
+    }
+
+    /** Runs what the engine hands to the main thread until the page reaches the stage */
+    private void runMainThreadUntil(int page, ArticleLoadEngine.Stage stage) throws InterruptedException {
+        String prefix = page + " " + stage;
+        while (mListener.mEvents.isEmpty() || !mListener.mEvents.get(mListener.mEvents.size() - 1).startsWith(prefix)) {
+            Runnable delivery = mMainThread.poll(5, TimeUnit.SECONDS);
+            assertNotNull("Page " + page + " never reached " + stage, delivery);
+            delivery.run();
+        }
+    }
+
+    /** Answers every request with one article titled by the number of the request */
+    private static class NumberingSource implements ArticleFetcher.Source {
+        final AtomicInteger mRequests = new AtomicInteger();
+
+        @Override
+        public ArticleCache.Entry download(String url, ArticleCache.Entry cached) {
+            int number = mRequests.incrementAndGet();
+            Article article = new Article("Title " + number, "Technology", "Author",
+                    "2018-04-29T06:00:00Z", "https://www.theguardian.com/a");
+            return new ArticleCache.Entry(Collections.singletonList(article),
+                    System.currentTimeMillis(), null, null);
+        }
+    }
+
+    /** Records the published pages as "page stage title of the first article" */
+    private static class RecordingListener implements ArticleLoadEngine.Listener {
+        final List<String> mEvents = new ArrayList<>();
+
+        @Override
+        public void onPageLoaded(int page, List<Article> articles, ArticleLoadEngine.Stage stage) {
+            mEvents.add(page + " " + stage + " " + (articles == null ? null : articles.get(0).getNewsTitle()));
+        }
+    }
+}
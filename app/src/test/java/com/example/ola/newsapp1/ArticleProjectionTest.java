@@ -0,0 +1,50 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link ArticleProjection} and of parsing a response with it.
+ */
+public class ArticleProjectionTest {
+
+    @Test
+    public void parameters_listOnlyTheRequestedParts() {
+        assertEquals("thumbnail", ArticleProjection.ROWS.getShowFields());
+        assertEquals("contributor", ArticleProjection.ROWS.getShowTags());
+        assertEquals("bodyText", ArticleProjection.BODIES.getShowFields());
+        assertNull(ArticleProjection.BODIES.getShowTags());
+        assertNull(new ArticleProjection(0).getShowFields());
+    }
+
+    @Test
+    public void fromUrl_readsTheParametersBack() {
+        String url = "https://content.guardianapis.com/search?order-by=newest&show-tags=contributor"
+                + "&show-fields=thumbnail%2CbodyText&page=1";
+
+        ArticleProjection projection = ArticleProjection.fromUrl(url);
+
+        assertEquals(new ArticleProjection(ArticleProjection.CONTRIBUTORS
+                | ArticleProjection.THUMBNAIL | ArticleProjection.BODY_TEXT), projection);
+        assertEquals(ArticleProjection.BODIES, ArticleProjection.fromUrl(
+                "https://content.guardianapis.com/search?show-fields=bodyText"));
+        assertEquals(new ArticleProjection(0), ArticleProjection.fromUrl("https://content.guardianapis.com/search"));
+    }
+
+    @Test
+    public void parse_skipsPartsOutsideTheProjection() throws IOException {
+        byte[] response = MockGuardianServer.searchResponse(5, 1, ArticleProjection.ROWS);
+
+        List<Article> articles = ArticleStreamParser.parse(new ByteArrayInputStream(response), -1, null,
+                new ArticleProjection(ArticleProjection.THUMBNAIL));
+
+        assertEquals(5, articles.size());
+        assertTrue(articles.get(0).getContributors().isEmpty());
+        assertEquals("https://media.guim.co.uk/synthetic/0/500.jpg", articles.get(0).getThumbnailUrl());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.ola.newsapp1;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link ArticleRanker}.
+ */
+public class ArticleRankerTest {
+
+    private static final long NOW = 1525000000000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private final ScheduledExecutorService mStateWriter = Executors.newSingleThreadScheduledExecutor();
+    private ArticleStateStore mStates;
+
+    @Before
+    public void setUp() throws IOException {
+        mStates = new ArticleStateStore(mFolder.newFile("state"), mStateWriter, DIRECT);
+    }
+
+    @After
+    public void tearDown() {
+        mStateWriter.shutdownNow();
+    }
+
+    @Test
+    public void rank_noHistory_newestFirst() {
+        Article older = article("Older", "Politics", NOW - 5 * HOUR);
+        Article newer = article("Newer", "Politics", NOW - HOUR);
+
+        List<Article> ranked = new ArticleRanker(null, DIRECT, mStates).rank(Arrays.asList(older, newer), NOW);
+
+        assertEquals(Arrays.asList(newer, older), ranked);
+    }
+
+    @Test
+    public void rank_clickedSection_comesFirst() {
+        ArticleRanker ranker = new ArticleRanker(null, DIRECT, mStates);
+        for (int i = 0; i < 5; i++) {
+            ranker.recordClick(article("Read " + i, "Technology", NOW - 24 * HOUR), NOW);
+        }
+        Article politics = article("Politics", "Politics", NOW - HOUR);
+        Article technology = article("Technology", "Technology", NOW - 2 * HOUR);
+
+        List<Article> ranked = ranker.rank(Arrays.asList(politics, technology), NOW);
+
+        assertEquals(Arrays.asList(technology, politics), ranked);
+    }
+
+    @Test
+    public void rank_readArticle_goesDown() {
+        ArticleRanker ranker = new ArticleRanker(null, DIRECT, mStates);
+        Article opened = article("Opened", "Politics", NOW - HOUR);
+        Article other = article("Other", "Politics", NOW - 2 * HOUR);
+        ranker.recordClick(opened, NOW);
+        mStates.markOpened(opened, NOW);
+
+        List<Article> ranked = ranker.rank(Arrays.asList(opened, other), NOW);
+
+        assertEquals(Arrays.asList(other, opened), ranked);
+    }
+
+    @Test
+    public void rank_clickedContributor_countsForCoAuthoredArticles() {
+        ArticleRanker ranker = new ArticleRanker(null, DIRECT, mStates);
+        for (int i = 0; i < 5; i++) {
+            ranker.recordClick(article("Read " + i, "Technology", NOW - 24 * HOUR, "Alex Hern"), NOW);
+        }
+        Article other = article("Other", "Politics", NOW - HOUR, "Samuel Gibbs", "Olivia Solon");
+        Article coAuthored = article("Co-authored", "Politics", NOW - 2 * HOUR, "Samuel Gibbs", "Alex Hern");
+
+        List<Article> ranked = ranker.rank(Arrays.asList(other, coAuthored), NOW);
+
+        assertEquals(Arrays.asList(coAuthored, other), ranked);
+    }
+
+    @Test
+    public void rank_sameScore_keepsOrder() {
+        Article first = article("First", "Politics", ArticleDates.UNKNOWN);
+        Article second = article("Second", "Politics", ArticleDates.UNKNOWN);
+        Article third = article("Third", "Politics", ArticleDates.UNKNOWN);
+
+        List<Article> ranked = new ArticleRanker(null, DIRECT, mStates).rank(Arrays.asList(first, second, third), NOW);
+
+        assertEquals(Arrays.asList(first, second, third), ranked);
+    }
+
+    @Test
+    public void history_isKeptInTheFile() {
+        File file = new File(mFolder.getRoot(), "history");
+        Article opened = article("Opened", "Technology", NOW - 2 * HOUR);
+        for (int i = 0; i < 5; i++) {
+            new ArticleRanker(file, DIRECT, mStates).recordClick(article("Read " + i, "Technology", NOW - 24 * HOUR), NOW);
+        }
+        new ArticleRanker(file, DIRECT, mStates).recordClick(opened, NOW);
+        mStates.markOpened(opened, NOW);
+        Article politics = article("Politics", "Politics", NOW - HOUR);
+        Article technology = article("Technology", "Technology", NOW - 2 * HOUR);
+
+        List<Article> ranked = new ArticleRanker(file, DIRECT, mStates).rank(
+                Arrays.asList(politics, opened, technology), NOW);
+
+        assertEquals(Arrays.asList(technology, politics, opened), ranked);
+    }
+
+    @Test
+    public void recency_halvesEveryHalfLife() {
+        assertEquals(1f, ArticleRanker.recency(NOW, NOW), 1e-6f);
+        assertEquals(0.5f, ArticleRanker.recency(NOW - ArticleRanker.RECENCY_HALF_LIFE_MILLIS, NOW), 1e-6f);
+        assertEquals(0f, ArticleRanker.recency(ArticleDates.UNKNOWN, NOW), 0f);
+    }
+
+    private static Article article(String title, String section, long publishedAt) {
+        return new Article(title, section, "Author", publishedAt, "https://www.theguardian.com/" + title);
+    }
+
+    private static Article article(String title, String section, long publishedAt, String... contributors) {
+        return new Article(title, section, contributors, publishedAt, "https://www.theguardian.com/" + title, null);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the {@link ArticleSearchIndex}.
+ */
+public class ArticleSearchIndexTest {
+
+    @Test
+    public void search_matchesPrefixesOfTitleSectionAndAuthor() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(Arrays.asList(
+                article("a", "Robots learn to walk", "Technology", "Alex Hern", "2018-04-29T06:00:00Z"),
+                article("b", "Election results", "Politics", "Heather Stewart", "2018-04-28T06:00:00Z"),
+                article("c", "Walking in the Alps", "Travel", "Kevin Rushby", "2018-04-27T06:00:00Z")));
+
+        assertUrls(index.search("walk", 10), "a", "c");
+        assertUrls(index.search("TECH", 10), "a");
+        assertUrls(index.search("stew", 10), "b");
+        assertUrls(index.search("walk alps", 10), "c");
+        assertUrls(index.search("walk election", 10));
+        assertUrls(index.search("  ", 10));
+    }
+
+    @Test
+    public void search_returnsNewestFirstUpToLimit() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(Arrays.asList(
+                article("old", "Climate report", "Environment", "A", "2018-04-01T06:00:00Z"),
+                article("new", "Climate deal", "Environment", "B", "2018-04-29T06:00:00Z"),
+                article("mid", "Climate march", "Environment", "C", "2018-04-15T06:00:00Z")));
+
+        assertUrls(index.search("climate", 10), "new", "mid", "old");
+        assertUrls(index.search("climate", 2), "new", "mid");
+    }
+
+    @Test
+    public void addAll_changedArticle_replacesItsWords() {
+        ArticleSearchIndex index = new ArticleSearchIndex();
+        index.addAll(Collections.singletonList(
+                article("a", "Draft headline", "World", "A", "2018-04-29T06:00:00Z")));
+        index.addAll(Collections.singletonList(
+                article("a", "Final headline", "World", "A", "2018-04-29T06:00:00Z")));
+
+        assertEquals(1, index.size());
+        assertUrls(index.search("draft", 10));
+        assertUrls(index.search("final", 10), "a");
+        assertUrls(index.search("headline", 10), "a");
+    }
+
+    @Test
+    public void addAll_full_dropsArticleAddedFirst() {
+        ArticleSearchIndex index = new ArticleSearchIndex(2);
+        index.addAll(Arrays.asList(
+                article("a", "Climate report", "Environment", "A", "2018-04-01T06:00:00Z"),
+                article("b", "Climate deal", "Environment", "B", "2018-04-29T06:00:00Z")));
+        // The new article takes the id of the dropped one, which is smaller than the id of "b"
+        index.addAll(Collections.singletonList(
+                article("c", "Climate march", "Environment", "C", "2018-04-15T06:00:00Z")));
+
+        assertEquals(2, index.size());
+        assertUrls(index.search("report", 10));
+        assertUrls(index.search("climate", 10), "b", "c");
+        assertUrls(index.search("march", 10), "c");
+    }
+
+    @Test
+    public void tokenize_splitsOnPunctuation() {
+        assertEquals(Arrays.asList("it", "s", "a", "2018", "world", "cup"),
+                new ArrayList<>(ArticleSearchIndex.tokenize("It's a 2018 World-Cup!")));
+    }
+
+    private static Article article(String key, String title, String section, String author, String date) {
+        return new Article(title, section, author, date, "https://www.theguardian.com/" + key);
+    }
+
+    private static void assertUrls(List<Article> articles, String... keys) {
+        List<String> urls = new ArrayList<>();
+        for (Article article : articles) {
+            urls.add(article.getNewsUrl().substring("https://www.theguardian.com/".length()));
+        }
+        assertEquals(Arrays.asList(keys), urls);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.ola.newsapp1;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link ArticleStateStore}.
+ */
+public class ArticleStateStoreTest {
+
+    private static final long NOW = System.currentTimeMillis();
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private ScheduledExecutorService mWriter = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        mWriter.shutdownNow();
+    }
+
+    @Test
+    public void getState_returnsChanges() {
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        Article article = article("a");
+
+        store.markOpened(article, NOW);
+        store.setBookmarked(article, true);
+
+        assertEquals(ArticleStateStore.READ | ArticleStateStore.BOOKMARKED, store.getState(article));
+        assertEquals(NOW, store.getOpenedAt(article));
+        assertEquals(0, store.getState(article("b")));
+    }
+
+    @Test
+    public void state_isWrittenBehind_andReadBack() throws InterruptedException {
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        store.markOpened(article("a"), NOW);
+        store.setBookmarked(article("b"), true);
+        store.setBookmarked(article("c"), true);
+        store.setBookmarked(article("c"), false);
+        // Delayed writes still run once the writer is shut down
+        finish(mWriter);
+
+        ArticleStateStore reopened = new ArticleStateStore(file(), writer(), DIRECT);
+        finish(mWriter);
+
+        assertEquals(ArticleStateStore.READ, reopened.getState(article("a")));
+        assertEquals(NOW, reopened.getOpenedAt(article("a")));
+        assertEquals(ArticleStateStore.BOOKMARKED, reopened.getState(article("b")));
+        assertEquals(0, reopened.getState(article("c")));
+    }
+
+    @Test
+    public void changesWhileLoading_winOverTheFile() throws InterruptedException {
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        store.setBookmarked(article("a"), true);
+        finish(mWriter);
+
+        CountDownLatch changed = hold(writer());
+        ArticleStateStore reopened = new ArticleStateStore(file(), mWriter, DIRECT);
+        reopened.setBookmarked(article("a"), false);
+        changed.countDown();
+        finish(mWriter);
+
+        assertEquals(0, reopened.getState(article("a")));
+    }
+
+    @Test
+    public void whenLoaded_runsOnceTheFileIsRead() throws InterruptedException {
+        final AtomicInteger calls = new AtomicInteger();
+        // Keeps the writer from reading the file until the callback is there
+        CountDownLatch registered = hold(mWriter);
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        store.whenLoaded(new Runnable() {
+            @Override
+            public void run() {
+                calls.incrementAndGet();
+            }
+        });
+        registered.countDown();
+        finish(mWriter);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void damagedFile_isIgnored() throws IOException, InterruptedException {
+        FileOutputStream out = new FileOutputStream(file());
+        out.write(new byte[]{1, 2, 3, 4, 5, 6, 7});
+        out.close();
+
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        store.markOpened(article("a"), NOW);
+        finish(mWriter);
+        ArticleStateStore reopened = new ArticleStateStore(file(), writer(), DIRECT);
+        finish(mWriter);
+
+        assertEquals(ArticleStateStore.READ, reopened.getState(article("a")));
+    }
+
+    @Test
+    public void partlyWrittenRecord_doesNotSpoilLaterChanges() throws IOException, InterruptedException {
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        store.markOpened(article("a"), NOW);
+        store.setBookmarked(article("b"), true);
+        finish(mWriter);
+        // The app was stopped in the middle of a write
+        FileOutputStream out = new FileOutputStream(file(), true);
+        out.write(new byte[]{1, 2, 3, 4, 5});
+        out.close();
+
+        ArticleStateStore reopened = new ArticleStateStore(file(), writer(), DIRECT);
+        reopened.setBookmarked(article("c"), true);
+        finish(mWriter);
+        ArticleStateStore again = new ArticleStateStore(file(), writer(), DIRECT);
+        finish(mWriter);
+
+        assertEquals(ArticleStateStore.READ, again.getState(article("a")));
+        assertEquals(NOW, again.getOpenedAt(article("a")));
+        assertEquals(ArticleStateStore.BOOKMARKED, again.getState(article("b")));
+        assertEquals(ArticleStateStore.BOOKMARKED, again.getState(article("c")));
+    }
+
+    @Test
+    public void oldReadState_isForgotten() throws InterruptedException {
+        ArticleStateStore store = new ArticleStateStore(file(), mWriter, DIRECT);
+        long longAgo = NOW - ArticleStateStore.READ_RETENTION_MILLIS - 1;
+        store.markOpened(article("read"), longAgo);
+        store.markOpened(article("bookmarked"), longAgo);
+        store.setBookmarked(article("bookmarked"), true);
+        finish(mWriter);
+
+        ArticleStateStore reopened = new ArticleStateStore(file(), writer(), DIRECT);
+        finish(mWriter);
+
+        assertEquals(0, reopened.getState(article("read")));
+        assertEquals(ArticleStateStore.READ | ArticleStateStore.BOOKMARKED,
+                reopened.getState(article("bookmarked")));
+    }
+
+    private File file() {
+        return new File(mFolder.getRoot(), "state");
+    }
+
+    /** Replaces the writer with a new one, for the next store */
+    private ScheduledExecutorService writer() {
+        mWriter = Executors.newSingleThreadScheduledExecutor();
+        return mWriter;
+    }
+
+    /** Keeps the writer waiting until the returned latch is counted down */
+    private static CountDownLatch hold(ScheduledExecutorService writer) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return latch;
+    }
+
+    /** Waits until the writer has run all its tasks, also the delayed ones */
+    private static void finish(ScheduledExecutorService writer) throws InterruptedException {
+        writer.shutdown();
+        assertTrue(writer.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static Article article(String path) {
+        return new Article("Title " + path, "Technology", "Author", NOW,
+                "https://www.theguardian.com/" + path);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link ArticleStreamParser} gives the same articles as the
+ * {@link QueryUtils#extractFeatureFromJson(String)} reference parser.
+ */
+public class ArticleStreamParserTest {
+
+    private static final String FIXTURE = "guardian_search.json";
+
+    @Test
+    public void streamParser_matchesReferenceParser() throws Exception {
+        String json = QueryUtils.readFromStream(openFixture());
+        List<Article> expected = QueryUtils.extractFeatureFromJson(json);
+        List<Article> actual = ArticleStreamParser.parse(openFixture());
+
+        assertEquals(6, expected.size());
+        assertArticlesEqual(expected, actual);
+    }
+
+    @Test
+    public void streamParser_skipsUnknownFieldsAndEscapes() throws Exception {
+        List<Article> articles = ArticleStreamParser.parse(openFixture());
+
+        assertEquals("Facebook users \"still in the dark\" about data – survey", articles.get(0).getNewsTitle());
+        assertEquals("Console sales – up 12% on last year\nsays report", articles.get(3).getNewsTitle());
+        assertEquals("Games", articles.get(3).getNewsSection());
+        assertNotNull(articles.get(0).getThumbnailUrl());
+        assertNull(articles.get(2).getThumbnailUrl());
+    }
+
+    @Test
+    public void streamParser_readsAllContributors() throws Exception {
+        ContributorIndex index = new ContributorIndex(ContributorIndex.MAX_ARTICLES);
+
+        List<Article> articles = ArticleStreamParser.parse(openFixture(), -1, index, ArticleProjection.ROWS);
+
+        assertEquals(Arrays.asList("Samuel Gibbs", "Olivia Solon"), articles.get(1).getContributors());
+        assertEquals("Samuel Gibbs, Olivia Solon", articles.get(1).getAuthorsName());
+        // Articles without tags don't take the author of the article before them
+        assertTrue(articles.get(2).getContributors().isEmpty());
+        assertEquals("", articles.get(2).getAuthorsName());
+        assertEquals(Collections.singletonList(articles.get(1)), index.get("Olivia Solon"));
+    }
+
+    @Test
+    public void streamParser_leavesOutContributorsWithoutName() throws Exception {
+        ContributorIndex index = new ContributorIndex(ContributorIndex.MAX_ARTICLES);
+
+        List<Article> articles = ArticleStreamParser.parse(toStream(
+                "{\"response\":{\"status\":\"ok\",\"results\":[{"
+                        + "\"webTitle\":\"Title\",\"sectionName\":\"Technology\","
+                        + "\"webPublicationDate\":\"2018-04-29T06:00:09Z\","
+                        + "\"webUrl\":\"https://www.theguardian.com/a\",\"tags\":["
+                        + "{\"webTitle\":null},{\"webTitle\":\" \"},{\"webTitle\":\"Alex Hern\"}]}]}}"),
+                -1, index, ArticleProjection.ROWS);
+
+        assertEquals(1, articles.size());
+        assertEquals(Collections.singletonList("Alex Hern"), articles.get(0).getContributors());
+        assertEquals("Alex Hern", articles.get(0).getAuthorsName());
+        // The article can be stored
+        ArticleCodec.encode(articles);
+    }
+
+    @Test
+    public void streamParser_keepsArticlesBeforeTruncation() throws Exception {
+        String json = QueryUtils.readFromStream(openFixture());
+        String truncated = json.substring(0, json.indexOf("Self-driving cars"));
+
+        List<Article> articles = ArticleStreamParser.parse(toStream(truncated));
+
+        assertEquals(4, articles.size());
+    }
+
+    @Test
+    public void parseBodies_returnsTextByUrl() throws Exception {
+        Map<String, String> bodies = ArticleStreamParser.parseBodies(toStream(
+                "{\"response\":{\"status\":\"ok\",\"results\":["
+                        + "{\"webUrl\":\"https://www.theguardian.com/a\",\"fields\":{\"bodyText\":\"First \\\"text\\\"\"}},"
+                        + "{\"webUrl\":\"https://www.theguardian.com/b\",\"fields\":{}},"
+                        + "{\"fields\":{\"bodyText\":\"Fields before the URL\"},\"webUrl\":\"https://www.theguardian.com/c\"}"
+                        + "]}}"), -1);
+
+        assertEquals(2, bodies.size());
+        assertEquals("First \"text\"", bodies.get("https://www.theguardian.com/a"));
+        assertFalse(bodies.containsKey("https://www.theguardian.com/b"));
+        assertEquals("Fields before the URL", bodies.get("https://www.theguardian.com/c"));
+    }
+
+    @Test(expected = IOException.class)
+    public void streamParser_throwsOnGarbage() throws Exception {
+        ArticleStreamParser.parse(toStream("<html>Service unavailable</html>"));
+    }
+
+    private static void assertArticlesEqual(List<Article> expected, List<Article> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Article e = expected.get(i);
+            Article a = actual.get(i);
+            assertEquals(e.getNewsTitle(), a.getNewsTitle());
+            assertEquals(e.getNewsSection(), a.getNewsSection());
+            assertEquals(e.getContributors(), a.getContributors());
+            assertEquals(e.getPublishedAt(), a.getPublishedAt());
+            assertEquals(e.getNewsUrl(), a.getNewsUrl());
+            assertEquals(e.getThumbnailUrl(), a.getThumbnailUrl());
+        }
+    }
+
+    private InputStream openFixture() {
+        InputStream in = getClass().getClassLoader().getResourceAsStream(FIXTURE);
+        assertNotNull("Missing test fixture " + FIXTURE, in);
+        return in;
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of when {@link CircuitBreaker} refuses requests.
+ */
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD - 1; i++) {
+            assertTrue(breaker.allowRequest(0));
+            breaker.recordFailure(0);
+        }
+        // A success in between starts the count again
+        breaker.recordSuccess();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            assertTrue(breaker.allowRequest(0));
+            breaker.recordFailure(0);
+        }
+
+        assertFalse(breaker.allowRequest(1000));
+        assertTrue(breaker.isOpen(CircuitBreaker.OPEN_MILLIS - 1));
+    }
+
+    @Test
+    public void letsOneTrialThroughAfterOpenTime() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure(0);
+        }
+        long later = CircuitBreaker.OPEN_MILLIS;
+
+        assertTrue(breaker.allowRequest(later));
+        assertFalse(breaker.allowRequest(later));
+
+        // The trial failed, so the breaker stays open for another period
+        breaker.recordFailure(later);
+        assertFalse(breaker.allowRequest(later + CircuitBreaker.OPEN_MILLIS - 1));
+
+        assertTrue(breaker.allowRequest(later + CircuitBreaker.OPEN_MILLIS));
+        breaker.recordSuccess();
+        assertTrue(breaker.allowRequest(later + CircuitBreaker.OPEN_MILLIS));
+        assertFalse(breaker.isOpen(later + CircuitBreaker.OPEN_MILLIS));
+    }
+
+    @Test
+    public void openFor_refusesUntilRetryAfter() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.openFor(0, 5000);
+
+        assertFalse(breaker.allowRequest(4999));
+        assertTrue(breaker.allowRequest(5000));
+    }
+
+    @Test
+    public void cancelledTrial_letsAnotherTrialThrough() {
+        CircuitBreaker breaker = new CircuitBreaker();
+        for (int i = 0; i < CircuitBreaker.FAILURE_THRESHOLD; i++) {
+            breaker.recordFailure(0);
+        }
+        long later = CircuitBreaker.OPEN_MILLIS;
+        assertTrue(breaker.allowRequest(later));
+
+        breaker.recordCancelled();
+
+        assertTrue(breaker.allowRequest(later));
+        assertFalse(breaker.allowRequest(later));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link ContributorIndex}.
+ */
+public class ContributorIndexTest {
+
+    @Test
+    public void get_returnsArticlesOfEveryContributor_newestFirst() {
+        ContributorIndex index = new ContributorIndex(ContributorIndex.MAX_ARTICLES);
+        Article older = article("a", 1000L, "Alex Hern");
+        Article newer = article("b", 2000L, "Alex Hern", "Samuel Gibbs");
+        index.addAll(Arrays.asList(older, newer));
+
+        assertEquals(Arrays.asList(newer, older), index.get("Alex Hern"));
+        assertEquals(Collections.singletonList(newer), index.get("Samuel Gibbs"));
+        assertTrue(index.get("Nobody").isEmpty());
+    }
+
+    @Test
+    public void add_sameUrl_replacesArticle() {
+        ContributorIndex index = new ContributorIndex(ContributorIndex.MAX_ARTICLES);
+        index.add(article("a", 1000L, "Alex Hern"));
+        Article corrected = article("a", 1000L, "Samuel Gibbs");
+
+        index.add(corrected);
+
+        assertEquals(1, index.size());
+        assertTrue(index.get("Alex Hern").isEmpty());
+        assertEquals(Collections.singletonList(corrected), index.get("Samuel Gibbs"));
+    }
+
+    @Test
+    public void add_full_dropsOldestArticle() {
+        ContributorIndex index = new ContributorIndex(2);
+        Article first = article("a", 1000L, "Alex Hern");
+        Article second = article("b", 2000L, "Alex Hern");
+        Article third = article("c", 3000L, "Alex Hern");
+
+        index.addAll(Arrays.asList(first, second, third));
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList(third, second), index.get("Alex Hern"));
+    }
+
+    @Test
+    public void get_reusesSortedListUntilArticlesChange() {
+        ContributorIndex index = new ContributorIndex(ContributorIndex.MAX_ARTICLES);
+        Article older = article("a", 1000L, "Alex Hern");
+        index.add(older);
+        List<Article> first = index.get("Alex Hern");
+
+        assertSame(first, index.get("Alex Hern"));
+
+        Article newer = article("b", 2000L, "Alex Hern");
+        index.add(newer);
+
+        assertEquals(Arrays.asList(newer, older), index.get("Alex Hern"));
+        assertEquals(Collections.singletonList(older), first);
+    }
+
+    private static Article article(String path, long publishedAt, String... contributors) {
+        return new Article("Title " + path, "Technology", contributors, publishedAt,
+                "https://www.theguardian.com/" + path, null);
+    }
+}
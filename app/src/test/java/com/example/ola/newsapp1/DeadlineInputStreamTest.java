@@ -0,0 +1,54 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of cutting off a response at its deadline in {@link DeadlineInputStream}.
+ */
+public class DeadlineInputStreamTest {
+
+    @Test
+    public void read_beforeDeadline_readsTheStream() throws Exception {
+        InputStream in = new DeadlineInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3}),
+                System.nanoTime() + 60 * 1000000000L);
+
+        assertEquals(1, in.read());
+        assertEquals(2, in.read(new byte[4], 0, 4));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void read_trickleAfterDeadline_fails() throws Exception {
+        // A server sending a byte every few milliseconds never hits the read timeout
+        InputStream trickle = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return 'x';
+            }
+        };
+        InputStream in = new DeadlineInputStream(trickle, System.nanoTime() + 50 * 1000000L);
+
+        long start = System.nanoTime();
+        try {
+            while (in.read() != -1) {
+                // Keep reading
+            }
+            fail();
+        } catch (SocketTimeoutException e) {
+            // Expected
+        }
+        assertTrue(System.nanoTime() - start < 1000 * 1000000L);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.ola.newsapp1;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the {@link Histogram} and of recording {@link Metrics}.
+ */
+public class HistogramTest {
+
+    @After
+    public void tearDown() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        Histogram histogram = new Histogram("test");
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertEquals(1000, histogram.getMax());
+        assertWithin(500, histogram.getPercentile(50));
+        assertWithin(900, histogram.getPercentile(90));
+        assertWithin(990, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void buckets_coverAllValues() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789L, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(value + " above its bucket", value <= Histogram.upperBoundOf(bucket));
+            if (bucket > 0) {
+                assertTrue(value + " in the bucket below", value > Histogram.upperBoundOf(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void empty_reportsZeros() {
+        Histogram histogram = new Histogram("empty");
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void metrics_recordOnlyWhenEnabled() {
+        Metrics.setEnabled(false);
+        Metrics.record(Metrics.PARSE_ARTICLES, 10);
+        assertEquals("", Metrics.dump());
+
+        Metrics.setEnabled(true);
+        Metrics.record(Metrics.PARSE_ARTICLES, 10);
+        Metrics.record(Metrics.PARSE_ARTICLES, 20);
+
+        assertEquals(2, Metrics.histogram(Metrics.PARSE_ARTICLES).getCount());
+        assertTrue(Metrics.dump().startsWith("parse.articles: n=2 "));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 8);
+    }
+}
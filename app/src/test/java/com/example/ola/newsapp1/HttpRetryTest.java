@@ -0,0 +1,202 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of retrying failed requests in {@link HttpRetry}.
+ */
+public class HttpRetryTest {
+
+    private final HttpRetry mRetry = new HttpRetry(3, 2, 10, 2000);
+
+    @Test
+    public void execute_retriesNetworkErrorsAndServerErrors() throws Exception {
+        ScriptedCall call = new ScriptedCall(new SocketTimeoutException("timeout"),
+                new HttpStatusException(503, -1), null);
+
+        assertEquals("ok", mRetry.execute(new CircuitBreaker(), call));
+        assertEquals(3, call.mTimeouts.size());
+    }
+
+    @Test
+    public void execute_doesNotRetryClientErrors() throws Exception {
+        ScriptedCall call = new ScriptedCall(new HttpStatusException(403, -1), null);
+        CircuitBreaker breaker = new CircuitBreaker();
+
+        try {
+            mRetry.execute(breaker, call);
+            fail();
+        } catch (HttpStatusException e) {
+            assertEquals(403, e.getResponseCode());
+        }
+        assertEquals(1, call.mTimeouts.size());
+        assertFalse(breaker.isOpen(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void execute_stopsAfterMaxAttempts() throws Exception {
+        ScriptedCall call = new ScriptedCall(new IOException("1"), new IOException("2"),
+                new IOException("3"), null);
+
+        try {
+            mRetry.execute(new CircuitBreaker(), call);
+            fail();
+        } catch (IOException e) {
+            assertEquals("3", e.getMessage());
+        }
+        assertEquals(3, call.mTimeouts.size());
+    }
+
+    @Test
+    public void execute_oneRequestUsingUpItsRetries_doesNotOpenBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        ScriptedCall call = new ScriptedCall(new IOException("1"), new IOException("2"),
+                new IOException("3"));
+
+        try {
+            new HttpRetry(HttpRetry.MAX_ATTEMPTS, 2, 10, 2000).execute(breaker, call);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertEquals(HttpRetry.MAX_ATTEMPTS, call.mTimeouts.size());
+        assertFalse(breaker.isOpen(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void execute_passesTheDeadlineOfTheWholeRequest() throws Exception {
+        final List<Long> deadlines = new ArrayList<>();
+        HttpRetry.Call<String> call = new HttpRetry.Call<String>() {
+            @Override
+            public String run(int connectTimeoutMillis, int readTimeoutMillis, long deadlineNanos)
+                    throws IOException {
+                deadlines.add(deadlineNanos);
+                if (deadlines.size() == 1) {
+                    throw new IOException("first");
+                }
+                return "ok";
+            }
+        };
+
+        long start = System.nanoTime();
+        mRetry.execute(new CircuitBreaker(), call);
+        long end = System.nanoTime();
+
+        // Both attempts have the same deadline, the budget after the start of the request
+        assertEquals(2, deadlines.size());
+        assertEquals(deadlines.get(0), deadlines.get(1));
+        assertTrue(deadlines.get(0) - start >= 2000 * 1000000L);
+        assertTrue(deadlines.get(0) - end <= 2000 * 1000000L);
+    }
+
+    @Test
+    public void execute_failsFastWhenBreakerIsOpen() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        breaker.openFor(System.currentTimeMillis(), 60000);
+        ScriptedCall call = new ScriptedCall((IOException) null);
+
+        try {
+            mRetry.execute(breaker, call);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(0, call.mTimeouts.size());
+    }
+
+    @Test
+    public void execute_cancelledTrial_letsTheNextRequestThrough() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker();
+        // Open until a moment ago, so the next request is the trial
+        breaker.openFor(System.currentTimeMillis() - 1000, 1);
+        HttpRetry.Call<String> cancelled = new HttpRetry.Call<String>() {
+            @Override
+            public String run(int connectTimeoutMillis, int readTimeoutMillis, long deadlineNanos)
+                    throws IOException {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("cancelled");
+            }
+        };
+
+        try {
+            mRetry.execute(breaker, cancelled);
+            fail();
+        } catch (InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+
+        assertFalse(breaker.isOpen(System.currentTimeMillis()));
+        assertEquals("ok", mRetry.execute(breaker, new ScriptedCall((IOException) null)));
+    }
+
+    @Test
+    public void execute_rateLimitLongerThanDeadline_givesUp() throws Exception {
+        // The server asks to come back in a minute, far beyond the deadline
+        ScriptedCall call = new ScriptedCall(new HttpStatusException(429, 60000), null);
+        CircuitBreaker breaker = new CircuitBreaker();
+
+        long start = System.nanoTime();
+        try {
+            mRetry.execute(breaker, call);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+        assertTrue(System.nanoTime() - start < 1000 * 1000000L);
+        assertEquals(1, call.mTimeouts.size());
+        // Other requests don't try the server either until then
+        assertTrue(breaker.isOpen(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void backoff_growsWithinLimits() {
+        HttpRetry retry = new HttpRetry(5, 100, 1000, 10000);
+        for (int i = 0; i < 20; i++) {
+            long first = retry.backoff(1);
+            assertTrue(first >= 50 && first <= 100);
+            long fourth = retry.backoff(4);
+            assertTrue(fourth >= 400 && fourth <= 800);
+            long capped = retry.backoff(10);
+            assertTrue(capped >= 500 && capped <= 1000);
+        }
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsAndDates() {
+        assertEquals(120000, HttpRetry.parseRetryAfter("120", 0));
+        // Sun, 06 Nov 1994 08:49:37 GMT is 784111777 seconds after the epoch
+        assertEquals(10000, HttpRetry.parseRetryAfter("Sun, 06 Nov 1994 08:49:37 GMT", 784111767000L));
+        assertEquals(-1, HttpRetry.parseRetryAfter(null, 0));
+        assertEquals(-1, HttpRetry.parseRetryAfter("soon", 0));
+    }
+
+    /** Throws the given failures one after another, and returns "ok" for a null one */
+    private static class ScriptedCall implements HttpRetry.Call<String> {
+        private final IOException[] mFailures;
+        final List<Integer> mTimeouts = new ArrayList<>();
+
+        ScriptedCall(IOException... failures) {
+            mFailures = failures;
+        }
+
+        @Override
+        public String run(int connectTimeoutMillis, int readTimeoutMillis, long deadlineNanos)
+                    throws IOException {
+            IOException failure = mFailures[mTimeouts.size()];
+            mTimeouts.add(readTimeoutMillis);
+            if (failure != null) {
+                throw failure;
+            }
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of reading UTF-8 bytes with {@link JsonPullReader}.
+ */
+public class JsonPullReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String DOCUMENT = "{\"title\":\"Zażółć gęślą jaźń – café\","
+            + "\"escaped\":\"line\\nbreak \\\"quoted\\\" \\u00e9 \\ud83d\\ude00 \\/\","
+            + "\"emoji\":\"\uD83D\uDCF0 news\",\"skipped\":{\"a\":[1,2,{\"b\":\"\\\"}\"}]},"
+            + "\"count\":12,\"ok\":true,\"none\":null,\"title\":\"again\"}";
+
+    @Test
+    public void readsStringsWithAnyBufferSize() throws IOException {
+        // Tiny buffers split names, characters and escapes between two reads
+        for (int size : new int[] {1, 2, 3, 5, 7, 64, 4096}) {
+            assertDocument(size);
+        }
+    }
+
+    @Test
+    public void loneSurrogate_becomesReplacementCharacter() throws IOException {
+        JsonPullReader reader = reader("[\"a\\ud83db\"]", 4096);
+        reader.beginArray();
+
+        assertEquals("a\ufffdb", reader.nextString());
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedEscape_throws() throws IOException {
+        JsonPullReader reader = reader("[\"\\uZZZZ\"]", 4096);
+        reader.beginArray();
+        reader.nextString();
+    }
+
+    @Test
+    public void readFromStream_keepsLineBreaks() throws IOException {
+        String json = "{\n  \"title\": \"one\ntwo\"\n}\n";
+
+        assertEquals(json, QueryUtils.readFromStream(new ByteArrayInputStream(json.getBytes(UTF_8))));
+    }
+
+    private static void assertDocument(int bufferSize) throws IOException {
+        JsonPullReader reader = reader(DOCUMENT, bufferSize);
+        String message = "buffer of " + bufferSize;
+        reader.beginObject();
+        assertEquals(message, "title", reader.nextName());
+        assertEquals(message, "Zażółć gęślą jaźń – café", reader.nextString());
+        assertEquals(message, "escaped", reader.nextName());
+        assertEquals(message, "line\nbreak \"quoted\" \u00e9 \uD83D\uDE00 /", reader.nextString());
+        assertEquals(message, "emoji", reader.nextName());
+        assertEquals(message, "\uD83D\uDCF0 news", reader.nextString());
+        assertEquals(message, "skipped", reader.nextName());
+        reader.skipValue();
+        assertEquals(message, "count", reader.nextName());
+        assertEquals(message, "12", reader.nextString());
+        assertEquals(message, "ok", reader.nextName());
+        assertEquals(message, "true", reader.nextString());
+        assertEquals(message, "none", reader.nextName());
+        assertNull(message, reader.nextString());
+        // A name read before is the same String
+        String title = reader.nextName();
+        assertEquals(message, "title", title);
+        assertEquals(message, "again", reader.nextString());
+        assertFalse(message, reader.hasNext());
+        reader.endObject();
+        assertEquals(message, JsonPullReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    private static JsonPullReader reader(String json, int bufferSize) {
+        return new JsonPullReader(new ByteArrayInputStream(json.getBytes(UTF_8)), new byte[bufferSize]);
+    }
+}
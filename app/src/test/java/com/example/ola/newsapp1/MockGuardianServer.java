@@ -0,0 +1,377 @@
+package com.example.ola.newsapp1;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Guardian API "search" endpoint running in the same process, so the network code can be
+ * tested and measured without the real server and without an API key.
+ *
+ * It answers with synthetic responses of the requested page size (or of a fixed size, or
+ * with a recorded response), with only the tags and fields the request asks for, gzipped when the client asks for it, with an ETag the client
+ * can revalidate with. Latency, bandwidth and errors can be set at any time, also while
+ * requests are running. Errors either come at a rate, from a seeded random generator so a
+ * run can be repeated, or for a fixed number of the next requests.
+ *
+ * Used by the unit tests and by the load test of the benchmark module.
+ */
+public class MockGuardianServer implements Closeable {
+
+    /** Page size when the request doesn't ask for one, as on the real server */
+    static final int DEFAULT_PAGE_SIZE = 10;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String[] SECTIONS = {"Technology", "Games", "Science", "Politics", "Business"};
+    private static final String[] AUTHORS = {"Alex Hern", "Keza MacDonald", "Ian Sample", "", "Julia Kollewe"};
+
+    /** Date of the first article of the first page, the others are older */
+    private static final long NEWEST_ARTICLE = ArticleDates.parseIso8601("2018-04-29T06:00:00Z");
+
+    static {
+        // Without it the body waits for the acknowledgement of the headers, which adds the
+        // 40 ms of a delayed ACK to every response. Read once, when the first server starts.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    // Responses already built, by page size, page and whether they have the texts
+    private final ConcurrentMap<String, byte[]> mResponses = new ConcurrentHashMap<>();
+
+    private volatile long mLatencyMillis;
+    private volatile long mLatencyJitterMillis;
+    private volatile long mBytesPerSecond;
+    private volatile double mErrorRate;
+    private volatile int mErrorCode = 503;
+    private volatile int mRetryAfterSeconds = -1;
+    private volatile int mResultsPerPage;
+    private volatile byte[] mRecordedResponse;
+
+    // Guarded by this
+    private int mFailNext;
+    private Random mRandom = new Random(1);
+
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mErrors = new AtomicInteger();
+    private final AtomicInteger mNotModified = new AtomicInteger();
+
+    /** Creates the server on a free port of the loopback interface. Call {@link #start()}. */
+    public MockGuardianServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 50);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    respond(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public MockGuardianServer start() {
+        mServer.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /** Returns the URL of a search with the given query, e.g. "page-size=20&page=2" */
+    public String url(String query) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + "/search?" + query;
+    }
+
+    /** Waits before every response, a random time from latency to latency + jitter */
+    public MockGuardianServer setLatency(long latencyMillis, long jitterMillis) {
+        mLatencyMillis = latencyMillis;
+        mLatencyJitterMillis = jitterMillis;
+        return this;
+    }
+
+    /** Sends the bodies no faster than this, or as fast as possible if 0 */
+    public MockGuardianServer setBytesPerSecond(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * Answers the given share of the requests with the error code instead of the articles.
+     *
+     * @param rate between 0 (no errors) and 1 (only errors)
+     */
+    public MockGuardianServer setErrorRate(double rate, int errorCode) {
+        mErrorRate = rate;
+        mErrorCode = errorCode;
+        return this;
+    }
+
+    /** Answers the next requests with the error code, then as configured again */
+    public synchronized MockGuardianServer failNext(int requests, int errorCode) {
+        mErrorCode = errorCode;
+        mFailNext = requests;
+        return this;
+    }
+
+    /** Sends a Retry-After header with the errors, or none if negative */
+    public MockGuardianServer setRetryAfterSeconds(int seconds) {
+        mRetryAfterSeconds = seconds;
+        return this;
+    }
+
+    /** Answers with this many results whatever the page size asked for, or as asked if 0 */
+    public MockGuardianServer setResultsPerPage(int results) {
+        mResultsPerPage = results;
+        return this;
+    }
+
+    /** Answers every successful request with this response instead of a synthetic one */
+    public MockGuardianServer setRecordedResponse(byte[] response) {
+        mRecordedResponse = response;
+        return this;
+    }
+
+    /** Restarts the random generator of the errors and the latency, to repeat a run */
+    public synchronized MockGuardianServer setSeed(long seed) {
+        mRandom = new Random(seed);
+        return this;
+    }
+
+    /** Returns the number of requests received, retries included */
+    public int getRequestCount() {
+        return mRequests.get();
+    }
+
+    /** Returns the number of requests answered with an error */
+    public int getErrorCount() {
+        return mErrors.get();
+    }
+
+    /** Returns the number of requests answered with "304 Not Modified" */
+    public int getNotModifiedCount() {
+        return mNotModified.get();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        mRequests.incrementAndGet();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        sleep(nextLatency());
+
+        if (nextIsError()) {
+            mErrors.incrementAndGet();
+            if (mRetryAfterSeconds >= 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(mRetryAfterSeconds));
+            }
+            byte[] body = "{\"response\":{\"status\":\"error\"}}".getBytes(UTF_8);
+            exchange.sendResponseHeaders(mErrorCode, body.length);
+            exchange.getResponseBody().write(body);
+            return;
+        }
+
+        byte[] body = responseFor(query, ArticleProjection.fromUrl(exchange.getRequestURI().toString()));
+        String eTag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "\"";
+        exchange.getResponseHeaders().set("ETag", eTag);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            mNotModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = gzip(body);
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        write(exchange.getResponseBody(), body);
+    }
+
+    private synchronized long nextLatency() {
+        long jitter = mLatencyJitterMillis;
+        return mLatencyMillis + (jitter > 0 ? (long) (mRandom.nextDouble() * jitter) : 0);
+    }
+
+    private synchronized boolean nextIsError() {
+        if (mFailNext > 0) {
+            mFailNext--;
+            return true;
+        }
+        return mErrorRate > 0 && mRandom.nextDouble() < mErrorRate;
+    }
+
+    /** Writes the body in small chunks, waiting between them to keep to the bandwidth */
+    private void write(OutputStream out, byte[] body) throws IOException {
+        long bytesPerSecond = mBytesPerSecond;
+        if (bytesPerSecond <= 0) {
+            out.write(body);
+            return;
+        }
+        // About 20 chunks a second
+        int chunk = (int) Math.max(1, Math.min(body.length, bytesPerSecond / 20));
+        long startNanos = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += chunk) {
+            int length = Math.min(chunk, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            long dueNanos = (offset + length) * 1000000000L / bytesPerSecond;
+            sleep((dueNanos - (System.nanoTime() - startNanos)) / 1000000);
+        }
+    }
+
+    private byte[] responseFor(Map<String, String> query, ArticleProjection projection) {
+        byte[] recorded = mRecordedResponse;
+        if (recorded != null) {
+            return recorded;
+        }
+        int results = mResultsPerPage > 0 ? mResultsPerPage : intParameter(query, "page-size", DEFAULT_PAGE_SIZE);
+        int page = intParameter(query, "page", 1);
+        String key = results + "/" + page + "/" + projection.hashCode();
+        byte[] response = mResponses.get(key);
+        if (response == null) {
+            response = searchResponse(results, page, projection);
+            mResponses.put(key, response);
+        }
+        return response;
+    }
+
+    /**
+     * Returns a synthetic search response with the given number of results, in the shape of
+     * the real one. Articles are half an hour apart and differ from page to page.
+     *
+     * @param projection the tags and fields which are added to every result, as asked with
+     *                   show-tags and show-fields
+     */
+    static byte[] searchResponse(int results, int page, ArticleProjection projection) {
+        boolean bodies = projection.has(ArticleProjection.BODY_TEXT);
+        StringBuilder json = new StringBuilder(results * (bodies ? 1600 : 700));
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"total\":")
+                .append(results * 100).append(",\"startIndex\":").append((page - 1) * results + 1)
+                .append(",\"pageSize\":").append(results).append(",\"currentPage\":").append(page)
+                .append(",\"pages\":100,\"orderBy\":\"newest\",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            int number = (page - 1) * results + i;
+            String section = SECTIONS[number % SECTIONS.length];
+            String author = AUTHORS[number % AUTHORS.length];
+            String path = section.toLowerCase() + "/2018/apr/synthetic-article-" + number;
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(path).append("\",\"type\":\"article\",\"sectionId\":\"")
+                    .append(section.toLowerCase()).append("\",\"sectionName\":\"").append(section)
+                    .append("\",\"webPublicationDate\":\"")
+                    .append(ArticleDates.formatIso8601(NEWEST_ARTICLE - number * 30 * 60 * 1000L))
+                    .append("\",\"webTitle\":\"Synthetic article ").append(number)
+                    .append(" – what the \\\"mock\\\" server says\",\"webUrl\":\"https://www.theguardian.com/")
+                    .append(path).append("\",\"apiUrl\":\"https://content.guardianapis.com/").append(path)
+                    .append('"');
+            if (projection.has(ArticleProjection.CONTRIBUTORS)) {
+                json.append(",\"tags\":[");
+                if (!author.isEmpty()) {
+                    String profile = author.toLowerCase().replace(' ', '-');
+                    json.append("{\"id\":\"profile/").append(profile)
+                            .append("\",\"type\":\"contributor\",\"webTitle\":\"").append(author)
+                            .append("\",\"webUrl\":\"https://www.theguardian.com/profile/").append(profile)
+                            .append("\",\"references\":[]}");
+                }
+                json.append(']');
+            }
+            if (projection.getShowFields() != null) {
+                json.append(",\"fields\":{");
+                if (projection.has(ArticleProjection.THUMBNAIL)) {
+                    json.append("\"thumbnail\":\"https://media.guim.co.uk/synthetic/")
+                            .append(number).append("/500.jpg\"");
+                }
+                if (bodies) {
+                    if (projection.has(ArticleProjection.THUMBNAIL)) {
+                        json.append(',');
+                    }
+                    json.append("\"bodyText\":\"");
+                    for (int sentence = 0; sentence < 12; sentence++) {
+                        json.append("Sentence ").append(sentence).append(" of synthetic article ")
+                                .append(number).append(", long enough to look like text. ");
+                    }
+                    json.append('"');
+                }
+                json.append('}');
+            }
+            json.append(",\"isHosted\":false,\"pillarId\":\"pillar/news\",\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return query;
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue) {
+        try {
+            String value = query.get(name);
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(body);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
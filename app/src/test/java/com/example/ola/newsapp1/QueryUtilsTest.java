@@ -0,0 +1,102 @@
+package com.example.ola.newsapp1;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the requests of {@link QueryUtils}, against a {@link MockGuardianServer}.
+ */
+public class QueryUtilsTest {
+
+    private MockGuardianServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockGuardianServer().start();
+        // Failures of another test must not keep the breaker of the server open
+        breaker().recordSuccess();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.close();
+        breaker().recordSuccess();
+    }
+
+    @Test
+    public void fetchArticleData_parsesThePage() {
+        List<Article> articles = QueryUtils.fetchArticleData(
+                mServer.url("show-tags=contributor&show-fields=thumbnail&page-size=25&page=2"));
+
+        assertEquals(25, articles.size());
+        assertEquals("Synthetic article 25 – what the \"mock\" server says", articles.get(0).getNewsTitle());
+        assertEquals("Technology", articles.get(0).getNewsSection());
+        assertEquals("Alex Hern", articles.get(0).getAuthorsName());
+        assertEquals("https://media.guim.co.uk/synthetic/25/500.jpg", articles.get(0).getThumbnailUrl());
+        assertTrue(articles.get(0).getPublishedAt() > articles.get(1).getPublishedAt());
+    }
+
+    @Test
+    public void fetchArticleData_readsOnlyWhatWasRequested() {
+        List<Article> articles = QueryUtils.fetchArticleData(mServer.url("page-size=3"));
+
+        assertEquals(3, articles.size());
+        assertTrue(articles.get(0).getContributors().isEmpty());
+        assertNull(articles.get(0).getThumbnailUrl());
+    }
+
+    @Test
+    public void fetchArticleData_unchanged_isRevalidated() {
+        String url = mServer.url("page-size=5");
+        ArticleCache.Entry first = QueryUtils.fetchArticleData(url, null);
+
+        ArticleCache.Entry second = QueryUtils.fetchArticleData(url, first);
+
+        assertEquals(1, mServer.getNotModifiedCount());
+        assertSame(first.getArticles(), second.getArticles());
+    }
+
+    @Test
+    public void fetchArticleData_serverBusy_isRetried() {
+        mServer.failNext(1, HttpURLConnection.HTTP_UNAVAILABLE).setRetryAfterSeconds(0);
+
+        List<Article> articles = QueryUtils.fetchArticleData(mServer.url("page-size=3"));
+
+        assertEquals(3, articles.size());
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchArticleData_badRequest_isNotRetried() {
+        mServer.failNext(1, HttpURLConnection.HTTP_BAD_REQUEST);
+
+        assertNull(QueryUtils.fetchArticleData(mServer.url("page-size=3")));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void fetchArticleData_serverDown_breakerStopsRequests() {
+        mServer.setErrorRate(1, HttpURLConnection.HTTP_INTERNAL_ERROR);
+
+        assertNull(QueryUtils.fetchArticleData(mServer.url("page-size=3")));
+        // One request using up its retries is not enough to shut out the others
+        assertFalse(breaker().isOpen(System.currentTimeMillis()));
+        assertNull(QueryUtils.fetchArticleData(mServer.url("page-size=3")));
+        int requests = mServer.getRequestCount();
+        assertNull(QueryUtils.fetchArticleData(mServer.url("page-size=3")));
+
+        assertTrue(breaker().isOpen(System.currentTimeMillis()));
+        assertEquals(requests, mServer.getRequestCount());
+    }
+
+    private static CircuitBreaker breaker() {
+        return CircuitBreaker.forHost("127.0.0.1");
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of fetching and merging the sections in {@link SectionFetcher}.
+ */
+public class SectionFetcherTest {
+
+    private static final List<Article> TECHNOLOGY = Arrays.asList(
+            article("t1", "2018-04-29T06:00:09Z"),
+            article("t2", "2018-04-27T07:00:00Z"));
+
+    private static final List<Article> SCIENCE = Arrays.asList(
+            article("s1", "2018-04-28T18:30:00Z"),
+            article("t2", "2018-04-27T07:00:00Z"),
+            article("s2", "2018-04-26T21:45:12Z"));
+
+    @Test
+    public void merge_sortsNewestFirstWithoutDuplicates() {
+        List<Article> merged = SectionFetcher.merge(Arrays.asList(TECHNOLOGY, SCIENCE), true);
+
+        assertUrls(merged, "t1", "s1", "t2", "s2");
+    }
+
+    @Test
+    public void merge_sortsOldestFirst() {
+        List<Article> merged = SectionFetcher.merge(Arrays.asList(TECHNOLOGY, SCIENCE), false);
+
+        assertUrls(merged, "s2", "t2", "s1", "t1");
+    }
+
+    @Test
+    public void fetch_oneSectionFails_othersAreStillMerged() throws Exception {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final Map<String, List<Article>> sections = new HashMap<>();
+        sections.put("technology", TECHNOLOGY);
+        sections.put("science", SCIENCE);
+        SectionFetcher.Loader loader = new SectionFetcher.Loader() {
+            @Override
+            public ArticleCache.Entry getStored(String url) {
+                return null;
+            }
+
+            @Override
+            public ArticleCache.Entry fetch(String url) throws InterruptedException {
+                if (!sections.containsKey(url)) {
+                    failed.countDown();
+                    throw new IllegalStateException("Broken section");
+                }
+                // Still running when the other section fails
+                failed.await();
+                Thread.sleep(100);
+                return new ArticleCache.Entry(sections.get(url), System.currentTimeMillis(), null, null);
+            }
+        };
+
+        List<Article> merged = SectionFetcher.fetch(Arrays.asList("technology", "broken", "science"),
+                loader, true, null);
+
+        assertUrls(merged, "t1", "s1", "t2", "s2");
+    }
+
+    private static void assertUrls(List<Article> articles, String... keys) {
+        assertEquals(keys.length, articles.size());
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals("https://www.theguardian.com/" + keys[i], articles.get(i).getNewsUrl());
+        }
+    }
+
+    private static Article article(String key, String date) {
+        return new Article(key, "Technology", "author", date, "https://www.theguardian.com/" + key);
+    }
+}
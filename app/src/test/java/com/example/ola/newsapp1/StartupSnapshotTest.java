@@ -0,0 +1,67 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of {@link StartupSnapshot}.
+ */
+public class StartupSnapshotTest {
+
+    private static final List<String> URLS = Arrays.asList(
+            "https://content.guardianapis.com/search?section=games&page=1",
+            "https://content.guardianapis.com/search?section=technology&page=1");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void read_returnsTheFirstSavedArticles() throws IOException {
+        StartupSnapshot snapshot = new StartupSnapshot(mFolder.newFile());
+        snapshot.save(URLS, articles(StartupSnapshot.MAX_ARTICLES + 10));
+
+        StartupSnapshot.Rows rows = snapshot.read();
+
+        assertEquals(StartupSnapshot.MAX_ARTICLES, rows.getArticles().size());
+        assertEquals("Title 0", rows.getArticles().get(0).getNewsTitle());
+        assertTrue(rows.isFor(URLS));
+        assertFalse(rows.isFor(URLS.subList(0, 1)));
+    }
+
+    @Test
+    public void read_nothingSaved_returnsNull() {
+        assertNull(new StartupSnapshot(new File(mFolder.getRoot(), "missing")).read());
+    }
+
+    @Test
+    public void read_damagedFile_returnsNull() throws IOException {
+        File file = mFolder.newFile();
+        StartupSnapshot snapshot = new StartupSnapshot(file);
+        snapshot.save(URLS, articles(5));
+        byte[] damaged = new byte[(int) file.length() / 2];
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(damaged);
+        out.close();
+
+        assertNull(snapshot.read());
+    }
+
+    private static List<Article> articles(int count) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            articles.add(new Article("Title " + i, "Technology", "Author", 1525000000000L - i * 60000L,
+                    "https://www.theguardian.com/technology/" + i));
+        }
+        return articles;
+    }
+}
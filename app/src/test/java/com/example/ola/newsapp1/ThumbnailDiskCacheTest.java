@@ -0,0 +1,57 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of storing downloaded images in {@link ThumbnailDiskCache}.
+ */
+public class ThumbnailDiskCacheTest {
+
+    private static final String URL_1 = "https://media.guim.co.uk/1/500.jpg";
+    private static final String URL_2 = "https://media.guim.co.uk/2/500.jpg";
+    private static final String URL_3 = "https://media.guim.co.uk/3/500.jpg";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void get_returnsStoredImage() throws Exception {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(mFolder.newFolder(), 1024);
+        assertNull(cache.get(URL_1));
+
+        cache.put(URL_1, new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3}, cache.get(URL_1));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void put_removesLeastRecentlyUsedImages() throws Exception {
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(mFolder.newFolder(), 250);
+        cache.put(URL_1, new byte[100]);
+        cache.put(URL_2, new byte[100]);
+        // Using the first image makes the second one the least recently used
+        assertNotNull(cache.get(URL_1));
+
+        cache.put(URL_3, new byte[100]);
+        assertNotNull(cache.get(URL_1));
+        assertNull(cache.get(URL_2));
+        assertNotNull(cache.get(URL_3));
+        assertEquals(200, cache.size());
+    }
+
+    @Test
+    public void get_findsImagesStoredBeforeRestart() throws Exception {
+        File directory = mFolder.newFolder();
+        new ThumbnailDiskCache(directory, 1024).put(URL_1, new byte[]{4, 5});
+
+        ThumbnailDiskCache cache = new ThumbnailDiskCache(directory, 1024);
+        assertArrayEquals(new byte[]{4, 5}, cache.get(URL_1));
+        assertEquals(2, cache.size());
+    }
+}
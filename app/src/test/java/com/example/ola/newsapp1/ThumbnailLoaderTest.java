@@ -0,0 +1,20 @@
+package com.example.ola.newsapp1;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests of the size thumbnails are decoded at in {@link ThumbnailLoader}.
+ */
+public class ThumbnailLoaderTest {
+
+    @Test
+    public void calculateInSampleSize_keepsImageAtLeastAsBigAsView() {
+        // Guardian thumbnails are 500x300, the view is 96x58 pixels on a medium density screen
+        assertEquals(4, ThumbnailLoader.calculateInSampleSize(500, 300, 96, 58));
+        // On an extra high density screen the view is 288x174 pixels
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(500, 300, 288, 174));
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(500, 300, 192, 116));
+    }
+}
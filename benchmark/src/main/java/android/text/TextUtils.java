@@ -0,0 +1,14 @@
+package android.text;
+
+/**
+ * Stand-in for the framework TextUtils class, so the app code can run on a plain JVM.
+ */
+public final class TextUtils {
+
+    private TextUtils() {
+    }
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.ola.newsapp1;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures storing and loading lists of articles in the compact binary format of
+ * {@link ArticleCodec}, compared with doing the same with org.json.
+ *
+ * Loading a few thousand stored articles is on the way to the first screen, so the decode
+ * benchmarks are the ones to watch. The size of the encoded lists is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleCodecBenchmark {
+
+    /** Number of stored articles */
+    @Param({"50", "1000", "5000"})
+    public int articles;
+
+    private List<Article> mArticles;
+    private byte[] mEncoded;
+    private String mJson;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        mArticles = ArticleStreamParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(articles)));
+        mEncoded = ArticleCodec.encode(mArticles);
+        mJson = toJson(mArticles);
+        System.out.println();
+        System.out.println(articles + " articles: binary " + mEncoded.length + " bytes, JSON "
+                + mJson.getBytes("UTF-8").length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return ArticleCodec.encode(mArticles);
+    }
+
+    @Benchmark
+    public List<Article> binaryDecode() throws IOException {
+        return ArticleCodec.decode(mEncoded);
+    }
+
+    /** Only what a row of the list shows, without the thumbnails */
+    @Benchmark
+    public List<Article> binaryDecodeRowFields() throws IOException {
+        return ArticleCodec.decode(mEncoded, 0, mEncoded.length, ArticleCodec.FIELD_TITLE
+                | ArticleCodec.FIELD_SECTION | ArticleCodec.FIELD_AUTHOR | ArticleCodec.FIELD_DATE
+                | ArticleCodec.FIELD_URL);
+    }
+
+    @Benchmark
+    public String jsonEncode() throws JSONException {
+        return toJson(mArticles);
+    }
+
+    @Benchmark
+    public List<Article> jsonDecode() throws JSONException {
+        return fromJson(mJson);
+    }
+
+    private static String toJson(List<Article> articles) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (Article article : articles) {
+            JSONObject object = new JSONObject();
+            object.put("title", article.getNewsTitle());
+            object.put("section", article.getNewsSection());
+            object.put("author", article.getAuthorsName());
+            object.put("publishedAt", article.getPublishedAt());
+            object.put("url", article.getNewsUrl());
+            object.putOpt("thumbnail", article.getThumbnailUrl());
+            array.put(object);
+        }
+        return array.toString();
+    }
+
+    private static List<Article> fromJson(String json) throws JSONException {
+        JSONArray array = new JSONArray(json);
+        List<Article> articles = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject object = array.getJSONObject(i);
+            articles.add(new Article(object.getString("title"), object.getString("section"),
+                    object.getString("author"), object.getLong("publishedAt"),
+                    object.getString("url"), object.optString("thumbnail", null)));
+        }
+        return articles;
+    }
+}
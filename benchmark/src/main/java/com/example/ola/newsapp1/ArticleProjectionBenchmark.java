@@ -0,0 +1,78 @@
+package com.example.ola.newsapp1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Measures parsing a page of the Guardian responses the app requests, with the tags and
+ * fields of its {@link ArticleProjection} compared with the ones it used to ask for
+ * every time (the contributor tags also with the text of the articles, and the thumbnail
+ * also for the rows parsed without it).
+ *
+ * The sizes of the responses, plain and gzipped as they are downloaded, are printed when
+ * the benchmark starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleProjectionBenchmark {
+
+    /** Number of results in the response */
+    @Param({"10", "50"})
+    public int results;
+
+    private byte[] mBodies;
+    private byte[] mBodiesWithTags;
+
+    @Setup
+    public void setUp() throws IOException {
+        mBodies = MockGuardianServer.searchResponse(results, 1, ArticleProjection.BODIES);
+        mBodiesWithTags = MockGuardianServer.searchResponse(results, 1, new ArticleProjection(
+                ArticleProjection.CONTRIBUTORS | ArticleProjection.BODY_TEXT));
+        System.out.println();
+        System.out.println("Texts, projected:   " + mBodies.length + " bytes, " + gzipped(mBodies) + " gzipped");
+        System.out.println("Texts, with tags:   " + mBodiesWithTags.length + " bytes, "
+                + gzipped(mBodiesWithTags) + " gzipped");
+    }
+
+    /** The texts as the background sync requests them now */
+    @Benchmark
+    public Map<String, String> bodies() throws IOException {
+        return ArticleStreamParser.parseBodies(new ByteArrayInputStream(mBodies), mBodies.length);
+    }
+
+    /** The texts as they were requested before, with the contributor tags of every article */
+    @Benchmark
+    public Map<String, String> bodiesWithTags() throws IOException {
+        return ArticleStreamParser.parseBodies(new ByteArrayInputStream(mBodiesWithTags),
+                mBodiesWithTags.length);
+    }
+
+    private static int gzipped(byte[] response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(response);
+        gzip.close();
+        return out.size();
+    }
+}
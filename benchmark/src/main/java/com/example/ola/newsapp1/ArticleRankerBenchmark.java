@@ -0,0 +1,143 @@
+package com.example.ola.newsapp1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures ordering a page for the "For you" setting with the {@link ArticleRanker}, compared
+ * with sorting the articles with a comparator which looks the scores up in boxed maps, the
+ * straightforward way to write it.
+ *
+ * The ranking runs before every personalized page is shown, so it has to stay well below a
+ * frame (16 ms) for the largest lists the app keeps. -prof gc shows what it allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleRankerBenchmark {
+
+    /** Number of articles ranked */
+    @Param({"50", "1000", "5000"})
+    public int articles;
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private List<Article> mArticles;
+    private long mNow;
+    private ArticleRanker mRanker;
+    private Map<String, Double> mSectionClicks;
+    private Map<String, Double> mAuthorClicks;
+    private Set<String> mRead;
+    private File mStateFile;
+    private ScheduledExecutorService mStateWriter;
+    private double mTotalClicks;
+
+    @Setup
+    public void setUp() throws IOException {
+        mArticles = ArticleStreamParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(articles)));
+        mNow = System.currentTimeMillis();
+        mStateFile = File.createTempFile("state", "");
+        mStateFile.delete();
+        mStateWriter = Executors.newSingleThreadScheduledExecutor();
+        ArticleStateStore states = new ArticleStateStore(mStateFile, mStateWriter, DIRECT);
+        mRanker = new ArticleRanker(null, DIRECT, states);
+        mSectionClicks = new HashMap<>();
+        mAuthorClicks = new HashMap<>();
+        mRead = new HashSet<>();
+
+        // A history of a few hundred clicks, on every third article
+        for (int i = 0; i < mArticles.size(); i += 3) {
+            Article article = mArticles.get(i);
+            mRanker.recordClick(article, mNow);
+            add(mSectionClicks, article.getNewsSection());
+            for (String contributor : article.getContributors()) {
+                add(mAuthorClicks, contributor);
+            }
+            states.markOpened(article, mNow);
+            mRead.add(article.getNewsUrl());
+            mTotalClicks++;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mStateWriter.shutdownNow();
+        mStateFile.delete();
+    }
+
+    @Benchmark
+    public List<Article> ranker() {
+        return mRanker.rank(mArticles, mNow);
+    }
+
+    @Benchmark
+    public List<Article> comparatorSort() {
+        List<Article> ranked = new ArrayList<>(mArticles);
+        Collections.sort(ranked, new Comparator<Article>() {
+            @Override
+            public int compare(Article a, Article b) {
+                return Double.compare(score(b), score(a));
+            }
+        });
+        return ranked;
+    }
+
+    private double score(Article article) {
+        double clicks = mTotalClicks + ArticleRanker.PRIOR_CLICKS;
+        double score = ArticleRanker.recency(article.getPublishedAt(), mNow)
+                + ArticleRanker.SECTION_WEIGHT * get(mSectionClicks, article.getNewsSection()) / clicks
+                + ArticleRanker.AUTHOR_WEIGHT * authorClicks(article) / clicks;
+        return mRead.contains(article.getNewsUrl()) ? score * ArticleRanker.READ_FACTOR : score;
+    }
+
+    private double authorClicks(Article article) {
+        double clicks = 0;
+        for (String contributor : article.getContributors()) {
+            clicks = Math.max(clicks, get(mAuthorClicks, contributor));
+        }
+        return clicks;
+    }
+
+    private static void add(Map<String, Double> counts, String name) {
+        counts.put(name, get(counts, name) + 1);
+    }
+
+    private static double get(Map<String, Double> counts, String name) {
+        Double count = counts.get(name);
+        return count != null ? count : 0;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ola.newsapp1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up the read and bookmark state of the rows of a screen, as
+ * {@link ArticleAdapter#getView} does for every row it binds, in the {@link ArticleStateStore}
+ * compared with a HashMap of the URLs, the straightforward way to write it.
+ *
+ * Every operation looks up the state of one screen of rows. A tenth of the articles have
+ * some state, like after a few days of use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArticleStateStoreBenchmark {
+
+    /** Rows on a screen */
+    private static final int ROWS = 10;
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            runnable.run();
+        }
+    };
+
+    private List<Article> mArticles;
+    private File mFile;
+    private ScheduledExecutorService mWriter;
+    private ArticleStateStore mStore;
+    private Map<String, Integer> mStates;
+    private int mNext;
+
+    @Setup
+    public void setUp() throws IOException {
+        mArticles = ArticleStreamParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(1000)));
+        mFile = File.createTempFile("state", "");
+        mFile.delete();
+        mWriter = Executors.newSingleThreadScheduledExecutor();
+        mStore = new ArticleStateStore(mFile, mWriter, DIRECT);
+        mStates = new HashMap<>();
+        for (int i = 0; i < mArticles.size(); i += 10) {
+            Article article = mArticles.get(i);
+            mStore.markOpened(article, System.currentTimeMillis());
+            mStates.put(article.getNewsUrl(), ArticleStateStore.READ);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mWriter.shutdownNow();
+        mFile.delete();
+    }
+
+    @Benchmark
+    public int stateStore() {
+        int states = 0;
+        int first = nextScreen();
+        for (int i = first; i < first + ROWS; i++) {
+            states += mStore.getState(mArticles.get(i));
+        }
+        return states;
+    }
+
+    @Benchmark
+    public int hashMap() {
+        int states = 0;
+        int first = nextScreen();
+        for (int i = first; i < first + ROWS; i++) {
+            Integer state = mStates.get(mArticles.get(i).getNewsUrl());
+            states += state != null ? state : 0;
+        }
+        return states;
+    }
+
+    /** Returns the first row of the next screen, scrolling through the whole list */
+    private int nextScreen() {
+        mNext = (mNext + ROWS) % (mArticles.size() - ROWS);
+        return mNext;
+    }
+}
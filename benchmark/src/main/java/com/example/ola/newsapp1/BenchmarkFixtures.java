@@ -0,0 +1,78 @@
+package com.example.ola.newsapp1;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Guardian "search" responses of any size for the benchmarks.
+ *
+ * They are built from the results of the response recorded in guardian_search.json (the
+ * same file the app's unit tests use), repeated as often as needed. Every copy gets its own
+ * id and webUrl, so the articles are all different as they would be in a real response.
+ */
+final class BenchmarkFixtures {
+
+    /** Recorded response, on the classpath */
+    static final String RECORDED_RESPONSE = "guardian_search.json";
+
+    private BenchmarkFixtures() {
+    }
+
+    /** Returns a response with the given number of results, as UTF-8 bytes. */
+    static byte[] response(int results) {
+        return responseString(results).getBytes(Charset.forName("UTF-8"));
+    }
+
+    /** Returns a response with the given number of results. */
+    static String responseString(int results) {
+        try {
+            JSONObject recorded = new JSONObject(QueryUtils.readFromStream(open(RECORDED_RESPONSE)));
+            JSONObject response = recorded.getJSONObject("response");
+            JSONArray recordedResults = response.getJSONArray("results");
+
+            JSONArray generated = new JSONArray();
+            for (int i = 0; i < results; i++) {
+                // Copy the recorded result, then make it unique
+                JSONObject result = new JSONObject(recordedResults.getJSONObject(i % recordedResults.length()).toString());
+                result.put("id", result.getString("id") + "-" + i);
+                result.put("webUrl", result.getString("webUrl") + "-" + i);
+                generated.put(result);
+            }
+            response.put("results", generated);
+            response.put("pageSize", results);
+            return recorded.toString();
+        } catch (JSONException | IOException e) {
+            throw new IllegalStateException("Cannot build a response from " + RECORDED_RESPONSE, e);
+        }
+    }
+
+    /** Returns the publication dates of a response with the given number of results. */
+    static List<String> publicationDates(int results) {
+        try {
+            JSONArray generated = new JSONObject(responseString(results))
+                    .getJSONObject("response").getJSONArray("results");
+            List<String> dates = new ArrayList<>(generated.length());
+            for (int i = 0; i < generated.length(); i++) {
+                dates.add(generated.getJSONObject(i).getString("webPublicationDate"));
+            }
+            return dates;
+        } catch (JSONException e) {
+            throw new IllegalStateException("Cannot read the dates from " + RECORDED_RESPONSE, e);
+        }
+    }
+
+    private static InputStream open(String name) throws IOException {
+        InputStream in = BenchmarkFixtures.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing " + name);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.ola.newsapp1;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives the fetch/parse pipeline of the app ({@link QueryUtils#fetchArticleData}) from many
+ * threads against a {@link MockGuardianServer}, and reports the throughput and the latency
+ * percentiles. Everything runs in this process, so a run needs no network and can be repeated.
+ *
+ *   ./gradlew :benchmark:loadTest -PloadTestArgs="--threads=16 --requests=2000 --latency=80"
+ *
+ * Options, all optional:
+ * <pre>
+ *   --threads=N         requests running at the same time (8)
+ *   --requests=N        requests to measure, after the warmup (1000)
+ *   --warmup=N          requests before the measurement, not reported (200)
+ *   --page-size=N       articles in every response (50)
+ *   --latency=MS        time the server waits before answering (0)
+ *   --jitter=MS         random extra time the server waits, up to this (0)
+ *   --bandwidth=BYTES   bytes per second of every response, 0 for no limit (0)
+ *   --error-rate=R      share of the requests the server answers with 503, 0 to 1 (0)
+ *   --revalidate        send the validators of the previous response, to measure 304s
+ *   --seed=N            seed of the server's errors and jitter (1)
+ * </pre>
+ * Failed requests are the ones which still failed after the retries of {@link HttpRetry}, or
+ * were refused by the {@link CircuitBreaker}. Their latency is reported separately.
+ */
+public final class LoadTest {
+
+    private final int mThreads;
+    private final int mRequests;
+    private final int mWarmup;
+    private final int mPageSize;
+    private final boolean mRevalidate;
+    private final MockGuardianServer mServer;
+
+    private LoadTest(Map<String, String> options, MockGuardianServer server) {
+        mThreads = intOption(options, "threads", 8);
+        mRequests = intOption(options, "requests", 1000);
+        mWarmup = intOption(options, "warmup", 200);
+        mPageSize = intOption(options, "page-size", 50);
+        mRevalidate = options.containsKey("revalidate");
+        mServer = server
+                .setLatency(intOption(options, "latency", 0), intOption(options, "jitter", 0))
+                .setBytesPerSecond(intOption(options, "bandwidth", 0))
+                .setErrorRate(Double.parseDouble(option(options, "error-rate", "0")), 503)
+                .setSeed(intOption(options, "seed", 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        // Every thread keeps its own connection open, as the app's sections do
+        System.setProperty("http.maxConnections", String.valueOf(intOption(options, "threads", 8)));
+
+        MockGuardianServer server = new MockGuardianServer().start();
+        try {
+            new LoadTest(options, server).run();
+        } finally {
+            server.close();
+        }
+    }
+
+    private void run() throws InterruptedException, ExecutionException {
+        ExecutorService threads = Executors.newFixedThreadPool(mThreads);
+        try {
+            System.out.println(String.format(Locale.US,
+                    "%d threads, %d requests of %d articles, %d warmup requests%s",
+                    mThreads, mRequests, mPageSize, mWarmup, mRevalidate ? ", revalidating" : ""));
+            runRequests(threads, mWarmup, new Histogram("warmup"), new Histogram("warmup"));
+
+            Histogram succeeded = new Histogram("succeeded_us");
+            Histogram failed = new Histogram("failed_us");
+            Metrics.reset();
+            Metrics.setEnabled(true);
+            int serverRequestsBefore = mServer.getRequestCount();
+            int serverErrorsBefore = mServer.getErrorCount();
+            long startNanos = System.nanoTime();
+            long articles = runRequests(threads, mRequests, succeeded, failed);
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            Metrics.setEnabled(false);
+
+            System.out.println(String.format(Locale.US, "throughput: %.1f requests/s, %.0f articles/s",
+                    mRequests / seconds, articles / seconds));
+            System.out.println(String.format(Locale.US, "server: %d requests, %d errors, %d not modified",
+                    mServer.getRequestCount() - serverRequestsBefore,
+                    mServer.getErrorCount() - serverErrorsBefore, mServer.getNotModifiedCount()));
+            System.out.println(succeeded);
+            System.out.println(failed);
+            System.out.print(Metrics.dump());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Makes the requests from all the threads, spread over the first ten pages, and records
+     * how long each one took. Returns the number of articles received.
+     */
+    private long runRequests(ExecutorService threads, int requests, final Histogram succeeded,
+                             final Histogram failed) throws InterruptedException, ExecutionException {
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicLong articles = new AtomicLong();
+        final int total = requests;
+        List<Future<?>> workers = new ArrayList<>(mThreads);
+        for (int t = 0; t < mThreads; t++) {
+            workers.add(threads.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    // The last response of every page, for revalidation
+                    Map<String, ArticleCache.Entry> previous = new HashMap<>();
+                    int request;
+                    while ((request = next.getAndIncrement()) < total) {
+                        // The tags and fields of the list rows, as ArticleQuery asks for them
+                        String url = mServer.url("order-by=newest&show-tags=contributor"
+                                + "&show-fields=thumbnail&page-size=" + mPageSize
+                                + "&page=" + (request % 10 + 1));
+                        long startNanos = System.nanoTime();
+                        ArticleCache.Entry entry = QueryUtils.fetchArticleData(url,
+                                mRevalidate ? previous.get(url) : null);
+                        long micros = (System.nanoTime() - startNanos) / 1000;
+                        if (entry != null) {
+                            succeeded.record(micros);
+                            articles.addAndGet(entry.getArticles().size());
+                            previous.put(url, entry);
+                        } else {
+                            failed.record(micros);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        return articles.get();
+    }
+
+    /** Reads "--name=value" and "--name" arguments */
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return Integer.parseInt(option(options, name, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ola.newsapp1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each stage of turning a Guardian response into the rows of the article list.
+ *
+ * Every benchmark runs in throughput mode and in sample time mode, which reports the
+ * p50/p90/p99 latency. Run with "-prof gc" (the default of the jmh task) to also get the
+ * allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    /** Number of results in the response */
+    @Param({"10", "50", "200", "1000"})
+    public int results;
+
+    private byte[] mResponse;
+    private String mResponseString;
+    private List<Article> mArticles;
+    private List<Article> mRefreshedArticles;
+    private List<String> mDates;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponseString = BenchmarkFixtures.responseString(results);
+        mResponse = mResponseString.getBytes(Charset.forName("UTF-8"));
+        mArticles = ArticleStreamParser.parse(new ByteArrayInputStream(mResponse));
+        mDates = BenchmarkFixtures.publicationDates(results);
+
+        // The same list after a refresh: two new articles on top, the last two pushed off
+        mRefreshedArticles = new ArrayList<>(mArticles.subList(0, Math.max(0, mArticles.size() - 2)));
+        mRefreshedArticles.add(0, new Article("New title 1", "Technology", "Author", "2018-04-30T10:00:00Z", "https://www.theguardian.com/new-1"));
+        mRefreshedArticles.add(0, new Article("New title 2", "Technology", "Author", "2018-04-30T11:00:00Z", "https://www.theguardian.com/new-2"));
+    }
+
+    /** Reading the whole response into a String, the first half of the reference parser */
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return QueryUtils.readFromStream(new ByteArrayInputStream(mResponse));
+    }
+
+    /** Building the org.json tree and the articles from the String, the second half */
+    @Benchmark
+    public List<Article> extractFeatureFromJson() {
+        return QueryUtils.extractFeatureFromJson(mResponseString);
+    }
+
+    /** The reference parser from the stream to the articles */
+    @Benchmark
+    public List<Article> referenceParse() throws IOException {
+        return QueryUtils.extractFeatureFromJson(QueryUtils.readFromStream(new ByteArrayInputStream(mResponse)));
+    }
+
+    /** The streaming parser the app uses, from the stream to the articles */
+    @Benchmark
+    public List<Article> streamParse() throws IOException {
+        return ArticleStreamParser.parse(new ByteArrayInputStream(mResponse));
+    }
+
+    /** Creating the Article objects alone, from values which have already been parsed */
+    @Benchmark
+    public void constructArticles(Blackhole blackhole) {
+        for (Article article : mArticles) {
+            blackhole.consume(new Article(article.getNewsTitle(), article.getNewsSection(),
+                    article.getAuthorsName(), article.getPublishedAt(), article.getNewsUrl()));
+        }
+    }
+
+    /** Reading the publication dates, done once for every article while the response is parsed */
+    @Benchmark
+    public void parseDates(Blackhole blackhole) {
+        for (String date : mDates) {
+            blackhole.consume(ArticleDates.parseIso8601(date));
+        }
+    }
+
+    /** Working out which rows to update after a refresh, the data side of binding */
+    @Benchmark
+    public int diffRefresh() {
+        return ArticleDiff.apply(mArticles, mRefreshedArticles, NO_OP);
+    }
+
+    private static final ArticleDiff.Callback NO_OP = new ArticleDiff.Callback() {
+        @Override
+        public void onInserted(int position, Article article) {
+        }
+
+        @Override
+        public void onRemoved(int position) {
+        }
+
+        @Override
+        public void onChanged(int position, Article article) {
+        }
+    };
+}
@@ -0,0 +1,87 @@
+package com.example.ola.newsapp1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures searching the stored articles while the user types, which has to stay within a
+ * few milliseconds for tens of thousands of articles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    /** Number of articles in the index */
+    @Param({"1000", "10000", "50000"})
+    public int articles;
+
+    /** What the user has typed so far: one letter, a longer prefix, and two words */
+    @Param({"t", "tech", "the gu"})
+    public String query;
+
+    private ArticleSearchIndex mIndex;
+    private List<Article> mNewArticles;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Titles made of the words of the recorded articles, so words repeat as they do in news
+        List<String> words = new ArrayList<>();
+        for (Article article : ArticleStreamParser.parse(new ByteArrayInputStream(BenchmarkFixtures.response(6)))) {
+            words.addAll(ArticleSearchIndex.tokenize(article.getNewsTitle()));
+        }
+        Random random = new Random(42);
+
+        // Sized for all the articles, to measure bigger indexes than the app keeps
+        mIndex = new ArticleSearchIndex(articles);
+        mIndex.addAll(generate(articles, words, random, "a"));
+        mNewArticles = generate(10, words, random, "new");
+    }
+
+    /** One keystroke in the search box */
+    @Benchmark
+    public List<Article> search() {
+        return mIndex.search(query, 200);
+    }
+
+    /** Adding the articles of one downloaded page */
+    @Benchmark
+    public ArticleSearchIndex addPage() {
+        mIndex.addAll(mNewArticles);
+        return mIndex;
+    }
+
+    private static List<Article> generate(int count, List<String> words, Random random, String prefix) {
+        List<Article> generated = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                title.append(words.get(random.nextInt(words.size()))).append(' ');
+            }
+            // A word of its own for every article, as names and places are in real titles
+            title.append("x").append(Integer.toString(i, 36));
+            generated.add(new Article(title.toString(), "Technology", "The Guardian",
+                    1525000000000L - i * 60000L, "https://www.theguardian.com/" + prefix + "-" + i));
+        }
+        return generated;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ola.newsapp1;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what the list screen does on the main thread before its first frame: reading the
+ * rows of the {@link StartupSnapshot}, compared with reading the first page of every section
+ * from the {@link ArticleCache} as the app did before.
+ *
+ * The cold benchmarks run once in a fresh JVM, many times over, like the first start of the
+ * app in a new process. The warm ones run in a JVM which has done it many times already.
+ * Whole app starts on a device are measured by startup.sh.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StartupBenchmark {
+
+    /** Sections the user follows, the default settings */
+    private static final int SECTIONS = 3;
+
+    private File mDirectory;
+    private List<String> mUrls;
+
+    @Setup
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("startup", "");
+        mDirectory.delete();
+        mDirectory.mkdirs();
+
+        List<Article> articles = ArticleStreamParser.parse(new ByteArrayInputStream(
+                BenchmarkFixtures.response(SECTIONS * 10)));
+        ArticleCache cache = cache();
+        mUrls = new ArrayList<>();
+        for (int i = 0; i < SECTIONS; i++) {
+            String url = "https://content.guardianapis.com/search?section=" + i + "&page=1";
+            cache.put(url, new ArticleCache.Entry(articles.subList(i * 10, i * 10 + 10),
+                    System.currentTimeMillis(), null, null));
+            mUrls.add(url);
+        }
+        snapshot().save(mUrls, articles);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : new File(mDirectory, "articles").listFiles()) {
+            file.delete();
+        }
+        new File(mDirectory, "articles").delete();
+        new File(mDirectory, "snapshot").delete();
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public StartupSnapshot.Rows coldSnapshot() {
+        return snapshot().read();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public List<Article> coldCache() {
+        return readCache();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public StartupSnapshot.Rows warmSnapshot() {
+        return snapshot().read();
+    }
+
+    @Benchmark
+    @BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public List<Article> warmCache() {
+        return readCache();
+    }
+
+    /** Reads the first page of every section the way a new process does, with an empty memory cache */
+    private List<Article> readCache() {
+        ArticleCache cache = cache();
+        List<List<Article>> sections = new ArrayList<>(SECTIONS);
+        for (String url : mUrls) {
+            sections.add(cache.get(url).getArticles());
+        }
+        List<Article> page = new ArrayList<>();
+        for (List<Article> section : sections) {
+            page.addAll(section);
+        }
+        return page;
+    }
+
+    private ArticleCache cache() {
+        return new ArticleCache(new File(mDirectory, "articles"), ArticleCache.MAX_SIZE_BYTES);
+    }
+
+    private StartupSnapshot snapshot() {
+        return new StartupSnapshot(new File(mDirectory, "snapshot"));
+    }
+}
@@ -0,0 +1,46 @@
+#!/bin/sh
+# Measures cold and warm starts of the app on the connected device or emulator.
+#
+#   benchmark/startup.sh [runs]
+#
+# A cold start launches the list screen in a new process (the app is force-stopped before
+# each run). A warm start launches it again in the running process after it was closed with
+# the back button. Each start is timed by the activity manager until the first frame is
+# drawn ("TotalTime"), and the median of all runs is printed.
+#
+# Install the app first (./gradlew installDebug). Debug builds also record the startup
+# timings on the metrics screen of the app.
+
+set -e
+
+RUNS=${1:-10}
+PACKAGE=com.example.android.newsappver1
+ACTIVITY=$PACKAGE/com.example.ola.newsapp1.ArticleActivity
+
+# Prints the TotalTime of one start of the list screen, in milliseconds
+start_time() {
+    adb shell am start -W -n "$ACTIVITY" | tr -d '\r' | sed -n 's/^TotalTime: //p'
+}
+
+# Prints the median of the numbers on standard input
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print (NR % 2) ? values[(NR + 1) / 2] : (values[NR / 2] + values[NR / 2 + 1]) / 2 }'
+}
+
+cold=""
+warm=""
+for run in $(seq "$RUNS"); do
+    adb shell am force-stop "$PACKAGE"
+    cold="$cold $(start_time)"
+    # Let the first page load, so the next start has a snapshot to show
+    sleep 3
+
+    adb shell input keyevent KEYCODE_BACK
+    sleep 1
+    warm="$warm $(start_time)"
+    sleep 1
+    echo "run $run: cold $(echo $cold | awk '{ print $NF }') ms, warm $(echo $warm | awk '{ print $NF }') ms"
+done
+
+echo "median cold start: $(echo $cold | tr ' ' '\n' | median) ms"
+echo "median warm start: $(echo $warm | tr ' ' '\n' | median) ms"